@@ -63,6 +63,7 @@ declaration returns [Statement ast]
 	: t=typeDeclaration           { $ast = $t.ast; }
 	| s=staticVariableDeclaration { $ast = $s.ast; }
 	| v=variableDeclaration       { $ast = $v.ast; }
+	| a=annotatedDeclaration      { $ast = $a.ast; }
 	;
 
 typeDeclaration returns [TypeDecl ast]
@@ -79,6 +80,19 @@ staticVariableDeclaration returns [VarDeclStatement ast]
 	: STATIC v=variableDeclaration { $ast = $v.ast; $ast.setStatic(true); }
 	;
 
+annotatedDeclaration returns [VarDeclStatement ast]
+	locals [ArrayList<Identifier> annotations]
+	@init { $annotations = new ArrayList<Identifier>(); }
+	: (id=annotation { $annotations.add($id.ast); })+ (s=staticVariableDeclaration { $ast = $s.ast; } | v=variableDeclaration { $ast = $v.ast; }) { for (final Identifier a : $annotations) $ast.addAnnotation(a); }
+	;
+
+annotation returns [Identifier ast]
+	locals [int l, int c]
+	@init { $l = getStartLine(); $c = getStartColumn(); }
+	@after { $ast.setPositions($l, $c, getEndLine(), getEndColumn()); }
+	: { VarDeclStatement.isAnnotation(getCurrentToken().getText()) }? lit=Identifier { $ast = new Identifier($lit.text); }
+	;
+
 variableDeclaration returns [VarDeclStatement ast]
 	locals [int l, int c]
 	@init { $l = getStartLine(); $c = getStartColumn(); }
@@ -28,6 +28,7 @@ declaration
 	: typeDeclaration
 	| staticVariableDeclaration
 	| variableDeclaration
+	| annotatedDeclaration
 	;
 
 typeDeclaration
@@ -38,6 +39,14 @@ staticVariableDeclaration
 	: STATIC variableDeclaration
 	;
 
+annotatedDeclaration
+	: annotation+ (staticVariableDeclaration | variableDeclaration)
+	;
+
+annotation
+	: { boa.compiler.ast.statements.VarDeclStatement.isAnnotation(getCurrentToken().getText()) }? Identifier
+	;
+
 variableDeclaration
 	: forVariableDeclaration { isSemiColon(); }
 	;
@@ -36,6 +36,7 @@ public class BoaMain {
 		options.addOption("c", "compile", false, "compile a Boa program");
 		options.addOption("e", "execute", false, "execute a Boa program");
 		options.addOption("g", "generate", false, "generate a Boa dataset");
+		options.addOption("s", "server", false, "run a persistent Boa compile server");
 
 		final CommandLine cl;
 		try {
@@ -54,6 +55,8 @@ public class BoaMain {
 		    		boa.evaluator.BoaEvaluator.main(tempargs);
 		    	    } else if (cl.hasOption("g")) {
 		    		boa.datagen.BoaGenerator.main(tempargs);
+		    	    } else if (cl.hasOption("s")) {
+		    		boa.compiler.BoaCompileServer.main(tempargs);
 		    	    }
 		    	}
 		} catch (final org.apache.commons.cli.ParseException e) {
@@ -38,6 +38,7 @@ public abstract class Aggregator {
 	private Context context;
 	private EmitKey key;
 	private boolean combining;
+	private boolean tagged;
 
 	/**
 	 * Construct an Aggregator.
@@ -93,14 +94,41 @@ public abstract class Aggregator {
 		this.aggregate(BoaCasts.doubleToString(data), null);
 	}
 
+	/**
+	 * Aggregate a value read by the combiner or reducer.
+	 * 
+	 * @param value
+	 *            The {@link EmitValue} to aggregate
+	 */
+	public void aggregate(final EmitValue value) throws IOException, InterruptedException, FinishedException {
+		for (final String s : value.getData())
+			this.aggregate(s, value.getMetadata());
+	}
+
 	@SuppressWarnings("unchecked")
 	protected void collect(final String data, final String metadata) throws IOException, InterruptedException {
 		if (this.combining)
 			this.getContext().write(this.getKey(), new EmitValue(data, metadata));
 		else if (metadata != null)
-			this.getContext().write(new Text(this.getKey() + " = " + data + " weight " + metadata), NullWritable.get());
+			this.writeLine(this.getKey() + " = " + data + " weight " + metadata);
+		else
+			this.writeLine(this.getKey() + " = " + data);
+	}
+
+	/**
+	 * Write a line of output.  If several queries share this job, the line is
+	 * tagged with the number of the query it belongs to, so the output can be
+	 * split up again when the job is committed.
+	 * 
+	 * @param line
+	 *            A {@link String} containing the line to write
+	 */
+	@SuppressWarnings("unchecked")
+	protected void writeLine(final String line) throws IOException, InterruptedException {
+		if (this.tagged)
+			this.getContext().write(new Text(this.getKey().getId() + "::" + line), NullWritable.get());
 		else
-			this.getContext().write(new Text(this.getKey() + " = " + data), NullWritable.get());
+			this.getContext().write(new Text(line), NullWritable.get());
 	}
 
 	protected void collect(final String data) throws IOException, InterruptedException {
@@ -135,6 +163,7 @@ public abstract class Aggregator {
 
 	public void setContext(@SuppressWarnings("rawtypes") final Context context) {
 		this.context = context;
+		this.tagged = context != null && context.getConfiguration().get("boa.hadoop.jobids") != null;
 	}
 
 	public boolean isCombining() {
@@ -17,8 +17,6 @@
 package boa.aggregators;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Map.Entry;
 
 import boa.io.EmitKey;
@@ -47,7 +45,10 @@ public class FloatQuantileAggregator extends QuantileAggregator {
 	public void start(final EmitKey key) {
 		super.start(key);
 
-		this.list = new SortedCountingSet<Double>();
+		if (this.list == null)
+			this.list = new SortedCountingSet<Double>(SpillCodec.DOUBLE);
+		else
+			this.list.clear();
 	}
 
 	/** {@inheritDoc} */
@@ -70,13 +71,7 @@ public class FloatQuantileAggregator extends QuantileAggregator {
 
 	/** {@inheritDoc} */
 	@Override
-	public List<Pair<String, Long>> getTuples() {
-		final List<Pair<String, Long>> list = new ArrayList<Pair<String, Long>>();
-
-		// convert the map entries into a list of Pair
-		for (final Entry<Double, Long> e : this.list.getEntries())
-			list.add(new Pair<String, Long>(e.getKey().toString(), e.getValue()));
-
-		return list;
+	protected Iterable<Entry<Double, Long>> getEntries() throws IOException {
+		return this.list.getEntries();
 	}
 }
@@ -16,43 +16,113 @@
  */
 package boa.aggregators;
 
-import java.util.*;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-
-import org.apache.hadoop.io.NullWritable;
-import org.apache.hadoop.io.Text;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import boa.io.EmitKey;
 import boa.io.EmitValue;
 
-
 /**
  * The base class for all graph output aggregators.
  * 
+ * Node names are interned to int ids once per task, and the neighbors of the
+ * current key are kept as an array of ids that is periodically sorted and
+ * deduplicated.  Names are only quoted when they are written out.
+ * 
+ * When the neighbors and interned names exceed the budget given by
+ * {@link SpillSettings}, the neighbors are written to local disk as a run
+ * sorted by name and the interned names are dropped.  The runs are merged
+ * back when the key is finished, so a key with that many neighbors has them
+ * written in name order.
+ * 
  * @author rdyer
  */
 public abstract class GraphAggregator extends Aggregator {
-	protected Set<String> neighbors;
-	protected Map<String,String> weights;
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** the estimated heap bytes of one neighbor, not counting its name or weight */
+	private static final int NEIGHBOR_SIZE = 12;
+
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	private final List<String> names = new ArrayList<String>();
+	private long internBytes;
+
+	private int[] neighbors;
+	private String[] weights;
+	private int size;
+
+	private final List<File> runs = new ArrayList<File>();
+	private final List<Run> open = new ArrayList<Run>();
 
 	/** {@inheritDoc} */
 	@Override
 	public void start(final EmitKey key) {
 		super.start(key);
 
-		this.neighbors = new HashSet<String>();
-		this.weights = new HashMap<String,String>();
+		this.clearRuns();
+		this.neighbors = new int[INITIAL_CAPACITY];
+		this.weights = null;
+		this.size = 0;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void aggregate(final String data, final String metadata) throws IOException, InterruptedException, FinishedException {
-		final String neighbor = data.startsWith("\"") ? data : "\"" + data + "\"";
-		this.neighbors.add(neighbor);
-		final String weight = metadata == null ? null : (metadata.startsWith("\"") ? metadata : "\"" + metadata + "\"");
-		this.weights.put(neighbor, weight);
+		if (this.size == this.neighbors.length) {
+			this.compact();
+			if (this.estimateSize() > SpillSettings.getBudget())
+				this.spill();
+			// only grow if deduplicating did not free enough space
+			else if (this.size > this.neighbors.length / 2)
+				this.grow();
+		}
+
+		this.neighbors[this.size] = this.intern(unquote(data));
+		if (metadata != null) {
+			if (this.weights == null)
+				this.weights = new String[this.neighbors.length];
+			this.weights[this.size] = unquote(metadata);
+		}
+		this.size++;
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void finish() throws IOException, InterruptedException {
+		try {
+			// the combiner passes along each distinct neighbor
+			if (this.isCombining())
+				for (final Entry<String, String> e : this.getNeighbors())
+					this.collect(quote(e.getKey()), e.getValue() == null ? null : quote(e.getValue()));
+			else
+				this.write();
+		} finally {
+			this.clearRuns();
+		}
+	}
+
+	/**
+	 * Write the output for the current key, using {@link #getNeighbors()}.
+	 */
+	protected abstract void write() throws IOException, InterruptedException;
+
 	/** {@inheritDoc} */
 	@Override
 	@SuppressWarnings("unchecked")
@@ -61,8 +131,299 @@ public abstract class GraphAggregator extends Aggregator {
 			this.getContext().write(this.getKey(), new EmitValue(data, metadata));
 			return;
 		}
-		this.getContext().write(new Text(format(this.getKey().getIndex(), data, metadata)), NullWritable.get());
+
+		this.writeLine(format(this.getKey().getIndex(), data, metadata));
 	}
 
 	protected abstract String format(final String idx, final String data, final String metadata);
+
+	/**
+	 * The distinct neighbors of the current key, mapped to the (unquoted)
+	 * weight of the last edge added to each, or null.  If the neighbors were
+	 * spilled, they are merged from disk as they are iterated and may only be
+	 * iterated once.
+	 * 
+	 * @return the (unquoted) neighbors and their weights
+	 */
+	protected Iterable<Entry<String, String>> getNeighbors() throws IOException {
+		if (this.runs.isEmpty()) {
+			this.compact();
+			return new Iterable<Entry<String, String>>() {
+				@Override
+				public Iterator<Entry<String, String>> iterator() {
+					return new Iterator<Entry<String, String>>() {
+						private int i = 0;
+
+						@Override
+						public boolean hasNext() {
+							return this.i < GraphAggregator.this.size;
+						}
+
+						@Override
+						public Entry<String, String> next() {
+							if (!this.hasNext())
+								throw new NoSuchElementException();
+							final String weight = GraphAggregator.this.weights == null ? null : GraphAggregator.this.weights[this.i];
+							return new SimpleImmutableEntry<String, String>(GraphAggregator.this.names.get(GraphAggregator.this.neighbors[this.i++]), weight);
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+			};
+		}
+
+		// write out the remainder so everything is merged from disk
+		if (this.size > 0)
+			this.spill();
+
+		final List<File> files = new ArrayList<File>(this.runs);
+		return new Iterable<Entry<String, String>>() {
+			@Override
+			public Iterator<Entry<String, String>> iterator() {
+				try {
+					return new MergeIterator(files);
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+	}
+
+	private int intern(final String name) {
+		final Integer id = this.ids.get(name);
+		if (id != null)
+			return id;
+
+		this.ids.put(name, this.names.size());
+		this.names.add(name);
+		this.internBytes += SpillCodec.STRING.size(name);
+		return this.names.size() - 1;
+	}
+
+	private void grow() {
+		this.neighbors = Arrays.copyOf(this.neighbors, this.neighbors.length * 2);
+		if (this.weights != null)
+			this.weights = Arrays.copyOf(this.weights, this.neighbors.length);
+	}
+
+	private long estimateSize() {
+		long bytes = this.internBytes + (long) this.size * NEIGHBOR_SIZE;
+		if (this.weights != null)
+			for (int i = 0; i < this.size; i++)
+				if (this.weights[i] != null)
+					bytes += SpillCodec.STRING.size(this.weights[i]);
+		return bytes;
+	}
+
+	/**
+	 * Sort the neighbors by id and remove duplicates, keeping the weight of
+	 * the last edge added for each neighbor.
+	 */
+	private void compact() {
+		if (this.size == 0)
+			return;
+
+		// pack the id and insertion order so sorting keeps duplicates in order
+		final long[] order = new long[this.size];
+		for (int i = 0; i < this.size; i++)
+			order[i] = ((long) this.neighbors[i] << 32) | i;
+		Arrays.sort(order);
+
+		final int[] newNeighbors = new int[this.neighbors.length];
+		final String[] newWeights = this.weights == null ? null : new String[this.neighbors.length];
+
+		int n = 0;
+		for (int i = 0; i < order.length; i++) {
+			final int id = (int) (order[i] >>> 32);
+			if (i + 1 < order.length && (int) (order[i + 1] >>> 32) == id)
+				continue;
+
+			newNeighbors[n] = id;
+			if (newWeights != null)
+				newWeights[n] = this.weights[(int) order[i]];
+			n++;
+		}
+
+		this.neighbors = newNeighbors;
+		this.weights = newWeights;
+		this.size = n;
+	}
+
+	/**
+	 * Write the neighbors to disk as a new run sorted by name, then drop them
+	 * and the interned names, which nothing refers to any more.
+	 */
+	private void spill() throws IOException {
+		this.compact();
+
+		final Integer[] order = new Integer[this.size];
+		for (int i = 0; i < this.size; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				return GraphAggregator.this.names.get(GraphAggregator.this.neighbors[a]).compareTo(GraphAggregator.this.names.get(GraphAggregator.this.neighbors[b]));
+			}
+		});
+
+		final File f = SpillSettings.createRunFile();
+		this.runs.add(f);
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			out.writeInt(this.size);
+			for (final int i : order) {
+				SpillCodec.STRING.write(out, this.names.get(this.neighbors[i]));
+				final String weight = this.weights == null ? null : this.weights[i];
+				out.writeBoolean(weight != null);
+				if (weight != null)
+					SpillCodec.STRING.write(out, weight);
+			}
+		} finally {
+			out.close();
+		}
+
+		this.ids.clear();
+		this.names.clear();
+		this.internBytes = 0;
+		this.neighbors = new int[INITIAL_CAPACITY];
+		this.weights = null;
+		this.size = 0;
+	}
+
+	/**
+	 * Delete every run of the current key, including those of a merge that
+	 * was not read to the end.
+	 */
+	private void clearRuns() {
+		for (final Run r : this.open)
+			r.close();
+		for (final File f : this.runs)
+			f.delete();
+
+		this.open.clear();
+		this.runs.clear();
+	}
+
+	private static String unquote(final String s) {
+		if (s.length() >= 2 && s.startsWith("\"") && s.endsWith("\""))
+			return s.substring(1, s.length() - 1);
+		return s;
+	}
+
+	protected static String quote(final String s) {
+		return "\"" + s + "\"";
+	}
+
+	/**
+	 * A single sorted run being read back from disk.
+	 */
+	private class Run implements Comparable<Run> {
+		private final int index;
+		private final DataInputStream in;
+		private int remaining;
+
+		private String name;
+		private String weight;
+
+		public Run(final int index, final File file) throws IOException {
+			this.index = index;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			GraphAggregator.this.open.add(this);
+			this.remaining = this.in.readInt();
+		}
+
+		/**
+		 * Read the next neighbor of the run, closing it when exhausted.
+		 * 
+		 * @return false if the run has no more neighbors
+		 */
+		public boolean advance() throws IOException {
+			if (this.remaining == 0) {
+				this.close();
+				GraphAggregator.this.open.remove(this);
+				return false;
+			}
+
+			this.name = SpillCodec.STRING.read(this.in);
+			this.weight = this.in.readBoolean() ? SpillCodec.STRING.read(this.in) : null;
+			this.remaining--;
+			return true;
+		}
+
+		/**
+		 * Close the run, ignoring any error.
+		 */
+		public void close() {
+			try {
+				this.in.close();
+			} catch (final IOException e) {
+				// only being read from
+			}
+		}
+
+		@Override
+		public int compareTo(final Run o) {
+			final int c = this.name.compareTo(o.name);
+			return c != 0 ? c : this.index - o.index;
+		}
+	}
+
+	/**
+	 * A streaming k-way merge over sorted runs.  A neighbor found in more
+	 * than one run keeps the weight from the latest run.
+	 */
+	private class MergeIterator implements Iterator<Entry<String, String>> {
+		private final PriorityQueue<Run> queue;
+
+		public MergeIterator(final List<File> files) throws IOException {
+			this.queue = new PriorityQueue<Run>(Math.max(1, files.size()));
+
+			for (int i = 0; i < files.size(); i++) {
+				final Run r = new Run(i, files.get(i));
+				if (r.advance())
+					this.queue.add(r);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.queue.isEmpty();
+		}
+
+		@Override
+		public Entry<String, String> next() {
+			if (this.queue.isEmpty())
+				throw new NoSuchElementException();
+
+			try {
+				Run r = this.queue.poll();
+				final String name = r.name;
+				String weight = r.weight;
+				if (r.advance())
+					this.queue.add(r);
+
+				// later runs sort after earlier ones, so the last weight wins
+				while (!this.queue.isEmpty() && this.queue.peek().name.equals(name)) {
+					r = this.queue.poll();
+					weight = r.weight;
+					if (r.advance())
+						this.queue.add(r);
+				}
+
+				return new SimpleImmutableEntry<String, String>(name, weight);
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
 }
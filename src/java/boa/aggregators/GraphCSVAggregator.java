@@ -16,9 +16,8 @@
  */
 package boa.aggregators;
 
-import java.util.*;
 import java.io.IOException;
-
+import java.util.Map.Entry;
 
 /**
  * A Boa aggregator to output graph data in CSV format as an adjacency list.
@@ -29,18 +28,16 @@ import java.io.IOException;
 public class GraphCSVAggregator extends GraphAggregator {
 	/** {@inheritDoc} */
 	@Override
-	public void finish() throws IOException, InterruptedException {
-		this.collect(toString(this.neighbors));
-	}
+	protected void write() throws IOException, InterruptedException {
+		final StringBuilder sb = new StringBuilder();
 
-	private String toString(final Set<String> set) {
-		String str = "";
-		for (final String s : set) {
-			if (!str.isEmpty())
-				str += ",";
-			str += s;
+		for (final Entry<String, String> e : this.getNeighbors()) {
+			if (sb.length() > 0)
+				sb.append(',');
+			sb.append('"').append(e.getKey()).append('"');
 		}
-		return str;
+
+		this.collect(sb.toString());
 	}
 
 	/** {@inheritDoc} */
@@ -17,6 +17,7 @@
 package boa.aggregators;
 
 import java.io.IOException;
+import java.util.Map.Entry;
 
 
 /**
@@ -28,9 +29,9 @@ import java.io.IOException;
 public class GraphvizAggregator extends GraphAggregator {
 	/** {@inheritDoc} */
 	@Override
-	public void finish() throws IOException, InterruptedException {
-		for (final String s : this.neighbors)
-			this.collect(s, weights.get(s));
+	protected void write() throws IOException, InterruptedException {
+		for (final Entry<String, String> e : this.getNeighbors())
+			this.collect(quote(e.getKey()), e.getValue() == null ? null : quote(e.getValue()));
 	}
 
 	/** {@inheritDoc} */
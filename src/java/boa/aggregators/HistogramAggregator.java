@@ -16,21 +16,25 @@
  */
 package boa.aggregators;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.List;
-
-import boa.io.EmitKey;
 
 /**
  * A Boa aggregator to calculate a histogram for the values in a dataset.
  * 
+ * Values are bucketed as they arrive into a fixed array of counts, which is
+ * the partial state shipped from the combiner and merged by element-wise
+ * addition.
+ * 
  * @author anthonyu
  */
-abstract class HistogramAggregator extends Aggregator {
+abstract class HistogramAggregator extends MonoidAggregator<long[]> {
 	private final long min;
 	private final long max;
 	private final int buckets;
+	private final double step;
 
 	/**
 	 * Construct a HistogramAggregator.
@@ -50,6 +54,8 @@ abstract class HistogramAggregator extends Aggregator {
 		this.min = min;
 		this.max = max;
 		this.buckets = (int) buckets;
+		// calculate the step or the space between the buckets
+		this.step = (max - min) / (double) buckets;
 	}
 
 	public long count(final String metadata) {
@@ -61,43 +67,70 @@ abstract class HistogramAggregator extends Aggregator {
 			return Long.parseLong(metadata);
 	}
 
+	/**
+	 * Parse an emitted value.
+	 * 
+	 * @param data
+	 *            A {@link String} containing the value
+	 * 
+	 * @return A double containing the value to place in a bucket
+	 */
+	protected abstract double parse(final String data) throws NumberFormatException;
+
 	/** {@inheritDoc} */
 	@Override
-	public void start(final EmitKey key) {
-		super.start(key);
+	public long[] create() {
+		return new long[this.buckets];
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public abstract void aggregate(final String data, final String metadata) throws NumberFormatException, IOException, InterruptedException;
+	public long[] add(final long[] state, final String data, final String metadata) throws NumberFormatException {
+		final double value = this.parse(data);
+
+		// values outside of [min, max] are not considered
+		if (value < this.min || value > this.max)
+			return state;
+
+		// the maximum value belongs to the last bucket
+		final int bucket = (int) ((value - this.min) / this.step);
+		state[Math.min(bucket, this.buckets - 1)] += this.count(metadata);
+
+		return state;
+	}
 
 	/** {@inheritDoc} */
 	@Override
-	public void finish() throws IOException, InterruptedException {
-		if (this.isCombining()) {
-			// if we're in the combiner, just output the compressed data
-			for (final Pair<Number, Long> p : this.getTuples())
-				this.collect(p.getFirst().toString(), p.getSecond().toString());
-		} else {
-			// otherwise, set up the histogram
-			int[] buckets = new int[this.buckets];
-			// calculate the step or the space between the buckets
-			double step = (this.max - this.min) / (double) this.buckets;
-
-			// for each of the compressed data points, increment the bucket it
-			// belongs to by its cardinality
-			for (final Pair<Number, Long> p : this.getTuples())
-				buckets[(int) ((p.getFirst().longValue() - this.min) / step)] += p.getSecond();
-
-			this.collect(Arrays.toString(buckets));
-		}
+	public long[] merge(final long[] a, final long[] b) {
+		if (a.length != b.length)
+			throw new IllegalArgumentException("expected " + a.length + " buckets but found " + b.length);
+
+		for (int i = 0; i < a.length; i++)
+			a[i] += b[i];
+
+		return a;
 	}
 
-	/**
-	 * Return the data points from the dataset in pairs.
-	 * 
-	 * @return A {@link List} of {@link Pair}&lt{@link Number}, {@link Long}&gt;
-	 *         containing the data points from the dataset
-	 */
-	public abstract List<Pair<Number, Long>> getTuples();
+	/** {@inheritDoc} */
+	@Override
+	public void serialize(final long[] state, final DataOutput out) throws IOException {
+		out.writeInt(state.length);
+		for (final long l : state)
+			out.writeLong(l);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public long[] deserialize(final DataInput in) throws IOException {
+		final long[] state = new long[in.readInt()];
+		for (int i = 0; i < state.length; i++)
+			state[i] = in.readLong();
+		return state;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void complete(final long[] state) throws IOException, InterruptedException {
+		this.collect(Arrays.toString(state));
+	}
 }
@@ -16,13 +16,6 @@
  */
 package boa.aggregators;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map.Entry;
-
-import boa.io.EmitKey;
-
 /**
  * A Boa aggregator to calculate a histogram for the values in a dataset.
  * 
@@ -30,8 +23,6 @@ import boa.io.EmitKey;
  */
 @AggregatorSpec(name = "histogram", type = "int", formalParameters = { "int", "int", "int" }, canCombine = true)
 public class IntHistogramAggregator extends HistogramAggregator {
-	private SortedCountingSet<Long> list;
-
 	/**
 	 * Construct an IntHistogramAggregator.
 	 * 
@@ -52,39 +43,7 @@ public class IntHistogramAggregator extends HistogramAggregator {
 
 	/** {@inheritDoc} */
 	@Override
-	public void start(final EmitKey key) {
-		super.start(key);
-
-		this.list = new SortedCountingSet<Long>();
-	}
-
-	/** {@inheritDoc} */
-	@Override
-	public void aggregate(final String data, final String metadata) throws NumberFormatException, IOException, InterruptedException {
-		this.aggregate(Double.valueOf(data).longValue(), metadata);
-	}
-
-	/** {@inheritDoc} */
-	@Override
-	public void aggregate(final long data, final String metadata) throws IOException {
-		this.list.add(Long.valueOf(data), super.count(metadata));
-	}
-
-	/** {@inheritDoc} */
-	@Override
-	public void aggregate(final double data, final String metadata) throws IOException {
-		this.aggregate(Double.valueOf(data).longValue(), metadata);
-	}
-
-	/** {@inheritDoc} */
-	@Override
-	public List<Pair<Number, Long>> getTuples() {
-		final List<Pair<Number, Long>> list = new ArrayList<Pair<Number, Long>>();
-
-		// convert the map entries into a list of Pair
-		for (final Entry<Long, Long> e : this.list.getEntries())
-			list.add(new Pair<Number, Long>(e.getKey(), e.getValue()));
-
-		return list;
+	protected double parse(final String data) throws NumberFormatException {
+		return Double.valueOf(data).longValue();
 	}
 }
@@ -17,8 +17,7 @@
 package boa.aggregators;
 
 import java.io.IOException;
-import java.util.TreeMap;
-import java.util.SortedMap;
+import java.util.Map.Entry;
 
 import boa.io.EmitKey;
 
@@ -29,7 +28,7 @@ import boa.io.EmitKey;
  */
 @AggregatorSpec(name = "median", type = "int")
 public class MedianAggregator extends Aggregator {
-	private SortedMap<Long, Long> map;
+	private SortedCountingSet<Long> map;
 	private long count;
 
 	/** {@inheritDoc} */
@@ -37,7 +36,10 @@ public class MedianAggregator extends Aggregator {
 	public void start(final EmitKey key) {
 		super.start(key);
 
-		map = new TreeMap<Long, Long>();
+		if (map == null)
+			map = new SortedCountingSet<Long>(SpillCodec.LONG);
+		else
+			map.clear();
 		count = 0;
 	}
 
@@ -49,8 +51,8 @@ public class MedianAggregator extends Aggregator {
 			if (idx > 0) {
 				final long item = Long.valueOf(s.substring(0, idx));
 				final long count = Long.valueOf(s.substring(idx + 1));
-				for (int i = 0; i < count; i++)
-					aggregate(item, metadata);
+				map.add(item, count);
+				this.count += count;
 			} else
 				aggregate(Long.valueOf(s), metadata);
 		}
@@ -58,28 +60,32 @@ public class MedianAggregator extends Aggregator {
 
 	/** {@inheritDoc} */
 	@Override
-	public void aggregate(final long data, final String metadata) {
-		if (map.containsKey(data))
-			map.put(data, map.get(data) + 1L);
-		else
-			map.put(data, 1L);
+	public void aggregate(final long data, final String metadata) throws IOException {
+		map.add(data);
 		count++;
 	}
 
 	/** {@inheritDoc} */
 	@Override
-	public void aggregate(final double data, final String metadata) {
+	public void aggregate(final double data, final String metadata) throws IOException {
 		this.aggregate(Double.valueOf(data).longValue(), metadata);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void finish() throws IOException, InterruptedException {
+		try {
+			this.output();
+		} finally {
+			// the median is found without reading every run to the end
+			map.clear();
+		}
+	}
+
+	private void output() throws IOException, InterruptedException {
 		if (this.isCombining()) {
-			String s = "";
-			for (final Long key : map.keySet())
-				s += key + ":" + map.get(key) + ";";
-			this.collect(s, null);
+			for (final Entry<Long, Long> e : map.getEntries())
+				this.collect(e.getKey() + ":" + e.getValue(), null);
 			return;
 		}
 
@@ -90,8 +96,9 @@ public class MedianAggregator extends Aggregator {
 		long prevPos = 0;
 		long prevKey = 0;
 
-		for (final Long key : map.keySet()) {
-			curPos = prevPos + map.get(key);
+		for (final Entry<Long, Long> e : map.getEntries()) {
+			final long key = e.getKey();
+			curPos = prevPos + e.getValue();
 
 			if (prevPos <= medianPos && medianPos < curPos) {
 				if (curPos % 2 == 0 && prevPos == medianPos)
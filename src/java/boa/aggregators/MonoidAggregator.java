@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * The base class for Boa aggregators with an explicit, typed partial state.
+ * 
+ * A partial state forms a monoid: {@link #create()} is the identity and
+ * {@link #merge(Object, Object)} is associative.  The combiner folds values
+ * into a state and emits it serialized, and the reducer merges the serialized
+ * states (and any uncombined values) before calling {@link #complete(Object)}.
+ * Subclasses only implement the state operations and get combining for free.
+ * 
+ * @param <S> The type of the partial state
+ */
+public abstract class MonoidAggregator<S> extends Aggregator {
+	private S state;
+
+	/**
+	 * Construct a MonoidAggregator.
+	 */
+	public MonoidAggregator() {
+		super();
+	}
+
+	/**
+	 * Construct a MonoidAggregator.
+	 * 
+	 * @param arg
+	 *            A long (Boa int) containing the argument to the table
+	 */
+	public MonoidAggregator(final long arg) {
+		super(arg);
+	}
+
+	/**
+	 * Create a new, empty partial state.
+	 * 
+	 * @return the identity state
+	 */
+	public abstract S create();
+
+	/**
+	 * Add a single emitted value to a partial state.
+	 * 
+	 * @param state the state to add to, which may be modified
+	 * @param data the value
+	 * @param metadata the weight of the value, or null
+	 * @return the new state
+	 */
+	public abstract S add(final S state, final String data, final String metadata) throws IOException, InterruptedException, FinishedException;
+
+	/**
+	 * Merge two partial states.
+	 * 
+	 * @param a the first state, which may be modified
+	 * @param b the second state
+	 * @return the merged state
+	 */
+	public abstract S merge(final S a, final S b);
+
+	/**
+	 * Write a partial state.
+	 * 
+	 * @param state the state
+	 * @param out the output to write to
+	 */
+	public abstract void serialize(final S state, final DataOutput out) throws IOException;
+
+	/**
+	 * Read a partial state written by {@link #serialize(Object, DataOutput)}.
+	 * 
+	 * @param in the input to read from
+	 * @return the state
+	 */
+	public abstract S deserialize(final DataInput in) throws IOException;
+
+	/**
+	 * Collect the final output for a complete state.
+	 * 
+	 * @param state the state
+	 */
+	public abstract void complete(final S state) throws IOException, InterruptedException;
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final EmitKey key) {
+		super.start(key);
+
+		this.state = this.create();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final String data, final String metadata) throws IOException, InterruptedException, FinishedException {
+		this.state = this.add(this.state, data, metadata);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void aggregate(final EmitValue value) throws IOException, InterruptedException, FinishedException {
+		if (value.isPartial())
+			this.state = this.merge(this.state, this.deserialize(new DataInputStream(new ByteArrayInputStream(value.getState()))));
+		else
+			super.aggregate(value);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void finish() throws IOException, InterruptedException {
+		// if we're in the combiner, output the serialized state
+		if (this.isCombining()) {
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final DataOutputStream out = new DataOutputStream(bytes);
+			this.serialize(this.state, out);
+			out.flush();
+
+			this.getContext().write(this.getKey(), new EmitValue(bytes.toByteArray()));
+		} else {
+			this.complete(this.state);
+		}
+	}
+}
@@ -18,7 +18,7 @@ package boa.aggregators;
 
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Map.Entry;
 
 import boa.io.EmitKey;
 
@@ -78,8 +78,8 @@ abstract class QuantileAggregator extends Aggregator {
 	public void finish() throws IOException, InterruptedException {
 		// if we're in the combiner, just output the compressed data
 		if (this.isCombining()) {
-			for (final Pair<String, Long> e : this.getTuples())
-				this.collect(e.getFirst(), e.getSecond().toString());
+			for (final Entry<?, Long> e : this.getEntries())
+				this.collect(e.getKey().toString(), e.getValue().toString());
 		} else {
 			// otherwise, set up the quantiles
 			final int n = (int) (this.getArg() - 1);
@@ -88,8 +88,8 @@ abstract class QuantileAggregator extends Aggregator {
 
 			long last = 0;
 			long q = 0;
-			for (final Pair<String, Long> e : this.getTuples()) {
-				q += e.getSecond();
+			for (final Entry<?, Long> e : this.getEntries()) {
+				q += e.getValue();
 
 				final int curr = (int) (q / step);
 
@@ -98,7 +98,7 @@ abstract class QuantileAggregator extends Aggregator {
 
 				last = curr;
 
-				quantiles[curr - 1] = e.getFirst();
+				quantiles[curr - 1] = e.getKey().toString();
 			}
 
 			this.collect(Arrays.toString(quantiles));
@@ -106,10 +106,10 @@ abstract class QuantileAggregator extends Aggregator {
 	}
 
 	/**
-	 * Return the data points from the dataset in pairs.
+	 * Return the data points from the dataset with their counts, in sorted order.
 	 * 
-	 * @return A {@link List} of {@link Pair}&lt{@link Number}, {@link Long}&gt;
+	 * @return An {@link Iterable} of Map.Entry&lt;?, {@link Long}&gt;
 	 *         containing the data points from the dataset
 	 */
-	public abstract List<Pair<String, Long>> getTuples();
+	protected abstract Iterable<? extends Entry<?, Long>> getEntries() throws IOException;
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.apache.hadoop.io.Text;
+
+/**
+ * A Boa aggregator to output a uniform random sample of at most <i>n</i> of
+ * the values in a dataset.  If the values are weighted, each value's chance of
+ * being sampled is proportional to its weight.
+ * 
+ * Uses the A-Res weighted reservoir algorithm of Efraimidis and Spirakis: each
+ * value is given the random key <code>u^(1/w)</code> and the <i>n</i> values
+ * with the largest keys are kept.  Reservoirs merge by keeping the largest
+ * keys of their union, so the combiner and reducer never hold more than
+ * <i>n</i> values per key.
+ */
+@AggregatorSpec(name = "sample", formalParameters = { "int" }, weightType = "any", canCombine = true)
+public class SampleAggregator extends MonoidAggregator<PriorityQueue<WeightedString>> {
+	private static final Comparator<WeightedString> BY_KEY = new Comparator<WeightedString>() {
+		@Override
+		public int compare(final WeightedString a, final WeightedString b) {
+			return Double.compare(a.getWeight(), b.getWeight());
+		}
+	};
+
+	private final int max;
+	private final Random random = new Random();
+
+	/**
+	 * Construct a SampleAggregator.
+	 * 
+	 * @param n
+	 *            A long representing the number of values to sample
+	 */
+	public SampleAggregator(final long n) {
+		super(n);
+
+		this.max = (int) n;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public PriorityQueue<WeightedString> create() {
+		return new PriorityQueue<WeightedString>(Math.max(1, this.max), BY_KEY);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public PriorityQueue<WeightedString> add(final PriorityQueue<WeightedString> state, final String data, final String metadata) {
+		final double weight = metadata == null ? 1.0 : Double.parseDouble(metadata);
+
+		// values without a positive weight can never be sampled
+		if (weight <= 0)
+			return state;
+
+		this.offer(state, new WeightedString(data, Math.pow(this.random.nextDouble(), 1.0 / weight)));
+		return state;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public PriorityQueue<WeightedString> merge(final PriorityQueue<WeightedString> a, final PriorityQueue<WeightedString> b) {
+		for (final WeightedString s : b)
+			this.offer(a, s);
+		return a;
+	}
+
+	/**
+	 * Add a keyed value to the reservoir, evicting the smallest key if full.
+	 */
+	private void offer(final PriorityQueue<WeightedString> state, final WeightedString s) {
+		if (state.size() < this.max)
+			state.add(s);
+		else if (this.max > 0 && state.peek().getWeight() < s.getWeight()) {
+			state.poll();
+			state.add(s);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void serialize(final PriorityQueue<WeightedString> state, final DataOutput out) throws IOException {
+		out.writeInt(state.size());
+		for (final WeightedString s : state) {
+			out.writeDouble(s.getWeight());
+			Text.writeString(out, s.getString());
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public PriorityQueue<WeightedString> deserialize(final DataInput in) throws IOException {
+		final PriorityQueue<WeightedString> state = this.create();
+
+		final int size = in.readInt();
+		for (int i = 0; i < size; i++) {
+			final double key = in.readDouble();
+			state.add(new WeightedString(Text.readString(in), key));
+		}
+
+		return state;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void complete(final PriorityQueue<WeightedString> state) throws IOException, InterruptedException {
+		for (final WeightedString s : state)
+			this.collect(s.getString());
+	}
+}
@@ -17,7 +17,7 @@
 package boa.aggregators;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.Map.Entry;
 
 import boa.io.EmitKey;
 
@@ -28,7 +28,7 @@ import boa.io.EmitKey;
  */
 @AggregatorSpec(name = "set", canCombine = true)
 public class SetAggregator extends Aggregator {
-	private HashSet<String> set;
+	private SortedCountingSet<String> set;
 	private final long max;
 
 	/**
@@ -59,23 +59,37 @@ public class SetAggregator extends Aggregator {
 	public void start(final EmitKey key) {
 		super.start(key);
 
-		// the set of data to be collected
-		this.set = new HashSet<String>();
+		// the set of data to be collected, dropping any runs left by the last key
+		if (this.set == null)
+			this.set = new SortedCountingSet<String>(SpillCodec.STRING);
+		else
+			this.set.clear();
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void aggregate(final String data, final String metadata) throws IOException, InterruptedException, FinishedException {
-		if (this.set.size() >= this.max)
+		// once spilled the size is only an upper bound, so the set is cut while merging
+		if (!this.set.hasSpilled() && this.set.size() >= this.max) {
+			this.set.clear();
 			throw new FinishedException();
+		}
 
-		this.set.add(data);
+		this.set.add(data, 1);
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public void finish() throws IOException, InterruptedException {
-		for (final String s : this.set)
-			this.collect(s);
+		try {
+			long n = 0;
+			for (final Entry<String, Long> e : this.set.getEntries()) {
+				if (n++ >= this.max)
+					break;
+				this.collect(e.getKey());
+			}
+		} finally {
+			this.set.clear();
+		}
 	}
 }
@@ -16,29 +16,57 @@
  */
 package boa.aggregators;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
 
 /**
  * A sorted counting set. Like a {@link SortedSet}, but also keeps track of how many
  * times a given member has been added.
  * 
+ * When the in-memory entries exceed the budget given by {@link SpillSettings},
+ * they are written to local disk as a sorted run.  Reading the entries back
+ * performs a streaming k-way merge of all runs, so the full set never has to
+ * fit in memory.
+ * 
  * @author anthonyu
  * 
  * @param <T> The type of value that will be inserted into the set
  */
-class SortedCountingSet<T> implements Iterable<T> {
+class SortedCountingSet<T extends Comparable<T>> implements Iterable<T> {
+	private final SpillCodec<T> codec;
 	private final TreeMap<T, Long> map;
+	private final List<File> runs;
+	private final List<File> files;
+	private final List<Run> open;
+
+	private long bytes;
+	private long spilled;
 
 	/**
 	 * Construct a {@link SortedCountingSet}.
+	 * 
+	 * @param codec The {@link SpillCodec} used to spill values to disk
 	 */
-	public SortedCountingSet() {
+	public SortedCountingSet(final SpillCodec<T> codec) {
+		this.codec = codec;
 		this.map = new TreeMap<T, Long>();
+		this.runs = new ArrayList<File>();
+		this.files = new ArrayList<File>();
+		this.open = new ArrayList<Run>();
 	}
 
 	/**
@@ -46,7 +74,7 @@ class SortedCountingSet<T> implements Iterable<T> {
 	 * 
 	 * @param t The value to be added
 	 */
-	public void add(final T t) {
+	public void add(final T t) throws IOException {
 		this.add(t, 1);
 	}
 
@@ -56,38 +84,109 @@ class SortedCountingSet<T> implements Iterable<T> {
 	 * @param t The value to be added
 	 * @param n The cardinality of the value
 	 */
-	public void add(final T t, final long n) {
+	public void add(final T t, final long n) throws IOException {
+		final Long count = this.map.get(t);
+
 		// if the map already has this key, add n to the current cardiality and reinsert
-		if (this.map.containsKey(t))
-			this.map.put(t, this.map.get(t) + n);
-		else
-			this.map.put(t, n);
+		if (count != null) {
+			this.map.put(t, count + n);
+			return;
+		}
+
+		this.map.put(t, n);
+
+		this.bytes += this.codec.size(t);
+		if (this.bytes > SpillSettings.getBudget())
+			this.spill();
+	}
+
+	/**
+	 * An upper bound on the number of distinct values in the set.  This is
+	 * exact unless the set has spilled, as the same value may appear in
+	 * more than one run.
+	 * 
+	 * @return the number of distinct values
+	 */
+	public long size() {
+		return this.map.size() + this.spilled;
+	}
+
+	/**
+	 * Determines if any values have been spilled to disk since the set was
+	 * last read or cleared, in which case {@link #size()} is not exact.
+	 * 
+	 * @return true if the set has spilled
+	 */
+	public boolean hasSpilled() {
+		return this.spilled > 0;
+	}
+
+	/**
+	 * Remove every value from the set, deleting any runs on disk, including
+	 * those of a merge that was not read to the end.
+	 */
+	public void clear() {
+		for (final Run r : this.open)
+			r.close();
+		for (final File f : this.files)
+			f.delete();
+
+		this.open.clear();
+		this.files.clear();
+		this.runs.clear();
+		this.map.clear();
+		this.bytes = 0;
+		this.spilled = 0;
+	}
+
+	/**
+	 * Write the in-memory entries to disk as a new sorted run.
+	 */
+	private void spill() throws IOException {
+		final File f = SpillSettings.createRunFile();
+
+		final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f)));
+		try {
+			out.writeLong(this.map.size());
+			for (final Entry<T, Long> e : this.map.entrySet()) {
+				this.codec.write(out, e.getKey());
+				out.writeLong(e.getValue());
+			}
+		} finally {
+			out.close();
+		}
+
+		this.runs.add(f);
+		this.files.add(f);
+		this.spilled += this.map.size();
+		this.map.clear();
+		this.bytes = 0;
 	}
 
 	/** {@inheritDoc} */
 	@Override
 	public Iterator<T> iterator() {
+		final Iterator<Entry<T, Long>> entries;
+		try {
+			entries = this.getEntries().iterator();
+		} catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
+
 		return new Iterator<T>() {
-			private Entry<T, Long> lastEntry = SortedCountingSet.this.map.lastEntry();
-			private Entry<T, Long> thisEntry = SortedCountingSet.this.map.firstEntry();
+			private Entry<T, Long> thisEntry = null;
 
 			private long cursor = 0;
 
 			@Override
 			public boolean hasNext() {
-				if (this.lastEntry == null)
-					return false;
-
-				if (!this.thisEntry.getKey().equals(this.lastEntry.getKey()))
-					return true;
-
-				return this.cursor != this.lastEntry.getValue().longValue();
+				return (this.thisEntry != null && this.cursor < this.thisEntry.getValue().longValue()) || entries.hasNext();
 			}
 
 			@Override
 			public T next() {
-				if (this.cursor == this.thisEntry.getValue().longValue()) {
-					this.thisEntry = SortedCountingSet.this.map.higherEntry(this.thisEntry.getKey());
+				if (this.thisEntry == null || this.cursor == this.thisEntry.getValue().longValue()) {
+					this.thisEntry = entries.next();
 					this.cursor = 0;
 				}
 
@@ -118,11 +217,142 @@ class SortedCountingSet<T> implements Iterable<T> {
 	}
 
 	/**
-	 * Get the entries in this set.
+	 * Get the entries in this set, in sorted order.  If the set has spilled,
+	 * the entries are merged from disk as they are iterated and the set may
+	 * only be iterated once.  Runs are deleted once read to the end, or by
+	 * {@link #clear()}.
 	 * 
-	 * @return A {@link Set} of Map.Entry containing the entries in this set
+	 * @return An {@link Iterable} of Map.Entry containing the entries in this set
 	 */
-	public Set<java.util.Map.Entry<T, Long>> getEntries() {
-		return this.map.entrySet();
+	public Iterable<Entry<T, Long>> getEntries() throws IOException {
+		if (this.runs.isEmpty())
+			return this.map.entrySet();
+
+		// write out the remainder so everything is merged from disk
+		if (!this.map.isEmpty())
+			this.spill();
+
+		final List<File> files = new ArrayList<File>(this.runs);
+		this.runs.clear();
+		this.spilled = 0;
+
+		return new Iterable<Entry<T, Long>>() {
+			@Override
+			public Iterator<Entry<T, Long>> iterator() {
+				try {
+					return new MergeIterator(files);
+				} catch (final IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * A single sorted run being read back from disk.
+	 */
+	private class Run implements Comparable<Run> {
+		private final File file;
+		private final DataInputStream in;
+		private long remaining;
+
+		private T key;
+		private long count;
+
+		public Run(final File file) throws IOException {
+			this.file = file;
+			this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			SortedCountingSet.this.open.add(this);
+			this.remaining = this.in.readLong();
+		}
+
+		/**
+		 * Close the run, ignoring any error.
+		 */
+		public void close() {
+			try {
+				this.in.close();
+			} catch (final IOException e) {
+				// only being read from
+			}
+		}
+
+		/**
+		 * Read the next entry of the run, closing and deleting it when exhausted.
+		 * 
+		 * @return false if the run has no more entries
+		 */
+		public boolean advance() throws IOException {
+			if (this.remaining == 0) {
+				this.close();
+				this.file.delete();
+				SortedCountingSet.this.open.remove(this);
+				SortedCountingSet.this.files.remove(this.file);
+				return false;
+			}
+
+			this.key = SortedCountingSet.this.codec.read(this.in);
+			this.count = this.in.readLong();
+			this.remaining--;
+			return true;
+		}
+
+		@Override
+		public int compareTo(final Run o) {
+			return this.key.compareTo(o.key);
+		}
+	}
+
+	/**
+	 * A streaming k-way merge over sorted runs, summing the counts of equal
+	 * values found in different runs.
+	 */
+	private class MergeIterator implements Iterator<Entry<T, Long>> {
+		private final PriorityQueue<Run> queue;
+
+		public MergeIterator(final List<File> files) throws IOException {
+			this.queue = new PriorityQueue<Run>(Math.max(1, files.size()));
+
+			for (final File f : files) {
+				final Run r = new Run(f);
+				if (r.advance())
+					this.queue.add(r);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !this.queue.isEmpty();
+		}
+
+		@Override
+		public Entry<T, Long> next() {
+			if (this.queue.isEmpty())
+				throw new NoSuchElementException();
+
+			try {
+				Run r = this.queue.poll();
+				final T key = r.key;
+				long count = r.count;
+				if (r.advance())
+					this.queue.add(r);
+
+				while (!this.queue.isEmpty() && this.queue.peek().key.compareTo(key) == 0) {
+					r = this.queue.poll();
+					count += r.count;
+					if (r.advance())
+						this.queue.add(r);
+				}
+
+				return new SimpleImmutableEntry<T, Long>(key, count);
+			} catch (final IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
 	}
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Reads and writes values of a spillable aggregator state to local disk and
+ * estimates how much heap they occupy while in memory.
+ * 
+ * @param <T> The type of value being spilled
+ */
+interface SpillCodec<T> {
+	/**
+	 * Write a value to a spill file.
+	 * 
+	 * @param out the output to write to
+	 * @param t the value to write
+	 */
+	void write(final DataOutput out, final T t) throws IOException;
+
+	/**
+	 * Read a value back from a spill file.
+	 * 
+	 * @param in the input to read from
+	 * @return the value read
+	 */
+	T read(final DataInput in) throws IOException;
+
+	/**
+	 * Estimate the number of heap bytes used by one in-memory entry holding
+	 * the value.
+	 * 
+	 * @param t the value
+	 * @return the estimated size, in bytes
+	 */
+	long size(final T t);
+
+	SpillCodec<Long> LONG = new SpillCodec<Long>() {
+		@Override
+		public void write(final DataOutput out, final Long t) throws IOException {
+			out.writeLong(t);
+		}
+
+		@Override
+		public Long read(final DataInput in) throws IOException {
+			return in.readLong();
+		}
+
+		@Override
+		public long size(final Long t) {
+			// tree node plus boxed key and count
+			return 80;
+		}
+	};
+
+	SpillCodec<Double> DOUBLE = new SpillCodec<Double>() {
+		@Override
+		public void write(final DataOutput out, final Double t) throws IOException {
+			out.writeDouble(t);
+		}
+
+		@Override
+		public Double read(final DataInput in) throws IOException {
+			return in.readDouble();
+		}
+
+		@Override
+		public long size(final Double t) {
+			// tree node plus boxed key and count
+			return 80;
+		}
+	};
+
+	SpillCodec<String> STRING = new SpillCodec<String>() {
+		@Override
+		public void write(final DataOutput out, final String t) throws IOException {
+			final byte[] bytes = t.getBytes("UTF-8");
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+
+		@Override
+		public String read(final DataInput in) throws IOException {
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			return new String(bytes, "UTF-8");
+		}
+
+		@Override
+		public long size(final String t) {
+			// tree node, boxed count, string header and its characters
+			return 96 + 2L * t.length();
+		}
+	};
+}
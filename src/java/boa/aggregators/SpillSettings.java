@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.aggregators;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Task-wide settings for aggregators that spill their state to local disk.
+ * 
+ * Aggregator state is kept in memory until it exceeds the memory budget, at
+ * which point it is written out as a sorted run and merged back in
+ * {@link Aggregator#finish()}.
+ */
+public final class SpillSettings {
+	/** The default memory budget, in megabytes. */
+	public static final int DEFAULT_MEMORY_MB = 128;
+
+	private static long budget = DEFAULT_MEMORY_MB * 1024L * 1024L;
+	private static File dir = new File(System.getProperty("java.io.tmpdir"));
+
+	private SpillSettings() {
+	}
+
+	/**
+	 * Read the spill settings for this task from its configuration.
+	 * 
+	 * <ul>
+	 * <li><code>boa.runtime.spill.memory</code>: the memory budget in megabytes (default 128)</li>
+	 * <li><code>boa.runtime.spill.dir</code>: the local directory to spill to (default java.io.tmpdir)</li>
+	 * </ul>
+	 * 
+	 * @param conf the task's {@link Configuration}
+	 */
+	public static void configure(final Configuration conf) {
+		budget = conf.getInt("boa.runtime.spill.memory", DEFAULT_MEMORY_MB) * 1024L * 1024L;
+		dir = new File(conf.get("boa.runtime.spill.dir", System.getProperty("java.io.tmpdir")));
+	}
+
+	/**
+	 * @return the number of bytes of aggregator state that may be held in memory before spilling
+	 */
+	public static long getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Create a new, empty file to hold a spilled run.  The caller deletes it
+	 * once it is merged or its aggregator moves on to the next key.
+	 * 
+	 * @return the new file
+	 */
+	static File createRunFile() throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+
+		return File.createTempFile("boa-spill-", ".run", dir);
+	}
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.collections;
+
+/**
+ * The base class for the open addressing hash tables keyed by
+ * <code>long</code>, used in generated code for Boa maps and sets with
+ * <code>int</code> or <code>time</code> elements to avoid boxing.
+ * 
+ * Collisions use linear probing, and removal shifts the following entries
+ * back instead of leaving tombstones.  Subclasses store the values (if any)
+ * in parallel arrays, kept in step through the <code>*Value</code> hooks.
+ */
+public abstract class LongHashTable {
+	private static final int MIN_CAPACITY = 16;
+
+	protected long[] keys;
+	protected boolean[] used;
+	protected int size;
+	private int mask;
+
+	protected LongHashTable() {
+		allocate(MIN_CAPACITY);
+		allocateValues(MIN_CAPACITY);
+	}
+
+	private void allocate(final int capacity) {
+		keys = new long[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Replaces the value storage with storage for the given capacity.
+	 * 
+	 * @return the previous storage
+	 */
+	protected abstract Object allocateValues(final int capacity);
+
+	/**
+	 * Copies the value in slot <code>from</code> of the previous storage
+	 * into slot <code>to</code> of the current storage, during a resize.
+	 */
+	protected abstract void copyValue(final Object old, final int from, final int to);
+
+	/**
+	 * Moves the value in slot <code>from</code> to slot <code>to</code>
+	 * of the current storage.
+	 */
+	protected abstract void moveValue(final int from, final int to);
+
+	/**
+	 * Releases the value in a slot that is no longer used.
+	 */
+	protected abstract void clearValue(final int slot);
+
+	private static int hash(final long key) {
+		final long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Finds the slot holding a key.
+	 * 
+	 * @return the slot, or -1 if the key is not in the table
+	 */
+	protected final int find(final long key) {
+		for (int i = hash(key) & mask; used[i]; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Finds the slot holding a key, adding the key if it is not in the
+	 * table.  The table may be resized, so slots found earlier are invalid.
+	 * 
+	 * @return the slot, negated minus one if the key was added
+	 */
+	protected final int insert(final long key) {
+		int i = hash(key) & mask;
+		for (; used[i]; i = (i + 1) & mask)
+			if (keys[i] == key)
+				return i;
+
+		// keep the load factor at or below 1/2
+		if (2 * (size + 1) > keys.length) {
+			resize(2 * keys.length);
+			return insert(key);
+		}
+
+		keys[i] = key;
+		used[i] = true;
+		size++;
+		return -i - 1;
+	}
+
+	private void resize(final int capacity) {
+		final long[] oldKeys = keys;
+		final boolean[] oldUsed = used;
+
+		allocate(capacity);
+		final Object oldValues = allocateValues(capacity);
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (!oldUsed[i])
+				continue;
+
+			int j = hash(oldKeys[i]) & mask;
+			while (used[j])
+				j = (j + 1) & mask;
+
+			keys[j] = oldKeys[i];
+			used[j] = true;
+			copyValue(oldValues, i, j);
+		}
+	}
+
+	/**
+	 * Removes the entry in a slot, shifting back any following entries
+	 * that probed past it.
+	 */
+	protected final void delete(int slot) {
+		size--;
+
+		for (int i = (slot + 1) & mask; used[i]; i = (i + 1) & mask) {
+			final int home = hash(keys[i]) & mask;
+			// move the entry back if its home slot is not between the gap and it
+			if (slot <= i ? (home <= slot || home > i) : (home <= slot && home > i)) {
+				keys[slot] = keys[i];
+				moveValue(i, slot);
+				slot = i;
+			}
+		}
+
+		used[slot] = false;
+		clearValue(slot);
+	}
+
+	public boolean containsKey(final long key) {
+		return find(key) >= 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		if (size == 0)
+			return;
+
+		allocate(MIN_CAPACITY);
+		allocateValues(MIN_CAPACITY);
+		size = 0;
+	}
+
+	/**
+	 * Returns the keys in the table, in no particular order.
+	 */
+	public long[] keys() {
+		final long[] a = new long[size];
+		for (int i = 0, j = 0; i < keys.length; i++)
+			if (used[i])
+				a[j++] = keys[i];
+		return a;
+	}
+
+	/**
+	 * Returns a description of the entry in a slot, for {@link #toString()}.
+	 */
+	protected abstract String toString(final int slot);
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < keys.length; i++)
+			if (used[i]) {
+				if (sb.length() > 1)
+					sb.append(", ");
+				sb.append(toString(i));
+			}
+		return sb.append('}').toString();
+	}
+}
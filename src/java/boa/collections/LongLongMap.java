@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.collections;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A map from <code>long</code> to <code>long</code>, used in generated code
+ * for Boa maps with <code>int</code> or <code>time</code> indices and
+ * <code>int</code> or <code>time</code> values.
+ */
+public class LongLongMap extends LongHashTable {
+	// not initialized here, as the super constructor allocates it
+	private long[] values;
+
+	/** {@inheritDoc} */
+	@Override
+	protected Object allocateValues(final int capacity) {
+		final long[] old = values;
+		values = new long[capacity];
+		return old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void copyValue(final Object old, final int from, final int to) {
+		values[to] = ((long[]) old)[from];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void moveValue(final int from, final int to) {
+		values[to] = values[from];
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void clearValue(final int slot) {
+		// nothing to release
+	}
+
+	/**
+	 * Returns the value for a key.
+	 * 
+	 * @throws NoSuchElementException if the key is not in the map
+	 */
+	public long get(final long key) {
+		final int i = find(key);
+		if (i < 0)
+			throw new NoSuchElementException("no such key: " + key);
+		return values[i];
+	}
+
+	public void put(final long key, final long value) {
+		int i = insert(key);
+		if (i < 0)
+			i = -i - 1;
+		values[i] = value;
+	}
+
+	public void remove(final long key) {
+		final int i = find(key);
+		if (i >= 0)
+			delete(i);
+	}
+
+	/**
+	 * Returns the values in the map, in the same order as {@link #keys()}.
+	 */
+	public long[] values() {
+		final long[] a = new long[size];
+		for (int i = 0, j = 0; i < keys.length; i++)
+			if (used[i])
+				a[j++] = values[i];
+		return a;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected String toString(final int slot) {
+		return keys[slot] + "=" + values[slot];
+	}
+}
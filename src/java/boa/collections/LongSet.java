@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.collections;
+
+/**
+ * A set of <code>long</code>s, used in generated code for Boa sets of
+ * <code>int</code> or <code>time</code> to avoid boxing.
+ */
+public class LongSet extends LongHashTable {
+	/** {@inheritDoc} */
+	@Override
+	protected Object allocateValues(final int capacity) {
+		return null;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void copyValue(final Object old, final int from, final int to) {
+		// sets have no values
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void moveValue(final int from, final int to) {
+		// sets have no values
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void clearValue(final int slot) {
+		// sets have no values
+	}
+
+	public boolean contains(final long key) {
+		return find(key) >= 0;
+	}
+
+	public boolean add(final long key) {
+		return insert(key) < 0;
+	}
+
+	public boolean remove(final long key) {
+		final int i = find(key);
+		if (i < 0)
+			return false;
+		delete(i);
+		return true;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected String toString(final int slot) {
+		return String.valueOf(keys[slot]);
+	}
+}
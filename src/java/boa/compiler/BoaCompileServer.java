@@ -0,0 +1,193 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+
+import boa.compiler.visitors.AbstractCodeGeneratingVisitor;
+
+/**
+ * A long-running Boa compile service.  The symbol table, code generation
+ * templates and Java compiler are initialized once and kept warm, so each
+ * compile only pays for the work specific to its programs.
+ * 
+ * Requests are read one per line, either from stdin or from connections to
+ * a local socket.  Each request is the list of arguments that would be given
+ * to {@link BoaCompiler} on the command line, separated by whitespace.  An
+ * argument containing whitespace (e.g. a path) is wrapped in double quotes,
+ * and inside quotes <code>\"</code> and <code>\\</code> stand for a quote
+ * and a backslash.  Backslashes outside of quotes are literal.  For example:
+ * 
+ * <pre>-i "/home/me/my queries/q1.boa" -o /tmp/q1.jar -n Q1</pre>
+ * 
+ * Each reply is a single line, either <code>OK &lt;jar&gt;</code> or
+ * <code>ERROR &lt;message&gt;</code>.  The request <code>quit</code> stops
+ * the server.  Requests are compiled one at a time.  Explaining query plans
+ * (<code>--explain</code>) is not supported, and gets an error reply.
+ */
+public class BoaCompileServer {
+	private static boolean running = true;
+
+	public static void main(final String[] args) throws IOException {
+		// replies go to stdout, so send everything else (e.g. logging) to stderr
+		final PrintStream stdout = System.out;
+		System.setOut(System.err);
+
+		final Options options = new Options();
+		options.addOption("l", "libs", true, "extra jars (functions/aggregators) to be compiled in");
+		options.addOption("p", "port", true, "listen on the given local port instead of stdin");
+
+		final CommandLine cl;
+		try {
+			cl = new PosixParser().parse(options, args);
+		} catch (final org.apache.commons.cli.ParseException e) {
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("Boa Compile Server", options);
+			return;
+		}
+
+		// warm up the symbol table and templates
+		final List<URL> libs = new ArrayList<URL>();
+		if (cl.hasOption('l'))
+			for (final String lib : cl.getOptionValues('l'))
+				libs.add(new File(lib).toURI().toURL());
+		SymbolTable.initialize(libs);
+		AbstractCodeGeneratingVisitor.stg.getInstanceOf("Program");
+
+		if (!cl.hasOption('p')) {
+			serve(new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(stdout, true));
+			return;
+		}
+
+		final ServerSocket server = new ServerSocket(Integer.parseInt(cl.getOptionValue('p')), 50, InetAddress.getByName(null));
+		try {
+			while (running) {
+				final Socket socket = server.accept();
+				try {
+					serve(new BufferedReader(new InputStreamReader(socket.getInputStream())), new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true));
+				} finally {
+					socket.close();
+				}
+			}
+		} finally {
+			server.close();
+		}
+	}
+
+	private static void serve(final BufferedReader in, final PrintWriter out) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+
+			if (line.equals("quit")) {
+				running = false;
+				return;
+			}
+
+			final List<String> args;
+			try {
+				args = split(line);
+			} catch (final IllegalArgumentException e) {
+				out.println("ERROR " + e.getMessage());
+				continue;
+			}
+
+			out.println(compile(args.toArray(new String[args.size()])));
+		}
+	}
+
+	/**
+	 * Splits a request into its arguments, as described in the class comment.
+	 * 
+	 * @param line the request
+	 * @return the arguments
+	 * @throws IllegalArgumentException if a quoted argument is not closed
+	 */
+	static List<String> split(final String line) {
+		final List<String> args = new ArrayList<String>();
+		final StringBuilder sb = new StringBuilder();
+		boolean inArg = false;
+		boolean quoted = false;
+
+		for (int i = 0; i < line.length(); i++) {
+			final char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					quoted = false;
+				} else if (c == '\\' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+					sb.append(line.charAt(++i));
+				} else {
+					sb.append(c);
+				}
+			} else if (Character.isWhitespace(c)) {
+				if (inArg) {
+					args.add(sb.toString());
+					sb.setLength(0);
+					inArg = false;
+				}
+			} else {
+				inArg = true;
+				if (c == '"')
+					quoted = true;
+				else
+					sb.append(c);
+			}
+		}
+
+		if (quoted)
+			throw new IllegalArgumentException("unterminated quote");
+		if (inArg)
+			args.add(sb.toString());
+
+		return args;
+	}
+
+	private static String compile(final String[] args) {
+		try {
+			final CommandLine cl = BoaCompiler.processCommandLineOptions(args);
+			if (cl == null)
+				return "ERROR invalid arguments";
+			// plans span several lines, and stdout is not the client
+			if (cl.hasOption("explain"))
+				return "ERROR --explain is not supported by the compile server";
+
+			return "OK " + BoaCompiler.compile(cl);
+		} catch (final Throwable e) {
+			e.printStackTrace();
+			return "ERROR " + String.valueOf(e.getMessage()).replace('\n', ' ');
+		}
+	}
+}
@@ -27,18 +27,32 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
 import javax.tools.ToolProvider;
 
 import org.stringtemplate.v4.ST;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.OptionBuilder;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.PosixParser;
 import org.apache.log4j.Logger;
@@ -47,15 +61,22 @@ import org.scannotation.ClasspathUrlFinder;
 
 import boa.compiler.ast.Program;
 import boa.compiler.ast.Start;
+import boa.compiler.transforms.ConstantFoldingTransformer;
+import boa.compiler.transforms.FunctionInliningTransformer;
+import boa.compiler.transforms.FunctionMemoizingTransformer;
 import boa.compiler.transforms.LocalAggregationTransformer;
+import boa.compiler.transforms.LoopInvariantHoistingTransformer;
 import boa.compiler.transforms.VisitorMergingTransformer;
 import boa.compiler.transforms.VisitorOptimizingTransformer;
 import boa.compiler.visitors.AbstractCodeGeneratingVisitor;
 import boa.compiler.visitors.ASTPrintingVisitor;
 import boa.compiler.visitors.CodeGeneratingVisitor;
+import boa.compiler.visitors.JobCostEstimatingVisitor;
 import boa.compiler.visitors.PrettyPrintVisitor;
+import boa.compiler.visitors.ProjectFilterFindingVisitor;
 import boa.compiler.visitors.TaskClassifyingVisitor;
 import boa.compiler.visitors.TypeCheckingVisitor;
+import boa.compiler.visitors.VisitorCostEstimatingVisitor;
 import boa.compiler.listeners.BoaErrorListener;
 import boa.compiler.listeners.LexerErrorListener;
 import boa.compiler.listeners.ParserErrorListener;
@@ -86,6 +107,20 @@ public class BoaCompiler {
 	public static void main(final String[] args) throws IOException {
 		CommandLine cl = processCommandLineOptions(args);
 		if(cl==null) return;
+
+		compile(cl);
+	}
+
+	/**
+	 * Compiles the programs named by the (already processed) command line
+	 * options into a jar.  The symbol table, templates and Java compiler are
+	 * only initialized on first use, so repeated calls in the same JVM (as
+	 * done by the {@link BoaCompileServer}) avoid most of the startup cost.
+	 * 
+	 * @param cl the command line options
+	 * @return the name of the jar that was written, or null if only explaining the plan
+	 */
+	public static String compile(final CommandLine cl) throws IOException {
 		final ArrayList<File> inputFiles = BoaCompiler.inputFiles;
 
 		// get the name of the generated class
@@ -98,149 +133,410 @@ public class BoaCompiler {
 		else
 			jarName = className + ".jar";
 
-		// make the output directory
-		final File outputRoot = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
-		final File outputSrcDir = new File(outputRoot, "boa");
-		if (!outputSrcDir.mkdirs())
-			throw new IOException("unable to mkdir " + outputSrcDir);
-
 		// find custom libs to load
 		final List<URL> libs = new ArrayList<URL>();
 		if (cl.hasOption('l'))
 			for (final String lib : cl.getOptionValues('l'))
 				libs.add(new File(lib).toURI().toURL());
 
-		final File outputFile = new File(outputSrcDir, className + ".java");
-		final BufferedOutputStream o = new BufferedOutputStream(new FileOutputStream(outputFile));
-		try {
-			final List<String> jobnames = new ArrayList<String>();
-			final List<String> jobs = new ArrayList<String>();
-			boolean isSimple = true;
+		failedFiles = new ArrayList<File>();
+
+		// reuse a previously compiled jar for the same programs and options
+		// (the debug options need the compile to actually run)
+		CompilationCache cache = null;
+		String cacheKey = null;
+		if (cl.hasOption("cache") && !cl.hasOption("pp") && !cl.hasOption("ast") && !cl.hasOption("ct") && !cl.hasOption("explain")) {
+			long cacheSize = 1024;
+			if (cl.hasOption("cache-size"))
+				cacheSize = Long.parseLong(cl.getOptionValue("cache-size"));
+			cache = new CompilationCache(new File(cl.getOptionValue("cache")), cacheSize * 1024 * 1024);
+
+			final List<String> options = new ArrayList<String>();
+			options.add("nv=" + cl.hasOption("nv"));
+			options.add("v=" + cl.getOptionValue('v'));
+			options.add("prof=" + cl.hasOption("prof"));
+			// profiled code reports each program's file name
+			if (cl.hasOption("prof"))
+				for (final File f : inputFiles)
+					options.add("file=" + f.getName());
+			options.add("pq=" + cl.hasOption("pq"));
+
+			final List<File> jars = new ArrayList<File>(getLibJars(cl));
+			// the compiler's own jar (or classes and templates, when not run
+			// from a jar), so upgrading the compiler invalidates the cache
+			final String path = ClasspathUrlFinder.findClassBase(BoaCompiler.class).getPath();
+			if (path.indexOf('!') != -1) {
+				jars.add(new File(path.substring(path.indexOf(':') + 1, path.indexOf('!'))));
+			} else {
+				jars.add(new File(path));
+				for (final String template : new String[] { "templates/BoaJavaHadoop.stg", "templates/BoaJava.stg" }) {
+					final URL url = BoaCompiler.class.getClassLoader().getResource(template);
+					if (url != null && "file".equals(url.getProtocol()))
+						jars.add(new File(url.getPath()));
+					else if (new File(template).isFile())
+						jars.add(new File(template));
+				}
+			}
 
-			final List<Program> visitorPrograms = new ArrayList<Program>();
+			cacheKey = CompilationCache.key(className, options, inputFiles, jars);
+			if (cache.get(cacheKey, new File(jarName))) {
+				LOG.info("using cached jar for: " + className);
+				return jarName;
+			}
+		}
 
-			SymbolTable.initialize(libs);
+		final List<String> jobnames = new ArrayList<String>();
+		final List<String> jobs = new ArrayList<String>();
+		final List<String> combineTables = new ArrayList<String>();
+		final List<String> reduceTables = new ArrayList<String>();
+		final Map<String, Integer> memoizableCalls = new LinkedHashMap<String, Integer>();
+		final JobCostModel costModel = new JobCostModel();
+		final QueryPlan plan = cl.hasOption("explain") ? new QueryPlan() : null;
+		boolean isFiltered = false;
 
-			for (int i = 0; i < inputFiles.size(); i++) {
-				final File f = inputFiles.get(i);
-				try {
-					final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(f.getAbsolutePath()));
-					lexer.removeErrorListeners();
-					lexer.addErrorListener(new LexerErrorListener());
-
-					final CommonTokenStream tokens = new CommonTokenStream(lexer);
-					final BoaParser parser = new BoaParser(tokens);
-					parser.removeErrorListeners();
-					parser.addErrorListener(new BaseErrorListener() {
+		final List<Program> visitorPrograms = new ArrayList<Program>();
+
+		SymbolTable.initialize(libs);
+
+		// run the front end on each input file in parallel - the debug
+		// printing options write to stdout, so those run one file at a time
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (cl.hasOption('t'))
+			threads = Integer.parseInt(cl.getOptionValue('t'));
+		if (cl.hasOption("pp") || cl.hasOption("ast"))
+			threads = 1;
+		threads = Math.max(1, Math.min(threads, inputFiles.size()));
+
+		final List<FrontEndResult> results = new ArrayList<FrontEndResult>();
+		if (threads == 1) {
+			for (int i = 0; i < inputFiles.size(); i++)
+				results.add(frontEnd(cl, inputFiles.get(i), "" + i, inputFiles.size()));
+		} else {
+			final ExecutorService pool = Executors.newFixedThreadPool(threads);
+			try {
+				final List<Future<FrontEndResult>> futures = new ArrayList<Future<FrontEndResult>>();
+				for (int i = 0; i < inputFiles.size(); i++) {
+					final File f = inputFiles.get(i);
+					final String jobName = "" + i;
+					futures.add(pool.submit(new Callable<FrontEndResult>() {
 						@Override
-						public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
-							throw new ParseCancellationException(e);
+						public FrontEndResult call() {
+							return frontEnd(cl, f, jobName, inputFiles.size());
 						}
-					});
+					}));
+				}
 
-					final BoaErrorListener parserErrorListener = new ParserErrorListener();
-					final Start p = parse(tokens, parser, parserErrorListener);
-					if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
+				// collect in input order, so job numbering does not depend on scheduling
+				for (final Future<FrontEndResult> future : futures)
+					results.add(future.get());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("compilation interrupted", e);
+			} catch (final ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} finally {
+				pool.shutdown();
+			}
+		}
 
-					final String jobName = "" + i;
+		for (int i = 0; i < results.size(); i++) {
+			final FrontEndResult result = results.get(i);
+			final QueryPlan.ProgramPlan programPlan = plan == null ? null : plan.addProgram("" + i, inputFiles.get(i).getName());
+			if (result == null) {
+				failedFiles.add(inputFiles.get(i));
+				if (programPlan != null)
+					programPlan.failed = true;
+				continue;
+			}
 
-					try {
-						if (!parserErrorListener.hasError) {
-							new TypeCheckingVisitor().start(p, new SymbolTable());
+			if (programPlan != null) {
+				programPlan.simple = result.isSimple;
+				programPlan.filtered = result.isFiltered;
+				programPlan.inlined = result.inlined;
+				programPlan.memoizedFunctions = result.memoizedFunctions;
+				programPlan.hoisted = result.hoisted;
+				programPlan.aggregatedVars = result.aggregatedVars;
+				programPlan.cost = result.cost;
+				if (result.program == null)
+					plan.addJob(result.jobName, Collections.singletonList(result.jobName), result.addedStops);
+			}
 
-							final TaskClassifyingVisitor simpleVisitor = new TaskClassifyingVisitor();
-							simpleVisitor.start(p);
+			costModel.add(i, result.cost);
+
+			if (result.program != null) {
+				visitorPrograms.add(result.program);
+			} else {
+				jobs.add(result.code);
+				jobnames.add(result.jobName);
+				combineTables.addAll(result.combineTables);
+				reduceTables.addAll(result.reduceTables);
+				countMemoizableCalls(memoizableCalls, result.memoizableCalls, !result.isSimple && result.cost.needsAst());
+				isFiltered |= result.isFiltered;
+			}
+		}
 
-							LOG.info(f.getName() + ": task complexity: " + (!simpleVisitor.isComplex() ? "simple" : "complex"));
-							isSimple &= !simpleVisitor.isComplex();
+		final int maxVisitors;
+		if (cl.hasOption('v'))
+			maxVisitors = Integer.parseInt(cl.getOptionValue('v'));
+		else
+			maxVisitors = Integer.MAX_VALUE;
 
-							new LocalAggregationTransformer().start(p);
+		// only visitors reaching AST types call getast() while visiting
+		final VisitorCostEstimatingVisitor visitorCost = new VisitorCostEstimatingVisitor();
 
-							// if a job has no visitor, let it have its own method
-							// also let jobs have own methods if visitor merging is disabled
-							if (!simpleVisitor.isComplex() || cl.hasOption("nv") || inputFiles.size() == 1) {
-								new VisitorOptimizingTransformer().start(p);
+		if (!visitorPrograms.isEmpty())
+			try {
+				final VisitorMergingTransformer merger = new VisitorMergingTransformer(cl.hasOption("ct"));
+				final Map<String, Integer> addedStops = new HashMap<String, Integer>();
+				for (final Program p : merger.mergePrograms(visitorPrograms, maxVisitors)) {
+					final VisitorOptimizingTransformer optimizer = new VisitorOptimizingTransformer();
+					optimizer.start(p);
+					addedStops.put(p.jobName, optimizer.getAddedStopsCount());
+
+					if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
+					if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
+					final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(p.jobName);
+					cg.setParallelQuantifiers(cl.hasOption("pq"));
+					cg.start(p);
+					jobs.add(cg.getCode());
+					combineTables.addAll(cg.getCombineAggregatorStrings());
+					reduceTables.addAll(cg.getReduceAggregatorStrings());
+					visitorCost.start(p);
+					countMemoizableCalls(memoizableCalls, cg.getMemoizableCalls(), visitorCost.needsAst());
+	
+					jobnames.add(p.jobName);
+				}
 
-								if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
-								if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
-								final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(jobName);
-								cg.start(p);
-								jobs.add(cg.getCode());
+				if (plan != null) {
+					for (final Entry<String, List<String>> e : merger.getFusedJobs().entrySet())
+						plan.addJob(e.getKey(), e.getValue(), addedStops.get(e.getKey()));
+					for (final Entry<String, Integer> e : merger.getLiftedStops().entrySet())
+						plan.getProgram(e.getKey()).liftedStops = e.getValue();
+				}
+			} catch (final Exception e) {
+				System.err.println("error fusing visitors - falling back: " + e);
+				e.printStackTrace();
+				if (plan != null)
+					plan.setFusionError(e.toString());
 
-								jobnames.add(jobName);
-							}
-							// if a job has visitors, fuse them all together into a single program
-							else {
-								p.getProgram().jobName = jobName;
-								visitorPrograms.add(p.getProgram());
-							}
-						}
-					} catch (final TypeCheckException e) {
-						parserErrorListener.error("typecheck", lexer, null, e.n.beginLine, e.n.beginColumn, e.n2.endColumn - e.n.beginColumn + 1, e.getMessage(), e);
-					}
-				} catch (final Exception e) {
-					System.err.print(f.getName() + ": compilation failed: ");
-					e.printStackTrace();
+				for (final Program p : visitorPrograms) {
+					final VisitorOptimizingTransformer optimizer = new VisitorOptimizingTransformer();
+					optimizer.start(p);
+					if (plan != null)
+						plan.addJob(p.jobName, Collections.singletonList(p.jobName), optimizer.getAddedStopsCount());
+
+					if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
+					if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
+					final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(p.jobName);
+					cg.setParallelQuantifiers(cl.hasOption("pq"));
+					cg.start(p);
+					jobs.add(cg.getCode());
+					combineTables.addAll(cg.getCombineAggregatorStrings());
+					reduceTables.addAll(cg.getReduceAggregatorStrings());
+					visitorCost.start(p);
+					countMemoizableCalls(memoizableCalls, cg.getMemoizableCalls(), visitorCost.needsAst());
+
+					jobnames.add(p.jobName);
 				}
 			}
 
-			final int maxVisitors;
-			if (cl.hasOption('v'))
-				maxVisitors = Integer.parseInt(cl.getOptionValue('v'));
-			else
-				maxVisitors = Integer.MAX_VALUE;
+		if (jobs.size() == 0)
+			throw new RuntimeException("no files compiled without error");
 
-			if (!visitorPrograms.isEmpty())
-				try {
-					for (final Program p : new VisitorMergingTransformer().mergePrograms(visitorPrograms, maxVisitors)) {
-						new VisitorOptimizingTransformer().start(p);
+		LOG.info("cost model: " + costModel);
 
-						if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
-						if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
-						final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(p.jobName);
-						cg.start(p);
-						jobs.add(cg.getCode());
-		
-						jobnames.add(p.jobName);
-					}
-				} catch (final Exception e) {
-					System.err.println("error fusing visitors - falling back: " + e);
-					e.printStackTrace();
+		// results needed by more than one job are computed once per project
+		final List<String> memoized = new ArrayList<String>();
+		for (final Entry<String, Integer> e : memoizableCalls.entrySet())
+			if (e.getValue() > 1)
+				memoized.add(e.getKey());
 
-					for (final Program p : visitorPrograms) {
-						new VisitorOptimizingTransformer().start(p);
+		// only explain the plan, without compiling it
+		if (plan != null) {
+			plan.setTables(combineTables, reduceTables);
+			plan.setMemoized(memoized);
+			plan.setCostModel(costModel, costModel.getReducers(inputFiles.size()));
+			System.out.print("json".equals(cl.getOptionValue("explain")) ? plan.toJson() : plan.toText());
+			return null;
+		}
 
-						if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
-						if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
-						final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(p.jobName);
-						cg.start(p);
-						jobs.add(cg.getCode());
+		final ST st = AbstractCodeGeneratingVisitor.stg.getInstanceOf("Program");
+
+		st.add("name", className);
+		st.add("numreducers", costModel.getReducers(inputFiles.size()));
+		st.add("partitions", costModel.getPartitions(inputFiles.size()));
+		st.add("jobs", jobs);
+		st.add("jobnames", jobnames);
+		st.add("combineTables", combineTables);
+		st.add("reduceTables", reduceTables);
+		st.add("memoized", memoized);
+		st.add("filtered", isFiltered);
+		st.add("profiled", cl.hasOption("prof"));
+		st.add("splitsize", costModel.getSplitSize());
+		if (costModel.getMapHeap() > 0)
+			st.add("mapheap", costModel.getMapHeap());
+		if (costModel.getReduceHeap() > 0)
+			st.add("reduceheap", costModel.getReduceHeap());
+
+		final String source = st.render();
+
+		compileGeneratedSrc(cl, jarName, className, source);
+
+		// only cache complete compiles, so a cache hit never hides failed files
+		if (cache != null && failedFiles.isEmpty())
+			cache.put(cacheKey, new File(jarName));
+
+		return jarName;
+	}
+	
+	/**
+	 * The result of running the front end on a single input file.  Either
+	 * the generated code for the job, or (if the job's visitors are to be
+	 * fused with other jobs) the transformed program.
+	 */
+	private static class FrontEndResult {
+		String jobName;
+		boolean isSimple;
+		boolean isFiltered;
+		String code;
+		Program program;
+		List<String> combineTables;
+		List<String> reduceTables;
+		Set<String> memoizableCalls;
+		JobCostEstimatingVisitor cost;
+		int inlined;
+		List<String> memoizedFunctions;
+		int hoisted;
+		List<String> aggregatedVars;
+		int addedStops;
+	}
 
-						jobnames.add(p.jobName);
-					}
+	/**
+	 * Counts one more job calling each memoizable built-in function in
+	 * calls.  Jobs visiting AST types also call getast() on every file visited.
+	 */
+	private static void countMemoizableCalls(final Map<String, Integer> counts, final Set<String> calls, final boolean visitsAsts) {
+		final Set<String> all = new LinkedHashSet<String>(calls);
+		if (visitsAsts)
+			all.add("getast");
+
+		for (final String call : all)
+			counts.put(call, counts.containsKey(call) ? counts.get(call) + 1 : 1);
+	}
+
+	/**
+	 * Parses, type checks and transforms a single input file, generating
+	 * its code unless its visitors should be fused with other jobs.  This
+	 * only touches state local to the file, so calls for different files
+	 * may run concurrently.
+	 * 
+	 * @param cl the command line options
+	 * @param f the file to compile
+	 * @param jobName the name of the job
+	 * @param numFiles the total number of files being compiled
+	 * @return the result, or <code>null</code> if the file had errors
+	 */
+	private static FrontEndResult frontEnd(final CommandLine cl, final File f, final String jobName, final int numFiles) {
+		try {
+			final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(f.getAbsolutePath()));
+			lexer.removeErrorListeners();
+			lexer.addErrorListener(new LexerErrorListener());
+
+			final CommonTokenStream tokens = new CommonTokenStream(lexer);
+			final BoaParser parser = new BoaParser(tokens);
+			parser.removeErrorListeners();
+			parser.addErrorListener(new BaseErrorListener() {
+				@Override
+				public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) throws ParseCancellationException {
+					throw new ParseCancellationException(e);
 				}
+			});
 
-			if (jobs.size() == 0)
-				throw new RuntimeException("no files compiled without error");
+			final BoaErrorListener parserErrorListener = new ParserErrorListener();
+			final Start p = parse(tokens, parser, parserErrorListener);
+			if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
 
-			final ST st = AbstractCodeGeneratingVisitor.stg.getInstanceOf("Program");
+			try {
+				if (!parserErrorListener.hasError) {
+					new TypeCheckingVisitor().start(p, new SymbolTable());
 
-			st.add("name", className);
-			st.add("numreducers", inputFiles.size());
-			st.add("jobs", jobs);
-			st.add("jobnames", jobnames);
-			st.add("combineTables", CodeGeneratingVisitor.combineAggregatorStrings);
-			st.add("reduceTables", CodeGeneratingVisitor.reduceAggregatorStrings);
-			st.add("splitsize", isSimple ? 64 * 1024 * 1024 : 10 * 1024 * 1024);
+					final TaskClassifyingVisitor simpleVisitor = new TaskClassifyingVisitor();
+					simpleVisitor.start(p);
 
-			o.write(st.render().getBytes());
-		} finally {
-			o.close();
+					LOG.info(f.getName() + ": task complexity: " + (!simpleVisitor.isComplex() ? "simple" : "complex"));
+
+					final FrontEndResult result = new FrontEndResult();
+					result.jobName = jobName;
+					result.isSimple = !simpleVisitor.isComplex();
+
+					// estimate the job's cost before the program is transformed
+					result.cost = new JobCostEstimatingVisitor();
+					result.cost.start(p);
+
+					// find project-level filters before the program is transformed
+					final ProjectFilterFindingVisitor filterFinder = new ProjectFilterFindingVisitor();
+					filterFinder.start(p);
+
+					new ConstantFoldingTransformer().start(p);
+
+					final FunctionInliningTransformer inliner = new FunctionInliningTransformer();
+					inliner.start(p);
+					result.inlined = inliner.getInlinedCount();
+
+					final FunctionMemoizingTransformer memoizer = new FunctionMemoizingTransformer();
+					memoizer.start(p);
+					result.memoizedFunctions = memoizer.getMemoizedFunctions();
+
+					final LoopInvariantHoistingTransformer hoister = new LoopInvariantHoistingTransformer();
+					hoister.start(p);
+					result.hoisted = hoister.getHoistedCount();
+
+					final LocalAggregationTransformer localAggregator = new LocalAggregationTransformer();
+					localAggregator.start(p);
+					result.aggregatedVars = localAggregator.getAggregatedVars();
+
+					// if a job has no visitor, let it have its own method
+					// also let jobs have own methods if visitor merging is disabled,
+					// or if profiling (so each profiled line is from one file)
+					if (!simpleVisitor.isComplex() || cl.hasOption("nv") || cl.hasOption("prof") || numFiles == 1) {
+						final VisitorOptimizingTransformer optimizer = new VisitorOptimizingTransformer();
+						optimizer.start(p);
+						result.addedStops = optimizer.getAddedStopsCount();
+
+						if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
+						if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
+						final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(jobName);
+						cg.setParallelQuantifiers(cl.hasOption("pq"));
+						cg.setFilters(filterFinder.getFilters(), filterFinder.getAliases());
+						if (cl.hasOption("prof"))
+							cg.setProfiling(f.getName());
+						cg.start(p);
+
+						result.code = cg.getCode();
+						result.isFiltered = cg.hasFilters();
+						result.combineTables = cg.getCombineAggregatorStrings();
+						result.reduceTables = cg.getReduceAggregatorStrings();
+						result.memoizableCalls = cg.getMemoizableCalls();
+					}
+					// if a job has visitors, fuse them all together into a single program
+					else {
+						p.getProgram().jobName = jobName;
+						result.program = p.getProgram();
+					}
+
+					return result;
+				}
+			} catch (final TypeCheckException e) {
+				parserErrorListener.error("typecheck", lexer, null, e.n.beginLine, e.n.beginColumn, e.n2.endColumn - e.n.beginColumn + 1, e.getMessage(), e);
+			}
+		} catch (final Exception e) {
+			System.err.print(f.getName() + ": compilation failed: ");
+			e.printStackTrace();
 		}
 
-		compileGeneratedSrc(cl, jarName, outputRoot, outputFile);
+		return null;
 	}
-	
+
 	public static void parseOnly(final String[] args) throws IOException {
 		CommandLine cl = processParseCommandLineOptions(args);
 		if(cl==null) return;
@@ -293,6 +589,10 @@ public class BoaCompiler {
 						LOG.info(f.getName() + ": task complexity: " + (!simpleVisitor.isComplex() ? "simple" : "complex"));
 						isSimple &= !simpleVisitor.isComplex();
 
+						new ConstantFoldingTransformer().start(p);
+						new FunctionInliningTransformer().start(p);
+						new FunctionMemoizingTransformer().start(p);
+						new LoopInvariantHoistingTransformer().start(p);
 						new LocalAggregationTransformer().start(p);
 
 						// if a job has no visitor, let it have its own method
@@ -303,6 +603,7 @@ public class BoaCompiler {
 							if (cl.hasOption("pp")) new PrettyPrintVisitor().start(p);
 							if (cl.hasOption("ast")) new ASTPrintingVisitor().start(p);
 							final CodeGeneratingVisitor cg = new CodeGeneratingVisitor(jobName);
+							cg.setParallelQuantifiers(cl.hasOption("pq"));
 							cg.start(p);
 							jobs.add(cg.getCode());
 
@@ -346,18 +647,41 @@ public class BoaCompiler {
 		}
 	}
 
+	private static JavaCompiler compiler = null;
+	private static StandardJavaFileManager standardFileManager = null;
+
 	private static void compileGeneratedSrc(final CommandLine cl,
-			final String jarName, final File outputRoot, final File outputFile)
+			final String jarName, final String className, final String source)
 					throws RuntimeException, IOException, FileNotFoundException {
-		// compile the generated .java file
-		final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-		if (compiler == null)
-			throw new RuntimeException("Could not get javac - are you running the Boa compiler with a JDK or a JRE?");
-		LOG.info("compiling: " + outputFile);
+		// compile the generated source in memory, reusing the Java compiler
+		// and its file manager (which caches the classpath) across calls
+		if (compiler == null) {
+			compiler = ToolProvider.getSystemJavaCompiler();
+			if (compiler == null)
+				throw new RuntimeException("Could not get javac - are you running the Boa compiler with a JDK or a JRE?");
+			standardFileManager = compiler.getStandardFileManager(null, null, null);
+		}
+		LOG.info("compiling: " + className);
 		LOG.info("classpath: " + System.getProperty("java.class.path"));
-		if (compiler.run(null, null, null, "-source", "5", "-target", "5", "-cp", System.getProperty("java.class.path"), outputFile.toString()) != 0)
+
+		final InMemoryFileManager fileManager = new InMemoryFileManager(standardFileManager);
+		final List<JavaFileObject> compilationUnits = new ArrayList<JavaFileObject>();
+		compilationUnits.add(InMemoryFileManager.source("boa." + className, source));
+
+		if (!compiler.getTask(null, fileManager, null, Arrays.asList(new String[] { "-source", "5", "-target", "5", "-cp", System.getProperty("java.class.path") }), null, compilationUnits).call())
 			throw new RuntimeException("compile failed");
 
+		final List<File> libJars = getLibJars(cl);
+
+		final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+		entries.put("boa/" + className + ".java", source.getBytes());
+		for (final Entry<String, byte[]> e : fileManager.getClasses().entrySet())
+			entries.put(e.getKey().replace('.', '/') + ".class", e.getValue());
+
+		generateJar(jarName, entries, libJars);
+	}
+
+	private static List<File> getLibJars(final CommandLine cl) {
 		final List<File> libJars = new ArrayList<File>();
 
 		if (cl.hasOption('j')) {
@@ -375,13 +699,13 @@ public class BoaCompiler {
 			for (final String s : Arrays.asList(cl.getOptionValues('l')))
 				libJars.add(new File(s));
 
-		generateJar(jarName, outputRoot, libJars);
-
-		delete(outputRoot);
+		return libJars;
 	}
 
 	static ArrayList<File> inputFiles = null; 
-	private static CommandLine processCommandLineOptions(final String[] args) {
+	// the input files that failed to compile in the last call to compile()
+	static List<File> failedFiles = null;
+	static CommandLine processCommandLineOptions(final String[] args) {
 		// parse the command line options
 		final Options options = new Options();
 		options.addOption("l", "libs", true, "extra jars (functions/aggregators) to be compiled in");
@@ -390,9 +714,20 @@ public class BoaCompiler {
 		options.addOption("j", "rtjar", true, "the path to the Boa runtime jar");
 		options.addOption("nv", "no-visitor-fusion", false, "disable visitor fusion");
 		options.addOption("v", "visitors-fused", true, "number of visitors to fuse");
+		options.addOption("t", "threads", true, "number of files to parse and type check in parallel");
 		options.addOption("n", "name", true, "the name of the generated main class");
+		options.addOption("prof", "profile", false, "count and time each statement, visit clause and function, reporting them as counters and a profile in the output directory (disables visitor fusion)");
+		options.addOption("pq", "parallel-quantifiers", false, "run foreach quantifiers over large lists in parallel, when their iterations only write variables declared inside them (experimental)");
+		options.addOption("c", "cache", true, "directory of previously compiled jars to reuse");
+		options.addOption("cs", "cache-size", true, "maximum size of the jar cache, in MB (default 1024)");
 		options.addOption("ast", "ast-debug", false, "print the AST after parsing and before code generation (debug)");
 		options.addOption("pp", "pretty-print", false, "pretty print the AST before code generation (debug)");
+		options.addOption(OptionBuilder.withLongOpt("explain")
+										.withDescription("print the plan the compiler picked for the programs, as 'text' (the default) or 'json', instead of compiling them")
+										.hasOptionalArg()
+										.withArgName("FORMAT")
+										.create("explain"));
+		options.addOption("ct", "check-transforms", false, "type check each program again after transforming it for fusion, failing if any types differ (debug)");
 
 		final CommandLine cl;
 		try {
@@ -486,22 +821,14 @@ public class BoaCompiler {
 		return className;
 	}
 	
-	private static final void delete(final File f) throws IOException {
-		if (f.isDirectory())
-			for (final File g : f.listFiles())
-				delete(g);
-
-		if (!f.delete())
-			throw new IOException("unable to delete file " + f);
-	}
-
-	private static void generateJar(final String jarName, final File dir, final List<File> libJars) throws IOException, FileNotFoundException {
-		final int offset = dir.toString().length() + 1;
-
+	private static void generateJar(final String jarName, final Map<String, byte[]> entries, final List<File> libJars) throws IOException, FileNotFoundException {
 		final JarOutputStream jar = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(new File(jarName))));
 		try {
-			for (final File f : findFiles(dir, new ArrayList<File>()))
-				putJarEntry(jar, f, f.getPath().substring(offset));
+			for (final Entry<String, byte[]> e : entries.entrySet()) {
+				jar.putNextEntry(new ZipEntry(e.getKey()));
+				jar.write(e.getValue());
+				jar.closeEntry();
+			}
 
 			for (final File f : libJars)
 				putJarEntry(jar, f, "lib" + File.separatorChar + f.getName());
@@ -510,16 +837,6 @@ public class BoaCompiler {
 		}
 	}
 
-	private static final List<File> findFiles(final File f, final List<File> l) {
-		if (f.isDirectory())
-			for (final File g : f.listFiles())
-				findFiles(g, l);
-		else
-			l.add(f);
-
-		return l;
-	}
-
 	private static void putJarEntry(final JarOutputStream jar, final File f, final String path) throws IOException {
 		jar.putNextEntry(new ZipEntry(path));
 
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.PosixParser;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import boa.compiler.visitors.AbstractCodeGeneratingVisitor;
+
+/**
+ * A long-running service that runs queued Boa queries in shared scans.
+ * Queries that arrive within a short window of each other are compiled
+ * together into a single job (fusing their visitors), so the dataset is read
+ * once per window instead of once per query.  When the job finishes, the
+ * {@link boa.io.BoaOutputCommitter} splits its output back up per query.
+ * 
+ * Requests are read one per line, either from stdin or from connections to
+ * a local socket.  Each request is a query's MySql job ID and the path of its
+ * source file, separated by whitespace.  Once the query's batch is submitted
+ * the reply is a single line, either <code>OK &lt;id&gt; &lt;output&gt;</code>
+ * or <code>ERROR &lt;id&gt; &lt;message&gt;</code>.  The request
+ * <code>quit</code> stops the service, after submitting any queued queries.
+ */
+public class BoaQueryScheduler {
+	/**
+	 * A queued query, and where to send its reply.
+	 */
+	private static class Query {
+		final String id;
+		final File file;
+		final PrintWriter out;
+
+		Query(final String id, final File file, final PrintWriter out) {
+			this.id = id;
+			this.file = file;
+			this.out = out;
+		}
+
+		void reply(final String status, final String message) {
+			synchronized (out) {
+				out.println(status + " " + id + " " + message);
+			}
+		}
+	}
+
+	private static final Query QUIT = new Query(null, null, null);
+	private static final BlockingQueue<Query> queue = new LinkedBlockingQueue<Query>();
+
+	private static CommandLine cl;
+	private static long window = 10000;
+	private static int maxQueries = 16;
+
+	public static void main(final String[] args) throws Exception {
+		// replies go to stdout, so send everything else (e.g. logging) to stderr
+		final PrintStream stdout = System.out;
+		System.setOut(System.err);
+
+		final Options options = new Options();
+		options.addOption("l", "libs", true, "extra jars (functions/aggregators) to be compiled in");
+		options.addOption("j", "rtjar", true, "the path to the Boa runtime jar");
+		options.addOption("p", "port", true, "listen on the given local port instead of stdin");
+		options.addOption("w", "window", true, "how long to collect queries for before submitting them, in ms (default 10000)");
+		options.addOption("m", "max-queries", true, "the most queries to submit in one job (default 16)");
+		options.addOption("d", "jar-dir", true, "the directory to write the compiled jars to (default the temp directory)");
+		options.addOption("i", "input", true, "the input directory of the dataset");
+		options.addOption("o", "output", true, "the directory to write the output of each job under");
+		options.addOption("x", "job-args", true, "extra arguments for each submitted job (e.g. \"-a <ast input>\")");
+
+		try {
+			cl = new PosixParser().parse(options, args);
+		} catch (final org.apache.commons.cli.ParseException e) {
+			System.err.println(e.getMessage());
+			new HelpFormatter().printHelp("Boa Query Scheduler", options);
+			return;
+		}
+
+		if (!cl.hasOption('i') || !cl.hasOption('o')) {
+			System.err.println("missing required options: input and output");
+			new HelpFormatter().printHelp("Boa Query Scheduler", options);
+			return;
+		}
+
+		if (cl.hasOption('w'))
+			window = Long.parseLong(cl.getOptionValue('w'));
+		if (cl.hasOption('m'))
+			maxQueries = Integer.parseInt(cl.getOptionValue('m'));
+
+		// warm up the symbol table and templates
+		final List<URL> libs = new ArrayList<URL>();
+		if (cl.hasOption('l'))
+			for (final String lib : cl.getOptionValues('l'))
+				libs.add(new File(lib).toURI().toURL());
+		SymbolTable.initialize(libs);
+		AbstractCodeGeneratingVisitor.stg.getInstanceOf("Program");
+
+		if (!cl.hasOption('p')) {
+			listen(new BufferedReader(new InputStreamReader(System.in)), new PrintWriter(stdout, true));
+		} else {
+			final ServerSocket server = new ServerSocket(Integer.parseInt(cl.getOptionValue('p')), 50, InetAddress.getByName(null));
+			final Thread acceptor = new Thread() {
+				@Override
+				public void run() {
+					try {
+						while (true)
+							listen(server.accept());
+					} catch (final IOException e) {
+						// the server was closed
+					}
+				}
+			};
+			acceptor.setDaemon(true);
+			acceptor.start();
+
+			try {
+				schedule();
+			} finally {
+				server.close();
+			}
+			return;
+		}
+
+		schedule();
+	}
+
+	/**
+	 * Queues the requests from a connection, reading them in the background.
+	 */
+	private static void listen(final Socket socket) throws IOException {
+		final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		final PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream()), true);
+
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					read(in, out);
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+				// the socket stays open until the replies for its queries are sent
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Queues the requests from stdin, reading them in the background.
+	 */
+	private static void listen(final BufferedReader in, final PrintWriter out) {
+		final Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					read(in, out);
+				} catch (final IOException e) {
+					e.printStackTrace();
+				}
+				// no more requests can arrive
+				queue.add(QUIT);
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	private static void read(final BufferedReader in, final PrintWriter out) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+
+			if (line.equals("quit")) {
+				queue.add(QUIT);
+				return;
+			}
+
+			final String[] parts = line.split("\\s+", 2);
+			final Query q = new Query(parts[0], parts.length > 1 ? new File(parts[1]) : null, out);
+			if (q.file == null || !q.file.isFile() || !parts[0].matches("\\d+"))
+				q.reply("ERROR", "expected a job ID and the path of a query");
+			else
+				queue.add(q);
+		}
+	}
+
+	/**
+	 * Submits batches of queued queries until asked to quit.
+	 */
+	private static void schedule() throws InterruptedException {
+		boolean quit = false;
+		while (!quit) {
+			final List<Query> batch = new ArrayList<Query>();
+
+			// the window starts when the first query of a batch arrives
+			Query q = queue.take();
+			final long end = System.currentTimeMillis() + window;
+			while (q != null) {
+				if (q == QUIT) {
+					quit = true;
+					break;
+				}
+
+				batch.add(q);
+				if (batch.size() >= maxQueries)
+					break;
+
+				q = queue.poll(Math.max(0, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+			}
+
+			if (!batch.isEmpty())
+				submit(batch);
+		}
+
+		// submit anything queued before the request to quit
+		final List<Query> rest = new ArrayList<Query>();
+		for (final Query q : queue)
+			if (q != QUIT)
+				rest.add(q);
+		for (int i = 0; i < rest.size(); i += maxQueries)
+			submit(rest.subList(i, Math.min(rest.size(), i + maxQueries)));
+	}
+
+	/**
+	 * Compiles a batch of queries into a single job, submits it and replies
+	 * to each query.  Queries that do not compile are left out of the job.
+	 */
+	private static void submit(final List<Query> batch) {
+		final String name = "Batch" + System.currentTimeMillis();
+		final File jarDir = new File(cl.hasOption('d') ? cl.getOptionValue('d') : System.getProperty("java.io.tmpdir"));
+		final String output = cl.getOptionValue('o') + "/" + name;
+
+		final List<String> ids = new ArrayList<String>();
+		final List<Query> submitted = new ArrayList<Query>();
+		try {
+			String files = "";
+			for (final Query q : batch)
+				files += (files.isEmpty() ? "" : ",") + q.file.getPath();
+
+			final List<String> args = new ArrayList<String>(Arrays.asList("-i", files, "-n", name, "-o", new File(jarDir, name + ".jar").getPath()));
+			if (cl.hasOption('j'))
+				args.addAll(Arrays.asList("-j", cl.getOptionValue('j')));
+			if (cl.hasOption('l'))
+				for (final String lib : cl.getOptionValues('l'))
+					args.addAll(Arrays.asList("-l", lib));
+
+			// if the visitors can not be fused, the queries still share a scan
+			String jar;
+			try {
+				jar = BoaCompiler.compile(BoaCompiler.processCommandLineOptions(args.toArray(new String[args.size()])));
+			} catch (final Exception e) {
+				e.printStackTrace();
+				args.add("-nv");
+				jar = BoaCompiler.compile(BoaCompiler.processCommandLineOptions(args.toArray(new String[args.size()])));
+			}
+
+			// each query keeps its place in the job, so failed ones get a placeholder ID
+			for (final Query q : batch)
+				if (BoaCompiler.failedFiles.contains(q.file)) {
+					q.reply("ERROR", "compilation failed");
+					ids.add("0");
+				} else {
+					submitted.add(q);
+					ids.add(q.id);
+				}
+
+			final List<String> jobArgs = new ArrayList<String>();
+			jobArgs.add("-J");
+			jobArgs.add(join(ids));
+			if (cl.hasOption('x'))
+				jobArgs.addAll(Arrays.asList(cl.getOptionValue('x').trim().split("\\s+")));
+			jobArgs.add(cl.getOptionValue('i'));
+			jobArgs.add(output);
+
+			final URLClassLoader loader = new URLClassLoader(new URL[] { new File(jar).toURI().toURL() }, BoaQueryScheduler.class.getClassLoader());
+			final Tool job = (Tool) loader.loadClass("boa." + name).getConstructor().newInstance();
+			if (ToolRunner.run(new Configuration(), job, jobArgs.toArray(new String[jobArgs.size()])) != 0)
+				throw new RuntimeException("job submission failed");
+		} catch (final Throwable e) {
+			e.printStackTrace();
+			for (final Query q : batch)
+				if (submitted.contains(q) || ids.isEmpty())
+					q.reply("ERROR", String.valueOf(e.getMessage()).replace('\n', ' '));
+			return;
+		}
+
+		for (final Query q : submitted)
+			q.reply("OK", output + "/" + batch.indexOf(q));
+	}
+
+	private static String join(final List<String> l) {
+		String s = "";
+		for (final String e : l)
+			s += (s.isEmpty() ? "" : ",") + e;
+		return s;
+	}
+}
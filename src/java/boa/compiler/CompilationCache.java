@@ -0,0 +1,218 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.antlr.v4.runtime.ANTLRFileStream;
+import org.antlr.v4.runtime.Token;
+
+import boa.parser.BoaLexer;
+
+/**
+ * A content-addressed cache of compiled query jars.  Jars are stored in a
+ * directory, named by a hash of everything that affects the generated code:
+ * the program sources (as tokens, so whitespace and comment changes still
+ * hit), the compiler options, and the compiler, runtime and library jars.
+ * 
+ * The directory is bounded in size.  Reading a jar marks it as recently
+ * used, and the least recently used jars are removed when the directory
+ * grows too large.
+ */
+class CompilationCache {
+	private final File dir;
+	private final long maxSize;
+
+	/**
+	 * @param dir the directory holding the cached jars
+	 * @param maxSize the maximum total size of the cached jars, in bytes
+	 */
+	public CompilationCache(final File dir, final long maxSize) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs())
+			throw new IOException("unable to mkdir " + dir);
+
+		this.dir = dir;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Computes the cache key for a compile.
+	 * 
+	 * @param className the name of the generated class
+	 * @param options the compiler options affecting the generated code
+	 * @param inputFiles the programs being compiled, in job order
+	 * @param jars the compiler, runtime and library jars (or directories of classes)
+	 * @return the key, as a hex string
+	 */
+	public static String key(final String className, final List<String> options, final List<File> inputFiles, final List<File> jars) throws IOException {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new RuntimeException(e.getClass().getSimpleName() + " caught", e);
+		}
+
+		update(md, className);
+		for (final String option : options)
+			update(md, option);
+
+		// jars are identified by location, size and time stamp rather than
+		// by content, to avoid reading the runtime jar on every compile
+		for (final File f : jars) {
+			update(md, f.getCanonicalPath());
+			if (f.isDirectory())
+				updateDirectory(md, f, "");
+			else
+				update(md, f.length() + ":" + f.lastModified());
+		}
+
+		// programs are normalized to their token stream, so changes to
+		// whitespace and comments do not change the key
+		for (final File f : inputFiles) {
+			final BoaLexer lexer = new BoaLexer(new ANTLRFileStream(f.getAbsolutePath()));
+			lexer.removeErrorListeners();
+
+			update(md, "file");
+			for (final Token t : lexer.getAllTokens())
+				update(md, t.getType() + ":" + t.getText());
+		}
+
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : md.digest())
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+
+	private static void update(final MessageDigest md, final String s) throws UnsupportedEncodingException {
+		md.update(s.getBytes("UTF-8"));
+		md.update((byte) 0);
+	}
+
+	private static void updateDirectory(final MessageDigest md, final File dir, final String prefix) throws UnsupportedEncodingException {
+		final File[] files = dir.listFiles();
+		if (files == null)
+			return;
+
+		// sorted, so the key does not depend on the directory listing order
+		Arrays.sort(files);
+		for (final File f : files) {
+			if (f.isDirectory()) {
+				updateDirectory(md, f, prefix + f.getName() + "/");
+			} else {
+				update(md, prefix + f.getName());
+				update(md, f.length() + ":" + f.lastModified());
+			}
+		}
+	}
+
+	/**
+	 * Copies the cached jar for a key, if there is one.
+	 * 
+	 * @param key the cache key
+	 * @param jar where to copy the cached jar to
+	 * @return <code>true</code> if the jar was in the cache
+	 */
+	public boolean get(final String key, final File jar) throws IOException {
+		final File cached = new File(dir, key + ".jar");
+		if (!cached.isFile())
+			return false;
+
+		// the modification time tracks when each jar was last used
+		cached.setLastModified(System.currentTimeMillis());
+		copy(cached, jar);
+		return true;
+	}
+
+	/**
+	 * Adds a compiled jar to the cache, evicting the least recently used
+	 * jars if the cache is then too large.
+	 * 
+	 * @param key the cache key
+	 * @param jar the compiled jar
+	 */
+	public void put(final String key, final File jar) throws IOException {
+		// copy to a temporary file first, so other compilers sharing the
+		// directory never see a partially written jar
+		final File tmp = File.createTempFile(key, ".tmp", dir);
+		try {
+			copy(jar, tmp);
+			if (!tmp.renameTo(new File(dir, key + ".jar")))
+				throw new IOException("unable to add " + key + " to the compilation cache");
+		} finally {
+			tmp.delete();
+		}
+
+		evict();
+	}
+
+	private void evict() {
+		final File[] jars = dir.listFiles();
+		if (jars == null)
+			return;
+
+		long size = 0;
+		for (final File f : jars)
+			size += f.length();
+		if (size <= maxSize)
+			return;
+
+		Arrays.sort(jars, new Comparator<File>() {
+			@Override
+			public int compare(final File f1, final File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+
+		for (int i = 0; i < jars.length && size > maxSize; i++) {
+			if (!jars[i].getName().endsWith(".jar"))
+				continue;
+			final long len = jars[i].length();
+			if (jars[i].delete())
+				size -= len;
+		}
+	}
+
+	private static void copy(final File from, final File to) throws IOException {
+		final InputStream in = new BufferedInputStream(new FileInputStream(from));
+		try {
+			final OutputStream out = new BufferedOutputStream(new FileOutputStream(to));
+			try {
+				final byte[] b = new byte[4096];
+				int len;
+				while ((len = in.read(b)) > 0)
+					out.write(b, 0, len);
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -17,7 +17,9 @@
 package boa.compiler;
 
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import boa.types.BoaFunction;
 import boa.types.BoaName;
@@ -30,31 +32,48 @@ import boa.types.BoaVarargs;
  * @author rdyer
  */
 public class FunctionTrie {
+	/** Cached lookups are dropped when there are more than this many. */
+	private static final int MAX_CACHED = 4096;
+
+	/** Marks a cached lookup that found no function. */
+	private static final Object NONE = new Object();
+
+	// keeps insertion order, so the first matching overload added wins
 	@SuppressWarnings("rawtypes")
-	private final HashMap trie;
+	private final LinkedHashMap trie;
+
+	// results of lookups from this trie, by name and argument types
+	private final Map<Signature, Object> cache = new ConcurrentHashMap<Signature, Object>();
 
 	@SuppressWarnings("rawtypes")
 	public FunctionTrie() {
-		this.trie = new HashMap();
+		this.trie = new LinkedHashMap();
 	}
 
-	private BoaFunction getFunction(final Object[] ids) {
-		if (this.trie.containsKey(ids[0])) {
-			if (ids[0].equals(""))
-				return getFunction();
-			else
-				return ((FunctionTrie) this.trie.get(ids[0])).getFunction(Arrays.copyOfRange(ids, 1, ids.length));
-		} else {
-			for (final Object o : this.trie.keySet()) {
-				if (o instanceof BoaVarargs && ((BoaVarargs) o).accepts((BoaType) ids[0]))
-					return ((FunctionTrie) this.trie.get(o)).getFunction();
+	private BoaFunction getFunction(final Object[] ids, final int index) {
+		final Object id = ids[index];
 
-				if (o instanceof BoaType && !(ids[0] instanceof String) && ((BoaType) o).accepts((BoaType) ids[0])) {
-					final BoaFunction function = ((FunctionTrie) this.trie.get(o)).getFunction(Arrays.copyOfRange(ids, 1, ids.length));
+		// first try an exact match
+		final Object exact = this.trie.get(id);
+		if (exact != null) {
+			if (id.equals(""))
+				return (BoaFunction) exact;
+			return ((FunctionTrie) exact).getFunction(ids, index + 1);
+		}
+
+		// names and the end marker only match exactly
+		if (id instanceof String)
+			return null;
+
+		for (final Object o : this.trie.keySet()) {
+			if (o instanceof BoaVarargs && ((BoaVarargs) o).accepts((BoaType) id))
+				return ((FunctionTrie) this.trie.get(o)).getFunction();
 
-					if (function != null)
-						return function;
-				}
+			if (o instanceof BoaType && ((BoaType) o).accepts((BoaType) id)) {
+				final BoaFunction function = ((FunctionTrie) this.trie.get(o)).getFunction(ids, index + 1);
+
+				if (function != null)
+					return function;
 			}
 		}
 
@@ -70,6 +89,12 @@ public class FunctionTrie {
 	}
 
 	public BoaFunction getFunction(final String name, final BoaType[] formalParameters) {
+		final Signature signature = new Signature(name, formalParameters);
+
+		final Object cached = this.cache.get(signature);
+		if (cached != null)
+			return cached == NONE ? null : (BoaFunction) cached;
+
 		final Object[] ids = new Object[formalParameters.length + 2];
 
 		ids[0] = name;
@@ -79,7 +104,13 @@ public class FunctionTrie {
 
 		ids[ids.length - 1] = "";
 
-		return this.getFunction(ids);
+		final BoaFunction function = this.getFunction(ids, 0);
+
+		if (this.cache.size() >= MAX_CACHED)
+			this.cache.clear();
+		this.cache.put(signature, function == null ? NONE : function);
+
+		return function;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -117,5 +148,40 @@ public class FunctionTrie {
 		ids[ids.length - 1] = "";
 
 		this.addFunction(ids, boaFunction);
+
+		// a new overload may be a better match for earlier lookups
+		this.cache.clear();
+	}
+
+	/**
+	 * The name and argument types of a function lookup.
+	 */
+	private static class Signature {
+		private final String name;
+		private final BoaType[] types;
+		private final int hash;
+
+		public Signature(final String name, final BoaType[] types) {
+			this.name = name;
+			this.types = types.clone();
+			this.hash = 31 * name.hashCode() + Arrays.hashCode(this.types);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Signature))
+				return false;
+			final Signature other = (Signature) obj;
+			return hash == other.hash && name.equals(other.name) && Arrays.equals(types, other.types);
+		}
 	}
 }
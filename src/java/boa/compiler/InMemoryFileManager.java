@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.JavaFileObject.Kind;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * A {@link javax.tools.JavaFileManager} that reads generated sources from
+ * memory and keeps the compiled classes in memory, instead of going through
+ * a temporary directory.
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+	private final Map<String, ByteArrayOutputStream> classes = new LinkedHashMap<String, ByteArrayOutputStream>();
+
+	public InMemoryFileManager(final StandardJavaFileManager fileManager) {
+		super(fileManager);
+	}
+
+	/**
+	 * Creates a source file object for the given class.
+	 * 
+	 * @param className the fully qualified name of the class
+	 * @param source the source code
+	 * @return the source file object
+	 */
+	public static JavaFileObject source(final String className, final String source) {
+		return new SimpleJavaFileObject(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(final boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public JavaFileObject getJavaFileForOutput(final Location location, final String className, final Kind kind, final FileObject sibling) {
+		return new SimpleJavaFileObject(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind) {
+			@Override
+			public OutputStream openOutputStream() {
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				classes.put(className, out);
+				return out;
+			}
+		};
+	}
+
+	/**
+	 * @return the compiled classes, from fully qualified class name to bytecode
+	 */
+	public Map<String, byte[]> getClasses() {
+		final Map<String, byte[]> m = new LinkedHashMap<String, byte[]>();
+
+		for (final Entry<String, ByteArrayOutputStream> e : this.classes.entrySet())
+			m.put(e.getKey(), e.getValue().toByteArray());
+
+		return m;
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import boa.compiler.visitors.JobCostEstimatingVisitor;
+
+/**
+ * A static cost model for a compiled set of jobs.  Every job runs on each
+ * project in the same map task, so the model sums the cost estimates of all
+ * input programs to pick the input split size, the number of reducers and
+ * how much heap the map and reduce tasks need.
+ */
+public class JobCostModel {
+	public final static long MB = 1024 * 1024;
+
+	/** the split size used when no job needs ASTs */
+	public final static long METADATA_SPLIT_SIZE = 64 * MB;
+	/** the split size used when a job needs ASTs */
+	public final static long AST_SPLIT_SIZE = 10 * MB;
+	/** the smallest split size the model will pick */
+	public final static long MIN_SPLIT_SIZE = 1 * MB;
+
+	/** how many units of work a map task handles before its splits shrink */
+	public final static int LOAD_PER_SPLIT = 4;
+	/** the code size (statements and factors) counting as one extra unit of work */
+	public final static int SIZE_PER_LOAD = 500;
+	/** the traversal depth past which a visitor reaches statements and expressions */
+	public final static int DEEP_TRAVERSAL = 8;
+	/** the per-project fan-out past which a job gets its own reducer */
+	public final static long HEAVY_FANOUT = 1000;
+	/** how many light jobs share a reducer */
+	public final static int LIGHT_PER_REDUCER = 4;
+
+	public final static int AST_MAP_HEAP = 2048;
+	public final static int DEEP_AST_MAP_HEAP = 3072;
+	public final static int UNBOUNDED_REDUCE_HEAP = 2048;
+	public final static int INDEXED_UNBOUNDED_REDUCE_HEAP = 4096;
+
+	private int programs;
+	private int astLoad;
+	private int metadataLoad;
+	private final List<Integer> heavy = new ArrayList<Integer>();
+	private final List<Integer> light = new ArrayList<Integer>();
+	private boolean needsAst;
+	private boolean deepAst;
+	private boolean unbounded;
+	private boolean indexedUnbounded;
+
+	/**
+	 * Adds the estimated cost of one input program.
+	 * 
+	 * @param id the program's job id
+	 * @param cost the program's cost estimate
+	 */
+	public void add(final int id, final JobCostEstimatingVisitor cost) {
+		programs++;
+
+		final boolean deep = cost.getDepth() >= DEEP_TRAVERSAL;
+		final int load = 1 + cost.getSize() / SIZE_PER_LOAD + (deep ? 1 : 0);
+		if (cost.needsAst()) {
+			needsAst = true;
+			deepAst |= deep;
+			astLoad += load;
+		} else {
+			metadataLoad += load;
+		}
+
+		if (cost.hasIndexedOutput() || cost.hasUnboundedOutput() || cost.getFanOut() >= HEAVY_FANOUT)
+			heavy.add(id);
+		else
+			light.add(id);
+
+		unbounded |= cost.hasUnboundedOutput();
+		indexedUnbounded |= cost.hasUnboundedOutput() && cost.hasIndexedOutput();
+	}
+
+	/**
+	 * The input split size for the job.  Jobs needing ASTs start at a smaller
+	 * split, and splits shrink further as more work is done per project.
+	 * 
+	 * @return the split size, in bytes
+	 */
+	public long getSplitSize() {
+		final long base = needsAst ? AST_SPLIT_SIZE : METADATA_SPLIT_SIZE;
+		final int load = needsAst ? astLoad : metadataLoad;
+
+		if (load <= LOAD_PER_SPLIT)
+			return base;
+		return Math.max(MIN_SPLIT_SIZE, base * LOAD_PER_SPLIT / load);
+	}
+
+	/**
+	 * The number of reducers for the job.  Keys are partitioned by job, so
+	 * more reducers than jobs would sit idle.  Heavy jobs get a reducer of
+	 * their own while light jobs share (see {@link #getPartitions(int)}).
+	 * 
+	 * @param max the number of jobs
+	 * @return the number of reducers
+	 */
+	public int getReducers(final int max) {
+		final int reducers = heavy.size() + (light.size() + LIGHT_PER_REDUCER - 1) / LIGHT_PER_REDUCER;
+		return Math.max(1, Math.min(max, reducers));
+	}
+
+	/**
+	 * The reducer each job's keys are partitioned to.  Heavy jobs take the
+	 * first reducers, one each, and light jobs are spread over the rest.
+	 * Jobs that were never added (failed to compile) emit nothing and map
+	 * to the first reducer.
+	 * 
+	 * @param max the number of jobs
+	 * @return the reducer for each job id
+	 */
+	public List<Integer> getPartitions(final int max) {
+		final int reducers = getReducers(max);
+		final int shared = Math.max(1, reducers - heavy.size());
+
+		final List<Integer> partitions = new ArrayList<Integer>();
+		for (int i = 0; i < max; i++)
+			partitions.add(0);
+		for (int i = 0; i < heavy.size(); i++)
+			partitions.set(heavy.get(i), i % reducers);
+		for (int i = 0; i < light.size(); i++)
+			partitions.set(light.get(i), (heavy.size() + i % shared) % reducers);
+		return partitions;
+	}
+
+	/**
+	 * The heap size for map tasks.
+	 * 
+	 * @return the heap size in MB, or 0 to use the cluster's default
+	 */
+	public int getMapHeap() {
+		if (deepAst)
+			return DEEP_AST_MAP_HEAP;
+		if (needsAst)
+			return AST_MAP_HEAP;
+		return 0;
+	}
+
+	/**
+	 * The heap size for reduce tasks.
+	 * 
+	 * @return the heap size in MB, or 0 to use the cluster's default
+	 */
+	public int getReduceHeap() {
+		if (indexedUnbounded)
+			return INDEXED_UNBOUNDED_REDUCE_HEAP;
+		if (unbounded)
+			return UNBOUNDED_REDUCE_HEAP;
+		return 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public String toString() {
+		return programs + " programs (" + heavy.size() + " heavy), split size " + (getSplitSize() / MB) + "MB"
+			+ ", map heap " + (getMapHeap() == 0 ? "default" : getMapHeap() + "MB")
+			+ ", reduce heap " + (getReduceHeap() == 0 ? "default" : getReduceHeap() + "MB");
+	}
+}
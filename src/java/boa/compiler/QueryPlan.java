@@ -0,0 +1,290 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import boa.compiler.visitors.JobCostEstimatingVisitor;
+
+/**
+ * The decisions the compiler made for a set of programs, as printed by the
+ * <code>--explain</code> option: how each program was transformed, which
+ * programs were fused into each job, how each output table is aggregated and
+ * what the cost model picked for the whole jar.
+ */
+public class QueryPlan {
+	/**
+	 * The decisions made for a single input program.
+	 */
+	public static class ProgramPlan {
+		final String name;
+		final String file;
+		boolean failed;
+		boolean simple;
+		boolean filtered;
+		int inlined;
+		List<String> memoizedFunctions = Collections.emptyList();
+		int hoisted;
+		int liftedStops;
+		List<String> aggregatedVars = Collections.emptyList();
+		JobCostEstimatingVisitor cost;
+
+		ProgramPlan(final String name, final String file) {
+			this.name = name;
+			this.file = file;
+		}
+	}
+
+	/**
+	 * A generated job, which runs one or more (fused) programs.
+	 */
+	public static class JobPlan {
+		final String name;
+		final List<String> programs;
+		final int addedStops;
+
+		JobPlan(final String name, final List<String> programs, final int addedStops) {
+			this.name = name;
+			this.programs = programs;
+			this.addedStops = addedStops;
+		}
+	}
+
+	private static final Pattern tablePattern = Pattern.compile("put\\(\"([^\"]+)\", (.*)\\);");
+	private static final Pattern aggregatorPattern = Pattern.compile("new ([\\w.$]+)\\.(\\w+)\\(");
+
+	protected final List<ProgramPlan> programs = new ArrayList<ProgramPlan>();
+	protected final List<JobPlan> jobs = new ArrayList<JobPlan>();
+	protected String fusionError;
+	protected List<String> combineTables = Collections.emptyList();
+	protected List<String> reduceTables = Collections.emptyList();
+	protected List<String> memoized = Collections.emptyList();
+	protected JobCostModel costModel;
+	protected int reducers;
+
+	public ProgramPlan addProgram(final String name, final String file) {
+		final ProgramPlan p = new ProgramPlan(name, file);
+		programs.add(p);
+		return p;
+	}
+
+	public ProgramPlan getProgram(final String name) {
+		for (final ProgramPlan p : programs)
+			if (p.name.equals(name))
+				return p;
+		return null;
+	}
+
+	public void addJob(final String name, final List<String> programs, final int addedStops) {
+		jobs.add(new JobPlan(name, programs, addedStops));
+	}
+
+	public void setFusionError(final String error) {
+		fusionError = error;
+	}
+
+	public void setTables(final List<String> combineTables, final List<String> reduceTables) {
+		this.combineTables = combineTables;
+		this.reduceTables = reduceTables;
+	}
+
+	public void setMemoized(final List<String> memoized) {
+		this.memoized = memoized;
+	}
+
+	public void setCostModel(final JobCostModel costModel, final int reducers) {
+		this.costModel = costModel;
+		this.reducers = reducers;
+	}
+
+	/**
+	 * Describes the output tables, from the code registering their aggregators.
+	 * 
+	 * @return a list of table name, aggregators and whether it combines
+	 */
+	protected List<String[]> getTables() {
+		final List<String[]> tables = new ArrayList<String[]>();
+
+		for (final String s : reduceTables) {
+			final Matcher m = tablePattern.matcher(s);
+			if (!m.find())
+				continue;
+
+			String aggregators = "";
+			final Matcher m2 = aggregatorPattern.matcher(m.group(2));
+			while (m2.find())
+				aggregators += (aggregators.isEmpty() ? "" : ", ") + m2.group(2);
+
+			tables.add(new String[] { m.group(1), aggregators, "" + combineTables.contains(s) });
+		}
+
+		return tables;
+	}
+
+	/**
+	 * Renders the plan for people to read.
+	 * 
+	 * @return the plan as text
+	 */
+	public String toText() {
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("Programs:\n");
+		for (final ProgramPlan p : programs) {
+			sb.append("  " + p.name + ": " + p.file + "\n");
+			if (p.failed) {
+				sb.append("    compilation failed\n");
+				continue;
+			}
+			sb.append("    task complexity: " + (p.simple ? "simple" : "complex") + "\n");
+			sb.append("    project filter: " + (p.filtered ? "yes" : "no") + "\n");
+			sb.append("    function calls inlined: " + p.inlined + "\n");
+			sb.append("    memoized functions: " + (p.memoizedFunctions.isEmpty() ? "none" : join(p.memoizedFunctions)) + "\n");
+			sb.append("    loop invariants hoisted: " + p.hoisted + "\n");
+			sb.append("    locally aggregated: " + (p.aggregatedVars.isEmpty() ? "none" : join(p.aggregatedVars)) + "\n");
+			if (p.liftedStops > 0)
+				sb.append("    visit clauses with stops lifted for fusion: " + p.liftedStops + "\n");
+			if (p.cost != null) {
+				sb.append("    estimated traversal depth: " + p.cost.getDepth() + (p.cost.needsAst() ? " (needs ASTs)" : "") + "\n");
+				sb.append("    estimated code size: " + p.cost.getSize() + "\n");
+				for (final Entry<String, Long> e : p.cost.getFanOuts().entrySet())
+					sb.append("    estimated emits to " + e.getKey() + " per project: " + e.getValue() + "\n");
+			}
+		}
+
+		sb.append("Jobs:\n");
+		for (final JobPlan j : jobs) {
+			sb.append("  Job" + j.name + ": " + (j.programs.size() > 1 ? "fuses programs " : "runs program ") + join(j.programs) + "\n");
+			if (j.addedStops > 0)
+				sb.append("    stops added to visitors not needing ASTs: " + j.addedStops + "\n");
+		}
+		if (fusionError != null)
+			sb.append("  fusing visitors failed, so programs were not fused: " + fusionError + "\n");
+
+		sb.append("Output tables:\n");
+		for (final String[] t : getTables())
+			sb.append("  " + t[0] + ": " + t[1] + (Boolean.parseBoolean(t[2]) ? " (combines)" : " (reduce only)") + "\n");
+
+		if (!memoized.isEmpty())
+			sb.append("Memoized calls: " + join(memoized) + "\n");
+
+		if (costModel != null) {
+			sb.append("Cost model: " + costModel + "\n");
+			sb.append("  reducers: " + reducers + "\n");
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Renders the plan as JSON, for tools to read.
+	 * 
+	 * @return the plan as a JSON object
+	 */
+	public String toJson() {
+		final StringBuilder sb = new StringBuilder();
+
+		sb.append("{\n  \"programs\": [");
+		for (int i = 0; i < programs.size(); i++) {
+			final ProgramPlan p = programs.get(i);
+			sb.append(i == 0 ? "\n" : ",\n");
+			sb.append("    {\"name\": " + quote(p.name) + ", \"file\": " + quote(p.file) + ", \"failed\": " + p.failed);
+			if (!p.failed) {
+				sb.append(", \"complexity\": " + quote(p.simple ? "simple" : "complex"));
+				sb.append(", \"filtered\": " + p.filtered);
+				sb.append(", \"inlined\": " + p.inlined);
+				sb.append(", \"memoizedFunctions\": " + quote(p.memoizedFunctions));
+				sb.append(", \"hoisted\": " + p.hoisted);
+				sb.append(", \"locallyAggregated\": " + quote(p.aggregatedVars));
+				sb.append(", \"liftedStops\": " + p.liftedStops);
+				if (p.cost != null) {
+					sb.append(", \"depth\": " + p.cost.getDepth());
+					sb.append(", \"needsAst\": " + p.cost.needsAst());
+					sb.append(", \"size\": " + p.cost.getSize());
+					sb.append(", \"fanOut\": {");
+					String sep = "";
+					for (final Entry<String, Long> e : p.cost.getFanOuts().entrySet()) {
+						sb.append(sep + quote(e.getKey()) + ": " + e.getValue());
+						sep = ", ";
+					}
+					sb.append("}");
+				}
+			}
+			sb.append("}");
+		}
+		sb.append("\n  ],\n  \"jobs\": [");
+		for (int i = 0; i < jobs.size(); i++) {
+			final JobPlan j = jobs.get(i);
+			sb.append(i == 0 ? "\n" : ",\n");
+			sb.append("    {\"name\": " + quote("Job" + j.name) + ", \"programs\": " + quote(j.programs) + ", \"addedStops\": " + j.addedStops + "}");
+		}
+		sb.append("\n  ],\n  \"fusionError\": " + (fusionError == null ? "null" : quote(fusionError)));
+		sb.append(",\n  \"tables\": [");
+		final List<String[]> tables = getTables();
+		for (int i = 0; i < tables.size(); i++) {
+			sb.append(i == 0 ? "\n" : ",\n");
+			sb.append("    {\"name\": " + quote(tables.get(i)[0]) + ", \"aggregators\": " + quote(tables.get(i)[1]) + ", \"combines\": " + tables.get(i)[2] + "}");
+		}
+		sb.append("\n  ],\n  \"memoized\": " + quote(memoized));
+		if (costModel != null) {
+			sb.append(",\n  \"splitSize\": " + costModel.getSplitSize());
+			sb.append(",\n  \"reducers\": " + reducers);
+			sb.append(",\n  \"mapHeap\": " + costModel.getMapHeap());
+			sb.append(",\n  \"reduceHeap\": " + costModel.getReduceHeap());
+		}
+		sb.append("\n}\n");
+
+		return sb.toString();
+	}
+
+	private static String join(final List<String> l) {
+		String s = "";
+		for (final String e : l)
+			s += (s.isEmpty() ? "" : ", ") + e;
+		return s;
+	}
+
+	private static String quote(final List<String> l) {
+		String s = "";
+		for (final String e : l)
+			s += (s.isEmpty() ? "" : ", ") + quote(e);
+		return "[" + s + "]";
+	}
+
+	private static String quote(final String s) {
+		final StringBuilder sb = new StringBuilder("\"");
+		for (final char c : s.toCharArray())
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if (c < 0x20)
+						sb.append(String.format("\\u%04x", (int) c));
+					else
+						sb.append(c);
+			}
+		return sb.append("\"").toString();
+	}
+}
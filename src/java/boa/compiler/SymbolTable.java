@@ -40,11 +40,13 @@ import boa.compiler.ast.Operand;
 public class SymbolTable {
 	private static HashMap<String, Class<?>> aggregators;
 	private static final Map<Class<?>, BoaType> protomap;
-	private static Map<String, BoaType> idmap;
+	private static final Map<String, BoaType> idmap;
 	private static final Map<String, BoaType> globals;
 	private static FunctionTrie globalFunctions;
+	private static List<URL> initializedLibs;
 
 	private FunctionTrie functions;
+	private Map<String, BoaType> types;
 	private Map<String, BoaType> locals;
 
 	private String id;
@@ -134,15 +136,15 @@ public class SymbolTable {
 		globalFunctions.addFunction("def", new BoaFunction(new BoaBool(), new BoaType[] { new BoaAny() }, "(${0} != null)"));
 		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaProtoList(new BoaScalar()) }, "${0}.size()"));
 		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaArray(new BoaScalar()) }, "${0}.length"));
-		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaMap(new BoaScalar(), new BoaScalar()) }, "${0}.keySet().size()"));
+		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaMap(new BoaScalar(), new BoaScalar()) }, "${0}.size()"));
 		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaStack(new BoaScalar()) }, "${0}.size()"));
 		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaSet(new BoaScalar()) }, "${0}.size()"));
 		globalFunctions.addFunction("len", new BoaFunction(new BoaInt(), new BoaType[] { new BoaString() }, "${0}.length()"));
 
 		// map functions
 		globalFunctions.addFunction("haskey", new BoaFunction(new BoaBool(), new BoaType[] { new BoaMap(new BoaScalar(), new BoaScalar()), new BoaScalar() }, "${0}.containsKey(${1})"));
-		globalFunctions.addFunction("keys", new BoaFunction(new BoaArray(new BoaTypeVar("K")), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")) }, "boa.functions.BoaIntrinsics.basic_array(${0}.keySet().toArray(new ${K}[0]))"));
-		globalFunctions.addFunction("values", new BoaFunction(new BoaArray(new BoaTypeVar("V")), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")) }, "boa.functions.BoaIntrinsics.basic_array(${0}.values().toArray(new ${V}[0]))"));
+		globalFunctions.addFunction("keys", new BoaFunction(new BoaArray(new BoaTypeVar("K")), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")) }, "boa.functions.BoaIntrinsics.basic_array(boa.functions.BoaIntrinsics.map_keys(${0}, new ${K}[0]))"));
+		globalFunctions.addFunction("values", new BoaFunction(new BoaArray(new BoaTypeVar("V")), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")) }, "boa.functions.BoaIntrinsics.basic_array(boa.functions.BoaIntrinsics.map_values(${0}, new ${V}[0]))"));
 		globalFunctions.addFunction("lookup", new BoaFunction(new BoaTypeVar("V"), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")), new BoaTypeVar("K"), new BoaTypeVar("V") }, "(${0}.containsKey(${1}) ? ${0}.get(${1}) : ${2})"));
 		globalFunctions.addFunction("remove", new BoaFunction(new BoaAny(), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")), new BoaTypeVar("K") }, "${0}.remove(${1})"));
 		globalFunctions.addFunction("clear", new BoaFunction(new BoaAny(), new BoaType[] { new BoaMap(new BoaTypeVar("V"), new BoaTypeVar("K")) }, "${0}.clear()"));
@@ -328,17 +330,28 @@ public class SymbolTable {
 	public SymbolTable() {
 		// variables with a local scope
 		this.locals = new HashMap<String, BoaType>();
+		// user-declared types, shared by every scope of one program
+		this.types = new HashMap<String, BoaType>();
 		functions = new FunctionTrie();
 	}
 
 	public static void initialize(final List<URL> libs) throws IOException {
+		// the built-in and library functions only need to be imported once per JVM
+		if (initializedLibs != null) {
+			if (!initializedLibs.equals(libs))
+				throw new RuntimeException("symbol table already initialized with libraries " + initializedLibs);
+			return;
+		}
+
 		importLibs(libs);
+		initializedLibs = new ArrayList<URL>(libs);
 	}
 
 	public SymbolTable cloneNonLocals() throws IOException {
 		SymbolTable st = new SymbolTable();
 
 		st.functions = this.functions;
+		st.types = this.types;
 		st.locals = new HashMap<String, BoaType>(this.locals);
 		st.isBeforeVisitor = this.isBeforeVisitor;
 
@@ -350,8 +363,8 @@ public class SymbolTable {
 	}
 
 	public void set(final String id, final BoaType type, final boolean global) {
-		if (idmap.containsKey(id))
-			throw new RuntimeException(id + " already declared as type " + idmap.get(id));
+		if (this.hasType(id))
+			throw new RuntimeException(id + " already declared as type " + this.getType(id));
 
 		if (type instanceof BoaFunction)
 			this.setFunction(id, (BoaFunction) type);
@@ -371,8 +384,8 @@ public class SymbolTable {
 	}
 
 	public BoaType get(final String id) {
-		if (idmap.containsKey(id))
-			return idmap.get(id);
+		if (this.hasType(id))
+			return this.getType(id);
 
 		if (globals.containsKey(id))
 			return globals.get(id);
@@ -384,25 +397,32 @@ public class SymbolTable {
 	}
 
 	public boolean hasType(final String id) {
-		return idmap.containsKey(id);
+		return idmap.containsKey(id) || this.types.containsKey(id);
+	}
+
+	public BoaType getType(final String id) {
+		if (this.types.containsKey(id))
+			return this.types.get(id);
+
+		return getBuiltinType(id);
 	}
 
-	public static BoaType getType(final String id) {
+	public static BoaType getBuiltinType(final String id) {
 		if (idmap.containsKey(id))
 			return idmap.get(id);
 
 		if (id.startsWith("array of "))
-			return new BoaArray(getType(id.substring("array of ".length()).trim()));
+			return new BoaArray(getBuiltinType(id.substring("array of ".length()).trim()));
 
 		if (id.startsWith("map"))
-			return new BoaMap(getType(id.substring(id.indexOf(" of ") + " of ".length()).trim()),
-					getType(id.substring(id.indexOf("[") + 1, id.indexOf("]")).trim()));
+			return new BoaMap(getBuiltinType(id.substring(id.indexOf(" of ") + " of ".length()).trim()),
+					getBuiltinType(id.substring(id.indexOf("[") + 1, id.indexOf("]")).trim()));
 
 		throw new RuntimeException("no such type " + id);
 	}
 
 	public void setType(final String id, final BoaType boaType) {
-		idmap.put(id, boaType);
+		this.types.put(id, boaType);
 	}
 
 	private static void importAggregator(final Class<?> clazz) {
@@ -464,12 +484,12 @@ public class SymbolTable {
 
 			// check for varargs
 			if (id.endsWith("..."))
-				formalParameterTypes[i] = new BoaVarargs(getType(id.substring(0, id.indexOf('.'))));
+				formalParameterTypes[i] = new BoaVarargs(getBuiltinType(id.substring(0, id.indexOf('.'))));
 			else
-				formalParameterTypes[i] = getType(id);
+				formalParameterTypes[i] = getBuiltinType(id);
 		}
 
-		globalFunctions.addFunction(annotation.name(), new BoaFunction(m.getDeclaringClass().getCanonicalName() + '.' + m.getName(), getType(annotation.returnType()), formalParameterTypes));
+		globalFunctions.addFunction(annotation.name(), new BoaFunction(m.getDeclaringClass().getCanonicalName() + '.' + m.getName(), getBuiltinType(annotation.returnType()), formalParameterTypes));
 	}
 
 	private static void importFunctions(final Class<?> c) {
@@ -525,6 +545,7 @@ public class SymbolTable {
 			boa.aggregators.MaximumAggregator.class,
 			boa.aggregators.MedianAggregator.class,
 			boa.aggregators.MinimumAggregator.class,
+			boa.aggregators.SampleAggregator.class,
 			boa.aggregators.SetAggregator.class,
 			boa.aggregators.SkewnessAggregator.class,
 			boa.aggregators.StatisticsAggregator.class,
@@ -36,6 +36,11 @@ public class Factor extends Node {
 		return op;
 	}
 
+	public void setOperand(final Operand op) {
+		op.setParent(this);
+		this.op = op;
+	}
+
 	public List<Node> getOps() {
 		return ops;
 	}
@@ -31,6 +31,7 @@ import boa.compiler.visitors.AbstractVisitorNoReturn;
 public class FunctionExpression extends Operand {
 	protected AbstractType t;
 	protected Block body;
+	protected boolean memoized;
 
 	public AbstractType getType() {
 		return t;
@@ -40,6 +41,14 @@ public class FunctionExpression extends Operand {
 		return body;
 	}
 
+	public boolean isMemoized() {
+		return memoized;
+	}
+
+	public void setMemoized(final boolean memoized) {
+		this.memoized = memoized;
+	}
+
 	public FunctionExpression (final AbstractType t, final Block body) {
 		if (t != null)
 			t.setParent(this);
@@ -69,6 +78,7 @@ public class FunctionExpression extends Operand {
 
 	public FunctionExpression clone() {
 		final FunctionExpression e = new FunctionExpression(t.clone(), body.clone());
+		e.memoized = memoized;
 		copyFieldsTo(e);
 		return e;
 	}
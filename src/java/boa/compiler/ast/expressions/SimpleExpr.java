@@ -39,6 +39,11 @@ public class SimpleExpr extends Node {
 		return lhs;
 	}
 
+	public void setLhs(final Term lhs) {
+		lhs.setParent(this);
+		this.lhs = lhs;
+	}
+
 	public List<String> getOps() {
 		return ops;
 	}
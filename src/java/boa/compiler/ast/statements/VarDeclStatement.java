@@ -16,6 +16,12 @@
  */
 package boa.compiler.ast.statements;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import boa.compiler.ast.Identifier;
 import boa.compiler.ast.expressions.Expression;
 import boa.compiler.ast.types.AbstractType;
@@ -29,10 +35,25 @@ import boa.compiler.visitors.AbstractVisitorNoReturn;
  * @author hridesh
  */
 public class VarDeclStatement extends Statement {
+	/** The annotations a declaration may have, written as bare identifiers before it. */
+	protected final static Set<String> knownAnnotations = new HashSet<String>(Arrays.asList("nomemo"));
+
+	/**
+	 * Determines if an identifier is a known annotation.  The parser only
+	 * reads a leading identifier as an annotation if it is one.
+	 * 
+	 * @param name the identifier
+	 * @return true if it is an annotation
+	 */
+	public static boolean isAnnotation(final String name) {
+		return knownAnnotations.contains(name);
+	}
+
 	protected boolean isStatic;
 	protected Identifier identifier;
 	protected AbstractType t;
 	protected Expression initializer;
+	protected final List<Identifier> annotations = new ArrayList<Identifier>();
 
 	public boolean isStatic() {
 		return isStatic;
@@ -72,6 +93,22 @@ public class VarDeclStatement extends Statement {
 		this.initializer = initializer;
 	}
 
+	public List<Identifier> getAnnotations() {
+		return annotations;
+	}
+
+	public boolean hasAnnotation(final String name) {
+		for (final Identifier a : annotations)
+			if (a.getToken().equals(name))
+				return true;
+		return false;
+	}
+
+	public void addAnnotation(final Identifier a) {
+		a.setParent(this);
+		annotations.add(a);
+	}
+
 	public VarDeclStatement (final Identifier identifier) {
 		this(false, identifier, null, null);
 	}
@@ -137,6 +174,8 @@ public class VarDeclStatement extends Statement {
 			v.t = t.clone();
 		if (hasInitializer())
 			v.initializer = initializer.clone();
+		for (final Identifier a : annotations)
+			v.addAnnotation(a.clone());
 		copyFieldsTo(v);
 		return v;
 	}
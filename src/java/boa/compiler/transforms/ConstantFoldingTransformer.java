@@ -0,0 +1,434 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.transforms;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import boa.compiler.SymbolTable;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Conjunction;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Operand;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.UnaryFactor;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.ParenExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
+import boa.compiler.ast.literals.FloatLiteral;
+import boa.compiler.ast.literals.IntegerLiteral;
+import boa.compiler.ast.statements.Block;
+import boa.compiler.ast.statements.IfStatement;
+import boa.compiler.ast.statements.Statement;
+import boa.compiler.ast.statements.WhileStatement;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.types.BoaBool;
+import boa.types.BoaFloat;
+import boa.types.BoaInt;
+import boa.types.BoaType;
+
+/**
+ * Folds constant int, float and bool expressions into literals, and removes
+ * branches whose conditions are constant.  Expressions are evaluated with
+ * the same semantics as the generated Java code, so folding never changes
+ * the result of a program.  Time values are never folded.
+ * 
+ * Must run after type checking, as it relies on the types of expressions.
+ */
+public class ConstantFoldingTransformer extends AbstractVisitorNoArg {
+	//
+	// statements
+	//
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final IfStatement n) {
+		super.visit(n);
+
+		final Object cond = constant(n.getCondition());
+		if (!(cond instanceof Boolean) || !(n.getParent() instanceof Block))
+			return;
+
+		if ((Boolean) cond)
+			n.replaceStatement(n, n.getBody());
+		else if (n.hasElse())
+			n.replaceStatement(n, n.getElse());
+		else
+			n.replaceStatement(n, emptyBlock(n));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final WhileStatement n) {
+		super.visit(n);
+
+		if (Boolean.FALSE.equals(constant(n.getCondition())) && n.getParent() instanceof Block)
+			n.replaceStatement(n, emptyBlock(n));
+	}
+
+	private static Block emptyBlock(final Statement n) {
+		final Block b = new Block();
+		b.env = n.env;
+		return b;
+	}
+
+	//
+	// expressions
+	//
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Expression n) {
+		super.visit(n);
+
+		// drop constant false operands, and anything after a constant true
+		final List<Conjunction> operands = new ArrayList<Conjunction>();
+		operands.add(n.getLhs());
+		operands.addAll(n.getRhs());
+
+		final List<Conjunction> kept = new ArrayList<Conjunction>();
+		for (final Conjunction c : operands) {
+			final Object value = constant(c);
+			if (Boolean.FALSE.equals(value))
+				continue;
+			kept.add(c);
+			if (Boolean.TRUE.equals(value))
+				break;
+		}
+
+		if (kept.size() == operands.size())
+			return;
+
+		if (kept.isEmpty())
+			kept.add(operands.get(operands.size() - 1));
+
+		n.setLhs(kept.get(0));
+		n.getRhs().clear();
+		for (int i = 1; i < kept.size(); i++)
+			n.addRhs(kept.get(i));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Conjunction n) {
+		super.visit(n);
+
+		final List<Comparison> operands = new ArrayList<Comparison>();
+		operands.add(n.getLhs());
+		operands.addAll(n.getRhs());
+
+		// fold comparisons of constants
+		boolean changed = false;
+		for (int i = 0; i < operands.size(); i++) {
+			final Comparison c = operands.get(i);
+			if (!c.hasRhs())
+				continue;
+
+			final Object value = compare(c.getOp(), constant(c.getLhs()), constant(c.getRhs()));
+			if (value != null) {
+				operands.set(i, new Comparison(literalExpr(value, c)));
+				copyFields(c, operands.get(i));
+				changed = true;
+			}
+		}
+
+		// drop constant true operands, and anything after a constant false
+		final List<Comparison> kept = new ArrayList<Comparison>();
+		for (final Comparison c : operands) {
+			final Object value = constant(c);
+			if (Boolean.TRUE.equals(value))
+				continue;
+			kept.add(c);
+			if (Boolean.FALSE.equals(value))
+				break;
+		}
+
+		if (!changed && kept.size() == operands.size())
+			return;
+
+		if (kept.isEmpty())
+			kept.add(operands.get(operands.size() - 1));
+
+		n.setLhs(kept.get(0));
+		n.getOps().clear();
+		n.getRhs().clear();
+		for (int i = 1; i < kept.size(); i++) {
+			n.addOp("and");
+			n.addRhs(kept.get(i));
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final SimpleExpr n) {
+		super.visit(n);
+
+		Object value = constant(n.getLhs());
+		for (int i = 0; value != null && i < n.getRhsSize(); i++)
+			value = apply(n.getOp(i), value, constant(n.getRhs(i)));
+
+		if (value == null || !foldable(n.type, value) || (n.getRhsSize() == 0 && isLiteral(n.getLhs().getLhs())))
+			return;
+
+		final Term t = new Term(literal(value, n));
+		copyFields(n, t);
+		n.setLhs(t);
+		n.getOps().clear();
+		n.getRhs().clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Term n) {
+		super.visit(n);
+
+		Object value = constant(n.getLhs());
+		for (int i = 0; value != null && i < n.getRhsSize(); i++)
+			value = apply(n.getOp(i), value, constant(n.getRhs(i)));
+
+		if (value == null || !foldable(n.type, value) || (n.getRhsSize() == 0 && isLiteral(n.getLhs())))
+			return;
+
+		n.setLhs(literal(value, n));
+		n.getOps().clear();
+		n.getRhs().clear();
+	}
+
+	//
+	// constant evaluation
+	//
+	/**
+	 * Returns the value of a constant node: a {@link Long}, {@link Double}
+	 * or {@link Boolean}, or <code>null</code> if the node is not constant.
+	 */
+	private static Object constant(final Expression n) {
+		return n.getRhs().isEmpty() ? constant(n.getLhs()) : null;
+	}
+
+	private static Object constant(final Conjunction n) {
+		return n.getRhs().isEmpty() ? constant(n.getLhs()) : null;
+	}
+
+	private static Object constant(final Comparison n) {
+		return n.hasRhs() ? null : constant(n.getLhs());
+	}
+
+	private static Object constant(final SimpleExpr n) {
+		return n.getRhs().isEmpty() ? constant(n.getLhs()) : null;
+	}
+
+	private static Object constant(final Term n) {
+		return n.getRhs().isEmpty() ? constant(n.getLhs()) : null;
+	}
+
+	private static Object constant(final Factor n) {
+		if (n.getOpsSize() > 0)
+			return null;
+
+		final Operand op = n.getOperand();
+
+		if (op instanceof IntegerLiteral) {
+			final String lit = ((IntegerLiteral) op).getLiteral();
+			try {
+				if (lit.startsWith("0b") || lit.startsWith("0B"))
+					return Long.parseLong(lit.substring(2), 2);
+				return Long.decode(lit);
+			} catch (final NumberFormatException e) {
+				return null;
+			}
+		}
+
+		if (op instanceof FloatLiteral)
+			return Double.valueOf(((FloatLiteral) op).getLiteral());
+
+		if (op instanceof Identifier && op.type instanceof BoaBool) {
+			final String id = ((Identifier) op).getToken();
+			if (op.env != null && op.env.hasLocal(id))
+				return null;
+			if (id.equals("true"))
+				return Boolean.TRUE;
+			if (id.equals("false"))
+				return Boolean.FALSE;
+			return null;
+		}
+
+		if (op instanceof ParenExpression)
+			return constant(((ParenExpression) op).getExpression());
+
+		if (op instanceof UnaryFactor) {
+			final UnaryFactor u = (UnaryFactor) op;
+			final Object value = constant(u.getFactor());
+			if (value == null)
+				return null;
+
+			if (u.getOp().equals("+") && !(value instanceof Boolean))
+				return value;
+			if (u.getOp().equals("-") && value instanceof Long)
+				return -(Long) value;
+			if (u.getOp().equals("-") && value instanceof Double)
+				return -(Double) value;
+			if (u.getOp().equals("~") && value instanceof Long)
+				return ~(Long) value;
+			if ((u.getOp().equals("!") || u.getOp().equals("not")) && value instanceof Boolean)
+				return !(Boolean) value;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Applies a binary operator the way Java does: if either operand is a
+	 * float the operation is done on floats, otherwise on ints.
+	 * 
+	 * @return the result, or <code>null</code> if it can not be folded
+	 */
+	private static Object apply(final String op, final Object lhs, final Object rhs) {
+		if (lhs == null || rhs == null)
+			return null;
+
+		if (lhs instanceof Boolean && rhs instanceof Boolean) {
+			final boolean a = (Boolean) lhs, b = (Boolean) rhs;
+			if (op.equals("&")) return a & b;
+			if (op.equals("|")) return a | b;
+			if (op.equals("^")) return a ^ b;
+			return null;
+		}
+
+		if (lhs instanceof Long && rhs instanceof Long) {
+			final long a = (Long) lhs, b = (Long) rhs;
+			if (op.equals("+")) return a + b;
+			if (op.equals("-")) return a - b;
+			if (op.equals("*")) return a * b;
+			// leave division by zero to fail at runtime
+			if (op.equals("/")) return b == 0 ? null : a / b;
+			if (op.equals("%")) return b == 0 ? null : a % b;
+			if (op.equals("<<")) return a << b;
+			if (op.equals(">>")) return a >> b;
+			if (op.equals("&")) return a & b;
+			if (op.equals("|")) return a | b;
+			if (op.equals("^")) return a ^ b;
+			return null;
+		}
+
+		if (lhs instanceof Boolean || rhs instanceof Boolean)
+			return null;
+
+		final double a = ((Number) lhs).doubleValue(), b = ((Number) rhs).doubleValue();
+		if (op.equals("+")) return a + b;
+		if (op.equals("-")) return a - b;
+		if (op.equals("*")) return a * b;
+		if (op.equals("/")) return a / b;
+		if (op.equals("%")) return a % b;
+		return null;
+	}
+
+	private static Object compare(final String op, final Object lhs, final Object rhs) {
+		if (lhs == null || rhs == null)
+			return null;
+
+		if (lhs instanceof Boolean && rhs instanceof Boolean) {
+			if (op.equals("==")) return lhs.equals(rhs);
+			if (op.equals("!=")) return !lhs.equals(rhs);
+			return null;
+		}
+
+		if (lhs instanceof Boolean || rhs instanceof Boolean)
+			return null;
+
+		final int cmp;
+		if (lhs instanceof Long && rhs instanceof Long) {
+			cmp = ((Long) lhs).compareTo((Long) rhs);
+		} else {
+			final double a = ((Number) lhs).doubleValue(), b = ((Number) rhs).doubleValue();
+			// comparisons with NaN are all false (except !=), which compareTo does not model
+			if (Double.isNaN(a) || Double.isNaN(b))
+				return null;
+			cmp = a < b ? -1 : a > b ? 1 : 0;
+		}
+
+		if (op.equals("==")) return cmp == 0;
+		if (op.equals("!=")) return cmp != 0;
+		if (op.equals("<")) return cmp < 0;
+		if (op.equals("<=")) return cmp <= 0;
+		if (op.equals(">")) return cmp > 0;
+		if (op.equals(">=")) return cmp >= 0;
+		return null;
+	}
+
+	/**
+	 * Only fold values of the node's own type, so e.g. time arithmetic is
+	 * left alone, and only values that can be written as literals.
+	 */
+	private static boolean foldable(final BoaType type, final Object value) {
+		if (value instanceof Long)
+			return type instanceof BoaInt;
+		if (value instanceof Double)
+			return type instanceof BoaFloat && !Double.isNaN((Double) value) && !Double.isInfinite((Double) value);
+		return value instanceof Boolean && type instanceof BoaBool;
+	}
+
+	private static boolean isLiteral(final Factor f) {
+		final Operand op = f.getOperand();
+		return f.getOpsSize() == 0 && (op instanceof IntegerLiteral || op instanceof FloatLiteral
+				|| (op instanceof Identifier && constant(f) != null));
+	}
+
+	//
+	// building literals
+	//
+	private static Factor literal(final Object value, final Node n) {
+		final Operand op;
+		if (value instanceof Long) {
+			op = new IntegerLiteral(value.toString());
+			op.type = new BoaInt();
+		} else if (value instanceof Double) {
+			op = new FloatLiteral(value.toString());
+			op.type = new BoaFloat();
+		} else {
+			op = new Identifier(value.toString());
+			op.type = new BoaBool();
+		}
+
+		final Factor f = new Factor(op);
+		copyFields(n, op);
+		copyFields(n, f);
+		f.type = op.type;
+		return f;
+	}
+
+	private static SimpleExpr literalExpr(final Object value, final Node n) {
+		final Term t = new Term(literal(value, n));
+		final SimpleExpr e = new SimpleExpr(t);
+		copyFields(n, t);
+		copyFields(n, e);
+		t.type = e.type = t.getLhs().type;
+		return e;
+	}
+
+	private static void copyFields(final Node from, final Node to) {
+		to.env = findEnv(from);
+		if (to.type == null)
+			to.type = from.type;
+		to.setPositions(from.beginLine, from.beginColumn, from.endLine, from.endColumn);
+	}
+
+	private static SymbolTable findEnv(Node n) {
+		while (n != null && n.env == null)
+			n = n.getParent();
+		return n == null ? null : n.env;
+	}
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.transforms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Component;
+import boa.compiler.ast.Conjunction;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Operand;
+import boa.compiler.ast.Program;
+import boa.compiler.ast.Selector;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.ParenExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.literals.ILiteral;
+import boa.compiler.ast.statements.Block;
+import boa.compiler.ast.statements.ReturnStatement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.ast.types.FunctionType;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.compiler.visitors.TypeCheckingVisitor;
+import boa.types.BoaFunction;
+import boa.types.BoaName;
+import boa.types.BoaType;
+
+/**
+ * Inlines calls to small functions.  Each function is compiled to its own
+ * class and called through an interface, which the JIT often can not inline
+ * in hot visit clauses, so calls are replaced by the function's body.
+ * 
+ * A function is inlined if its body is a single return of a small expression,
+ * its variable is declared once and only ever called (never assigned, passed
+ * or returned), and it does not call itself.  A call is only inlined if its
+ * arguments are variables, literals or selectors of them, so evaluating them
+ * any number of times (or not at all) gives the same result, and if their
+ * types match the parameters exactly.  Functions whose calls were all inlined
+ * are removed.
+ * 
+ * An inlined body looks up its names at the call site rather than where the
+ * function was declared, so a function is not inlined if its body uses any
+ * name (other than its parameters) that is declared more than once, as a
+ * parameter or quantifier variable at the call site could then shadow it.
+ * 
+ * Must run after type checking, as it relies on the types of expressions.
+ */
+public class FunctionInliningTransformer extends AbstractVisitorNoArg {
+	/** the largest function body (in factors) that is inlined */
+	public final static int MAX_INLINED_SIZE = 20;
+
+	/**
+	 * Finds the declared names in a program, and how each one is used.
+	 */
+	protected class NameFindingVisitor extends AbstractVisitorNoArg {
+		protected final Map<String, VarDeclStatement> decls = new HashMap<String, VarDeclStatement>();
+		protected final Set<String> redeclared = new HashSet<String>();
+		protected final Map<String, Integer> calls = new HashMap<String, Integer>();
+		protected final Set<String> escaping = new HashSet<String>();
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			decls.clear();
+			redeclared.clear();
+			calls.clear();
+			escaping.clear();
+		}
+
+		protected void declare(final String name, final VarDeclStatement n) {
+			if (decls.containsKey(name) || redeclared.contains(name)) {
+				redeclared.add(name);
+				decls.remove(name);
+			} else {
+				decls.put(name, n);
+			}
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			declare(n.getId().getToken(), n);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Component n) {
+			if (n.hasIdentifier())
+				declare(n.getIdentifier().getToken(), null);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			if (n.getOperand() instanceof Identifier) {
+				final String name = ((Identifier) n.getOperand()).getToken();
+				if (n.getOpsSize() > 0 && n.getOp(0) instanceof Call)
+					calls.put(name, calls.containsKey(name) ? calls.get(name) + 1 : 1);
+				else
+					escaping.add(name);
+			}
+			super.visit(n);
+		}
+	}
+
+	/**
+	 * Measures a function body, and if it can be inlined.
+	 */
+	protected class BodyCheckingVisitor extends AbstractVisitorNoArg {
+		protected String name;
+		protected Set<String> params;
+		protected int size;
+		protected boolean inlinable;
+
+		public boolean check(final String name, final Set<String> params, final Expression e) {
+			this.name = name;
+			this.params = params;
+			start(e);
+			return inlinable && size <= MAX_INLINED_SIZE;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			size = 0;
+			inlinable = true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			size++;
+			if (n.getOperand() instanceof Identifier) {
+				final String id = ((Identifier) n.getOperand()).getToken();
+				if (id.equals(name))
+					inlinable = false;
+				// the name might refer to something else at the call site
+				if (!params.contains(id) && nameFinder.redeclared.contains(id))
+					inlinable = false;
+			}
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			inlinable = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			inlinable = false;
+		}
+	}
+
+	/**
+	 * Replaces the uses of parameters in an inlined body with the arguments.
+	 */
+	protected class ParameterReplacingVisitor extends AbstractVisitorNoArg {
+		protected Map<String, Factor> args;
+
+		public void start(final Node n, final Map<String, Factor> args) {
+			this.args = args;
+			start(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			super.visit(n);
+
+			if (!(n.getOperand() instanceof Identifier))
+				return;
+			final Factor arg = args.get(((Identifier) n.getOperand()).getToken());
+			if (arg == null)
+				return;
+
+			final List<Node> ops = new ArrayList<Node>();
+			for (final Node op : arg.getOps())
+				ops.add(op.clone());
+			ops.addAll(n.getOps());
+
+			n.setOperand(arg.getOperand().clone());
+			n.getOps().clear();
+			for (final Node op : ops)
+				n.addOp(op);
+		}
+	}
+
+	protected final NameFindingVisitor nameFinder = new NameFindingVisitor();
+	protected final BodyCheckingVisitor bodyChecker = new BodyCheckingVisitor();
+	protected final ParameterReplacingVisitor paramReplacer = new ParameterReplacingVisitor();
+	protected final TypeCheckingVisitor typeChecker = new TypeCheckingVisitor();
+
+	protected final Map<String, FunctionExpression> inlinable = new HashMap<String, FunctionExpression>();
+	protected final Map<String, Integer> inlined = new HashMap<String, Integer>();
+	protected final Set<String> expanding = new HashSet<String>();
+	protected int count;
+
+	/**
+	 * The number of calls that were inlined.
+	 * 
+	 * @return the number of inlined calls
+	 */
+	public int getInlinedCount() {
+		return count;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		inlinable.clear();
+		inlined.clear();
+		expanding.clear();
+		count = 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final Node n) {
+		initialize();
+
+		nameFinder.start(n);
+		for (final Map.Entry<String, VarDeclStatement> e : nameFinder.decls.entrySet()) {
+			final String name = e.getKey();
+			if (nameFinder.escaping.contains(name) || !nameFinder.calls.containsKey(name) || e.getValue() == null)
+				continue;
+
+			final FunctionExpression f = asFunction(e.getValue());
+			if (f != null && isInlinable(name, f))
+				inlinable.put(name, f);
+		}
+
+		if (inlinable.isEmpty())
+			return;
+
+		n.accept(this);
+
+		// functions whose every call was inlined are no longer needed
+		for (final String name : inlinable.keySet()) {
+			if (!nameFinder.calls.get(name).equals(inlined.get(name)))
+				continue;
+
+			final VarDeclStatement decl = nameFinder.decls.get(name);
+			final Node parent = decl.getParent();
+			if (parent instanceof Block)
+				((Block) parent).getStatements().remove(decl);
+			else if (parent instanceof Program)
+				((Program) parent).getStatements().remove(decl);
+		}
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Factor n) {
+		super.visit(n);
+
+		if (!(n.getOperand() instanceof Identifier) || n.getOpsSize() == 0 || !(n.getOp(0) instanceof Call))
+			return;
+
+		final String name = ((Identifier) n.getOperand()).getToken();
+		final FunctionExpression f = inlinable.get(name);
+		if (f == null || expanding.contains(name))
+			return;
+
+		final FunctionType type = (FunctionType) f.getType();
+		final Call call = (Call) n.getOp(0);
+		if (call.getArgsSize() != type.getArgsSize())
+			return;
+
+		final Map<String, Factor> args = new HashMap<String, Factor>();
+		for (int i = 0; i < call.getArgsSize(); i++) {
+			final Factor arg = asFactor(call.getArg(i));
+			if (arg == null || !isSimple(arg) || !sameType(arg.type, type.getArg(i).getType().type))
+				return;
+			args.put(type.getArg(i).getIdentifier().getToken(), arg);
+		}
+
+		final Expression body = ((ReturnStatement) f.getBody().getStatement(0)).getExpr().clone();
+		paramReplacer.start(body, args);
+
+		final ParenExpression paren = new ParenExpression(body);
+		n.setOperand(paren);
+		n.getOps().remove(0);
+		typeChecker.start(paren, n.env);
+
+		inlined.put(name, inlined.containsKey(name) ? inlined.get(name) + 1 : 1);
+		count++;
+
+		// calls in the inlined body may also be inlined, but not into themselves
+		expanding.add(name);
+		paren.accept(this);
+		expanding.remove(name);
+	}
+
+	protected boolean isInlinable(final String name, final FunctionExpression f) {
+		final Block body = f.getBody();
+		if (body.getStatementsSize() != 1 || !(body.getStatement(0) instanceof ReturnStatement))
+			return false;
+
+		final ReturnStatement ret = (ReturnStatement) body.getStatement(0);
+		if (!ret.hasExpr() || !(f.getType().type instanceof BoaFunction))
+			return false;
+		if (!sameType(ret.getExpr().type, ((BoaFunction) f.getType().type).getType()))
+			return false;
+
+		final Set<String> params = new HashSet<String>();
+		for (final Component c : ((FunctionType) f.getType()).getArgs()) {
+			if (c.getType().type instanceof BoaFunction)
+				return false;
+			params.add(c.getIdentifier().getToken());
+		}
+
+		return bodyChecker.check(name, params, ret.getExpr());
+	}
+
+	private static FunctionExpression asFunction(final VarDeclStatement n) {
+		if (!n.hasInitializer())
+			return null;
+		final Factor f = asFactor(n.getInitializer());
+		if (f == null || f.getOpsSize() > 0 || !(f.getOperand() instanceof FunctionExpression))
+			return null;
+		return (FunctionExpression) f.getOperand();
+	}
+
+	/**
+	 * An argument is simple if evaluating it has no side effects and costs
+	 * next to nothing: a variable or literal, with only selectors applied.
+	 */
+	private static boolean isSimple(final Factor f) {
+		final Operand op = f.getOperand();
+		if (!(op instanceof Identifier || op instanceof ILiteral))
+			return false;
+		for (final Node n : f.getOps())
+			if (!(n instanceof Selector))
+				return false;
+		return true;
+	}
+
+	private static boolean sameType(final BoaType t1, final BoaType t2) {
+		if (t1 == null || t2 == null)
+			return false;
+		return unname(t1).toJavaType().equals(unname(t2).toJavaType());
+	}
+
+	private static BoaType unname(final BoaType t) {
+		if (t instanceof BoaName)
+			return ((BoaName) t).getType();
+		return t;
+	}
+
+	private static Factor asFactor(final Expression e) {
+		if (e.getRhsSize() > 0)
+			return null;
+		final Conjunction c = e.getLhs();
+		if (c.getRhsSize() > 0)
+			return null;
+		final Comparison cmp = c.getLhs();
+		if (cmp.hasRhs())
+			return null;
+		final SimpleExpr s = cmp.getLhs();
+		if (s.getRhsSize() > 0)
+			return null;
+		final Term t = s.getLhs();
+		if (t.getRhsSize() > 0)
+			return null;
+		return t.getLhs();
+	}
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.transforms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Component;
+import boa.compiler.ast.Conjunction;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.statements.DoStatement;
+import boa.compiler.ast.statements.EmitStatement;
+import boa.compiler.ast.statements.ExistsStatement;
+import boa.compiler.ast.statements.ForStatement;
+import boa.compiler.ast.statements.ForeachStatement;
+import boa.compiler.ast.statements.IfAllStatement;
+import boa.compiler.ast.statements.StopStatement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.ast.statements.VisitStatement;
+import boa.compiler.ast.statements.WhileStatement;
+import boa.compiler.ast.types.FunctionType;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.types.BoaBool;
+import boa.types.BoaFloat;
+import boa.types.BoaFunction;
+import boa.types.BoaInt;
+import boa.types.BoaName;
+import boa.types.BoaString;
+import boa.types.BoaTime;
+import boa.types.BoaType;
+
+/**
+ * Finds pure functions and marks them to be memoized.  A function is pure if
+ * it does not emit, visit or stop, reads and writes only its own parameters
+ * and local variables, and only calls other pure functions or built-in
+ * functions known to be pure.  The code generator then caches its results
+ * in a bounded cache per task, keyed by its arguments.
+ * 
+ * Only functions declared once and otherwise only ever called are memoized,
+ * and only if their parameters and return are scalars or strings (so the
+ * arguments make good keys and the results can be shared), and if they do
+ * some real work (a call or a loop) worth more than a cache lookup.
+ * Declaring a function with a leading <code>nomemo</code> annotation opts it out.
+ * 
+ * Must run after type checking, as it relies on the types of expressions.
+ */
+public class FunctionMemoizingTransformer extends AbstractVisitorNoArg {
+	/** the built-in function classes whose functions are pure */
+	protected final static List<String> pureClasses = Arrays.asList(
+		"boa.functions.BoaCasts.",
+		"boa.functions.BoaMathIntrinsics.",
+		"boa.functions.BoaSpecialIntrinsics.",
+		"boa.functions.BoaStringIntrinsics.",
+		"boa.functions.BoaTimeIntrinsics.",
+		"java.lang."
+	);
+
+	/** the functions in those classes that are not pure */
+	protected final static Set<String> impureFunctions = new HashSet<String>(Arrays.asList(
+		"boa.functions.BoaMathIntrinsics.rand",
+		"boa.functions.BoaMathIntrinsics.nRand",
+		"boa.functions.BoaTimeIntrinsics.now"
+	));
+
+	/** the built-in macros that are not pure */
+	protected final static Set<String> impureMacros = new HashSet<String>(Arrays.asList(
+		"visit",
+		"_cur_visitor",
+		"ast_len"
+	));
+
+	/**
+	 * Finds the declared names in a program, and how each one is used.
+	 */
+	protected class NameFindingVisitor extends AbstractVisitorNoArg {
+		protected final Map<String, VarDeclStatement> decls = new LinkedHashMap<String, VarDeclStatement>();
+		protected final Set<String> declared = new HashSet<String>();
+		protected final Set<String> escaping = new HashSet<String>();
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			decls.clear();
+			declared.clear();
+			escaping.clear();
+		}
+
+		protected void declare(final String name, final VarDeclStatement n) {
+			if (declared.contains(name))
+				decls.remove(name);
+			else if (n != null)
+				decls.put(name, n);
+			declared.add(name);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			declare(n.getId().getToken(), n);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Component n) {
+			if (n.hasIdentifier())
+				declare(n.getIdentifier().getToken(), null);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			if (n.getOperand() instanceof Identifier)
+				if (n.getOpsSize() == 0 || !(n.getOp(0) instanceof Call))
+					escaping.add(((Identifier) n.getOperand()).getToken());
+			super.visit(n);
+		}
+	}
+
+	/**
+	 * Finds the local variables of a function, including its parameters.
+	 */
+	protected class LocalFindingVisitor extends AbstractVisitorNoArg {
+		protected final Set<String> locals = new HashSet<String>();
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			locals.clear();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			locals.add(n.getId().getToken());
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Component n) {
+			if (n.hasIdentifier())
+				locals.add(n.getIdentifier().getToken());
+			super.visit(n);
+		}
+	}
+
+	/**
+	 * Checks if a function body is pure, and which functions it calls.
+	 */
+	protected class PurityCheckingVisitor extends AbstractVisitorNoArg {
+		protected final LocalFindingVisitor localFinder = new LocalFindingVisitor();
+		protected final Set<String> calls = new HashSet<String>();
+		protected boolean pure;
+		protected boolean works;
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			calls.clear();
+			pure = true;
+			works = false;
+		}
+
+		public void start(final FunctionExpression f) {
+			localFinder.start(f);
+			start(f.getBody());
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			super.visit(n);
+
+			if (!(n.getOperand() instanceof Identifier))
+				return;
+
+			final String name = ((Identifier) n.getOperand()).getToken();
+			if (localFinder.locals.contains(name))
+				return;
+
+			if (n.getOpsSize() == 0 || !(n.getOp(0) instanceof Call)) {
+				// types (e.g. enum values) are fine, variables of outer scopes are not
+				if (!n.env.hasType(name))
+					pure = false;
+				return;
+			}
+
+			works = true;
+			if (nameFinder.declared.contains(name))
+				calls.add(name);
+			else if (!isPure(name, (Call) n.getOp(0), n))
+				pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			if (n.isStatic())
+				pure = false;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final EmitStatement n) {
+			pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final StopStatement n) {
+			pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitStatement n) {
+			pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			pure = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final DoStatement n) {
+			works = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final ExistsStatement n) {
+			works = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final ForeachStatement n) {
+			works = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final ForStatement n) {
+			works = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final IfAllStatement n) {
+			works = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final WhileStatement n) {
+			works = true;
+			super.visit(n);
+		}
+	}
+
+	protected final NameFindingVisitor nameFinder = new NameFindingVisitor();
+	protected final PurityCheckingVisitor purityChecker = new PurityCheckingVisitor();
+
+	protected final List<String> memoized = new ArrayList<String>();
+
+	/**
+	 * The names of the functions that were marked to be memoized.
+	 * 
+	 * @return the names of the memoized functions
+	 */
+	public List<String> getMemoizedFunctions() {
+		return memoized;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		memoized.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void start(final Node n) {
+		initialize();
+
+		nameFinder.start(n);
+
+		final Map<String, FunctionExpression> functions = new LinkedHashMap<String, FunctionExpression>();
+		final Map<String, Set<String>> calls = new HashMap<String, Set<String>>();
+		final Set<String> works = new HashSet<String>();
+		for (final Map.Entry<String, VarDeclStatement> e : nameFinder.decls.entrySet()) {
+			final String name = e.getKey();
+			final FunctionExpression f = asFunction(e.getValue());
+			if (f == null || nameFinder.escaping.contains(name))
+				continue;
+
+			purityChecker.start(f);
+			if (!purityChecker.pure)
+				continue;
+
+			functions.put(name, f);
+			calls.put(name, new HashSet<String>(purityChecker.calls));
+			if (purityChecker.works)
+				works.add(name);
+		}
+
+		// a function is only pure if all the functions it calls are
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (final String name : new ArrayList<String>(functions.keySet()))
+				if (!functions.keySet().containsAll(calls.get(name))) {
+					functions.remove(name);
+					changed = true;
+				}
+		}
+
+		for (final Map.Entry<String, FunctionExpression> e : functions.entrySet()) {
+			final String name = e.getKey();
+			final FunctionExpression f = e.getValue();
+			if (!works.contains(name) || nameFinder.decls.get(name).hasAnnotation("nomemo") || !isMemoizable(f))
+				continue;
+
+			f.setMemoized(true);
+			memoized.add(name);
+		}
+	}
+
+	/**
+	 * A built-in function is pure if it is a macro other than a few that touch
+	 * the visitor, or is in one of the classes known to only hold pure functions.
+	 */
+	protected boolean isPure(final String name, final Call c, final Factor n) {
+		final List<BoaType> types = new ArrayList<BoaType>();
+		for (final Expression e : c.getArgs())
+			types.add(e.type instanceof BoaFunction ? ((BoaFunction) e.type).getType() : e.type);
+
+		final BoaFunction f;
+		try {
+			f = n.env.getFunction(name, types);
+		} catch (final RuntimeException e) {
+			return false;
+		}
+
+		if (f.hasMacro())
+			return !impureMacros.contains(name);
+		if (!f.hasName() || impureFunctions.contains(f.getName()))
+			return false;
+		for (final String prefix : pureClasses)
+			if (f.getName().startsWith(prefix))
+				return true;
+		return false;
+	}
+
+	/**
+	 * A pure function is memoizable if it takes at least one parameter, and
+	 * all of its parameters and its return are scalars or strings.
+	 */
+	protected boolean isMemoizable(final FunctionExpression f) {
+		if (!(f.getType().type instanceof BoaFunction))
+			return false;
+
+		final FunctionType t = (FunctionType) f.getType();
+		if (t.getArgsSize() == 0 || !isKey(((BoaFunction) t.type).getType()))
+			return false;
+
+		for (final Component c : t.getArgs())
+			if (!isKey(c.getType().type))
+				return false;
+		return true;
+	}
+
+	private static boolean isKey(BoaType t) {
+		if (t instanceof BoaName)
+			t = ((BoaName) t).getType();
+		return t instanceof BoaInt || t instanceof BoaFloat || t instanceof BoaBool || t instanceof BoaString || t instanceof BoaTime;
+	}
+
+	private static FunctionExpression asFunction(final VarDeclStatement n) {
+		if (!n.hasInitializer())
+			return null;
+		final Factor f = asFactor(n.getInitializer());
+		if (f == null || f.getOpsSize() > 0 || !(f.getOperand() instanceof FunctionExpression))
+			return null;
+		return (FunctionExpression) f.getOperand();
+	}
+
+	private static Factor asFactor(final Expression e) {
+		if (e.getRhsSize() > 0)
+			return null;
+		final Conjunction c = e.getLhs();
+		if (c.getRhsSize() > 0)
+			return null;
+		final Comparison cmp = c.getLhs();
+		if (cmp.hasRhs())
+			return null;
+		final SimpleExpr s = cmp.getLhs();
+		if (s.getRhsSize() > 0)
+			return null;
+		final Term t = s.getLhs();
+		if (t.getRhsSize() > 0)
+			return null;
+		return t.getLhs();
+	}
+}
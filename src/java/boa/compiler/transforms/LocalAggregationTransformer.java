@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import boa.aggregators.Aggregator;
+import boa.compiler.SymbolTable;
 import boa.compiler.ast.Comparison;
 import boa.compiler.ast.Conjunction;
 import boa.compiler.ast.Factor;
@@ -37,6 +38,7 @@ import boa.compiler.ast.statements.IfStatement;
 import boa.compiler.ast.statements.VarDeclStatement;
 import boa.compiler.ast.types.OutputType;
 import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.compiler.visitors.TypeCheckingVisitor;
 import boa.types.BoaInt;
 
 /**
@@ -79,8 +81,20 @@ public class LocalAggregationTransformer extends AbstractVisitorNoArg {
 
 	protected final SumAggregatorFindingVisitor sumAggregatorFinder = new SumAggregatorFindingVisitor();
 
+	protected final TypeCheckingVisitor typeChecker = new TypeCheckingVisitor();
+	protected final ScopeDeclaringVisitor scopeDeclarer = new ScopeDeclaringVisitor();
+
 	protected final String varPrefix = "_local_aggregator_";
 
+	/**
+	 * The output variables whose emits were aggregated locally.
+	 * 
+	 * @return the names of the locally aggregated output variables
+	 */
+	public List<String> getAggregatedVars() {
+		return sumAggregatorFinder.getVars();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final Program n) {
@@ -122,17 +136,16 @@ public class LocalAggregationTransformer extends AbstractVisitorNoArg {
 				)
 			);
 		n.getStatements().add(0, var);
+		var.setParent(n);
 
-		n.env.set(varPrefix + s, new BoaInt());
-		var.type = var.getInitializer().type = new BoaInt();
-		var.env = n.env;
+		// declared at the top level, but every scope was made before it existed
+		typeChecker.start(var, topLevel(n));
+		scopeDeclarer.start(n, varPrefix + s, new BoaInt());
 	}
 
 	protected void generateCacheOutput(final Program n, String s) {
 		final Identifier id = new Identifier(varPrefix + s);
-		id.env = n.env;
-		n.getStatements().add(
-			new IfStatement(
+		final IfStatement output = new IfStatement(
 				new Expression(
 					new Conjunction(
 						new Comparison(
@@ -166,13 +179,13 @@ public class LocalAggregationTransformer extends AbstractVisitorNoArg {
 						)
 					)
 				)
-			)
-		);
+			);
+		n.addStatement(output);
+		typeChecker.start(output, topLevel(n));
 	}
 
 	protected void generateStoreValue(final EmitStatement n) {
 		final Identifier id = new Identifier(varPrefix + n.getId().getToken());
-		id.env = n.env;
 
 		final SimpleExpr e = new SimpleExpr(
 			new Term(
@@ -188,7 +201,7 @@ public class LocalAggregationTransformer extends AbstractVisitorNoArg {
 			)
 		));
 
-		n.replaceStatement(n, new AssignmentStatement(
+		final AssignmentStatement store = new AssignmentStatement(
 				new Factor(
 					id.clone()
 				),
@@ -196,6 +209,15 @@ public class LocalAggregationTransformer extends AbstractVisitorNoArg {
 					new Conjunction(
 						new Comparison(e)
 					)
-				)));
+				));
+		n.replaceStatement(n, store);
+		typeChecker.start(store, n.env);
+	}
+
+	/**
+	 * The scope of the program's top-level statements.
+	 */
+	private static SymbolTable topLevel(final Program n) {
+		return n.getParent() != null ? n.getParent().env : n.env;
 	}
 }
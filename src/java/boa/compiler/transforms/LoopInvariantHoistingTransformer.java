@@ -0,0 +1,615 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.transforms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import boa.compiler.SymbolTable;
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Component;
+import boa.compiler.ast.Conjunction;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Index;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Operand;
+import boa.compiler.ast.Selector;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.literals.IntegerLiteral;
+import boa.compiler.ast.statements.AssignmentStatement;
+import boa.compiler.ast.statements.Block;
+import boa.compiler.ast.statements.ExistsStatement;
+import boa.compiler.ast.statements.ForStatement;
+import boa.compiler.ast.statements.ForeachStatement;
+import boa.compiler.ast.statements.IfAllStatement;
+import boa.compiler.ast.statements.PostfixStatement;
+import boa.compiler.ast.statements.Statement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.ast.statements.WhileStatement;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.types.BoaArray;
+import boa.types.BoaFunction;
+import boa.types.BoaInt;
+import boa.types.BoaName;
+import boa.types.BoaProtoList;
+import boa.types.BoaProtoTuple;
+import boa.types.BoaString;
+import boa.types.BoaType;
+import boa.types.BoaVisitor;
+
+/**
+ * Moves loop invariant protobuf selector chains (such as
+ * <code>input.code_repositories[i].revisions</code>) and calls to
+ * <code>len()</code> on them out of loops, into local variables declared
+ * right before the loop.  Every occurrence of the chain in the loop is
+ * then replaced by the local.
+ * 
+ * Protobuf values are immutable, so a chain is invariant if none of the
+ * variables it uses are assigned in the loop.  To never evaluate anything
+ * the original program would not have, only chains the loop is guaranteed
+ * to evaluate before its first iteration are hoisted: the unconditional
+ * parts of a loop condition, or the indexee of a quantifier.  Loops that
+ * call user functions or visitors are left alone, as those may assign to
+ * any variable.
+ * 
+ * Must run after type checking, as it relies on the types of expressions.
+ */
+public class LoopInvariantHoistingTransformer extends AbstractVisitorNoArg {
+	/**
+	 * Finds all variables assigned in a loop, and if the loop
+	 * calls code that might assign other variables.
+	 */
+	protected class AssignmentFindingVisitor extends AbstractVisitorNoArg {
+		protected final Set<String> names = new HashSet<String>();
+		protected boolean hasOpaqueCall;
+
+		public Set<String> getNames() {
+			return names;
+		}
+
+		public boolean hasOpaqueCall() {
+			return hasOpaqueCall;
+		}
+
+		public void find(final List<Node> nodes) {
+			names.clear();
+			hasOpaqueCall = false;
+			for (final Node n : nodes)
+				n.accept(this);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final AssignmentStatement n) {
+			addBase(n.getLhs());
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final PostfixStatement n) {
+			addBase(asFactor(n.getExpr()));
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			names.add(n.getId().getToken());
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Component n) {
+			if (n.hasIdentifier())
+				names.add(n.getIdentifier().getToken());
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			if (n.getOpsSize() > 0 && n.getOp(0) instanceof Call && !isBuiltinCall(n))
+				hasOpaqueCall = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			// only runs when called, which is an opaque call
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			// only runs when visited, which is an opaque call
+		}
+
+		private void addBase(final Factor f) {
+			if (f == null || !(f.getOperand() instanceof Identifier))
+				hasOpaqueCall = true;
+			else
+				names.add(((Identifier) f.getOperand()).getToken());
+		}
+	}
+
+	/**
+	 * Collects every factor in a loop, outside of nested functions and
+	 * visitors.
+	 */
+	protected class FactorFindingVisitor extends AbstractVisitorNoArg {
+		protected final List<Factor> factors = new ArrayList<Factor>();
+
+		public List<Factor> getFactors() {
+			return factors;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			factors.clear();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			factors.add(n);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+		}
+	}
+
+	/**
+	 * Collects the factors of a condition that are always evaluated,
+	 * skipping the short-circuited operands of <code>and</code>/<code>or</code>.
+	 */
+	protected class UnconditionalFactorFindingVisitor extends FactorFindingVisitor {
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Expression n) {
+			n.getLhs().accept(this);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Conjunction n) {
+			n.getLhs().accept(this);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			factors.add(n);
+			n.getOperand().accept(this);
+			for (final Node o : n.getOps()) {
+				// other functions may not evaluate all of their arguments
+				if (o instanceof Call && !isLenCall(n) && !isDefCall(n))
+					break;
+				o.accept(this);
+			}
+		}
+	}
+
+	protected final AssignmentFindingVisitor assignmentFinder = new AssignmentFindingVisitor();
+	protected final FactorFindingVisitor factorFinder = new FactorFindingVisitor();
+	protected final UnconditionalFactorFindingVisitor unconditionalFinder = new UnconditionalFactorFindingVisitor();
+	protected final ScopeDeclaringVisitor scopeDeclarer = new ScopeDeclaringVisitor();
+
+	protected final String varPrefix = "_hoisted_";
+	protected int count = 0;
+
+	/**
+	 * The number of invariant expressions hoisted out of loops.
+	 * 
+	 * @return the number of hoisted expressions
+	 */
+	public int getHoistedCount() {
+		return count;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForStatement n) {
+		super.visit(n);
+
+		if (!n.hasCondition())
+			return;
+
+		// hoisted code runs before the init statement, so it must have no side effects
+		if (n.hasInit()) {
+			factorFinder.start(n.getInit());
+			for (final Factor f : factorFinder.getFactors())
+				if (f.getOpsSize() > 0 && f.getOp(0) instanceof Call)
+					return;
+		}
+
+		final List<Node> region = new ArrayList<Node>();
+		if (n.hasInit())
+			region.add(n.getInit());
+		region.add(n.getCondition());
+		if (n.hasUpdate())
+			region.add(n.getUpdate());
+		region.add(n.getBody());
+
+		hoist(n, region, unconditionalKeys(n.getCondition()));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final WhileStatement n) {
+		super.visit(n);
+
+		final List<Node> region = new ArrayList<Node>();
+		region.add(n.getCondition());
+		region.add(n.getBody());
+
+		hoist(n, region, unconditionalKeys(n.getCondition()));
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForeachStatement n) {
+		super.visit(n);
+		hoistQuantifier(n, n.getVar(), n.getCondition(), n.getBody());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ExistsStatement n) {
+		super.visit(n);
+		hoistQuantifier(n, n.getVar(), n.getCondition(), n.getBody());
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final IfAllStatement n) {
+		super.visit(n);
+		hoistQuantifier(n, n.getVar(), n.getCondition(), n.getBody());
+	}
+
+	protected void hoistQuantifier(final Statement n, final Component var, final Expression condition, final Block body) {
+		final List<Node> region = new ArrayList<Node>();
+		region.add(var);
+		region.add(condition);
+		region.add(body);
+
+		hoist(n, region, indexeeKeys(condition, var.getIdentifier().getToken()));
+	}
+
+	/**
+	 * Hoists the invariant chains of a loop.
+	 * 
+	 * @param loop the loop statement
+	 * @param region all nodes of the loop
+	 * @param safe keys of the chains that are evaluated before the loop's first iteration
+	 */
+	protected void hoist(final Statement loop, final List<Node> region, final Set<String> safe) {
+		if (safe.isEmpty() || !(loop.getParent() instanceof Block))
+			return;
+
+		assignmentFinder.find(region);
+		if (assignmentFinder.hasOpaqueCall())
+			return;
+		final Set<String> assigned = new HashSet<String>(assignmentFinder.getNames());
+
+		final List<Factor> factors = new ArrayList<Factor>();
+		for (final Node n : region) {
+			factorFinder.start(n);
+			factors.addAll(factorFinder.getFactors());
+		}
+
+		final Block block = (Block) loop.getParent();
+		final SymbolTable env = block.env != null ? block.env : loop.env;
+		final Map<String, Identifier> hoisted = new HashMap<String, Identifier>();
+
+		for (final Factor f : factors) {
+			// whole calls to len()
+			if (isLenCall(f) && f.getOpsSize() == 1) {
+				final Factor arg = asFactor(((Call) f.getOp(0)).getArgs().get(0));
+				if (arg != null && isInvariant(arg, arg.getOpsSize(), assigned)
+						&& isLenType(arg.type)
+						&& (safe.contains(lenKey(arg)) || (arg.getOpsSize() > 0 && safe.contains(key(arg, arg.getOpsSize()))))) {
+					final Identifier id = declare(block, loop, env, hoisted, lenKey(arg), f, 1, new BoaInt());
+					replace(f, 1, id);
+				}
+				continue;
+			}
+
+			// the longest invariant prefix of a selector chain
+			for (int k = f.getOpsSize(); k > 0; k--) {
+				final String key = key(f, k);
+				if (key == null || !safe.contains(key) || !isInvariant(f, k, assigned))
+					continue;
+
+				final BoaType t = unname(f.getOp(k - 1).type);
+				if (!(t instanceof BoaProtoTuple || t instanceof BoaProtoList || t instanceof BoaArray))
+					continue;
+
+				final Identifier id = declare(block, loop, env, hoisted, key, f, k, f.getOp(k - 1).type);
+				replace(f, k, id);
+				break;
+			}
+		}
+	}
+
+	private Identifier declare(final Block block, final Statement loop, final SymbolTable env, final Map<String, Identifier> hoisted, final String key, final Factor f, final int ops, final BoaType type) {
+		if (!hoisted.containsKey(key)) {
+			final String name = varPrefix + count++;
+
+			final Factor init = new Factor(f.getOperand().clone());
+			for (int i = 0; i < ops; i++)
+				init.addOp(f.getOp(i).clone());
+			init.type = type;
+			init.env = f.env;
+
+			final Identifier id = new Identifier(name);
+			id.type = type;
+			id.env = env;
+
+			final VarDeclStatement var = new VarDeclStatement(id, wrap(init));
+			var.type = type;
+			var.env = env;
+			env.set(name, type);
+
+			block.insertStatementBefore(var, loop);
+			scopeDeclarer.start(loop, name, type);
+			hoisted.put(key, id);
+		}
+
+		return hoisted.get(key);
+	}
+
+	private static void replace(final Factor f, final int ops, final Identifier id) {
+		final Identifier use = id.clone();
+		use.env = f.env;
+		f.setOperand(use);
+		f.getOps().subList(0, ops).clear();
+	}
+
+	private static Expression wrap(final Factor f) {
+		final Term t = new Term(f);
+		final SimpleExpr s = new SimpleExpr(t);
+		final Comparison c = new Comparison(s);
+		final Conjunction j = new Conjunction(c);
+		final Expression e = new Expression(j);
+
+		for (final Node n : new Node[] { t, s, c, j, e }) {
+			n.type = f.type;
+			n.env = f.env;
+		}
+
+		return e;
+	}
+
+	//
+	// chains known to be evaluated before the first iteration
+	//
+	protected Set<String> unconditionalKeys(final Expression condition) {
+		final Set<String> keys = new HashSet<String>();
+
+		unconditionalFinder.start(condition);
+		for (final Factor f : unconditionalFinder.getFactors()) {
+			if (isLenCall(f)) {
+				final Factor arg = asFactor(((Call) f.getOp(0)).getArgs().get(0));
+				if (arg != null && lenKey(arg) != null) {
+					keys.add(lenKey(arg));
+					addPrefixKeys(keys, arg, arg.getOpsSize());
+				}
+			}
+			addPrefixKeys(keys, f, f.getOpsSize());
+		}
+
+		return keys;
+	}
+
+	/**
+	 * The code generated for a quantifier evaluates every indexee (the chain
+	 * before the quantifier variable is used as an index) to find the bounds
+	 * of the loop.
+	 */
+	protected Set<String> indexeeKeys(final Expression condition, final String var) {
+		final Set<String> keys = new HashSet<String>();
+
+		factorFinder.start(condition);
+		for (final Factor f : factorFinder.getFactors())
+			for (int i = 0; i < f.getOpsSize(); i++)
+				if (f.getOp(i) instanceof Call) {
+					break;
+				} else if (f.getOp(i) instanceof Index) {
+					final Operand idx = indexOperand((Index) f.getOp(i));
+					if (idx instanceof Identifier && ((Identifier) idx).getToken().equals(var)) {
+						addPrefixKeys(keys, f, i);
+						break;
+					}
+				}
+
+		return keys;
+	}
+
+	private static void addPrefixKeys(final Set<String> keys, final Factor f, final int ops) {
+		for (int k = 1; k <= ops; k++) {
+			final String key = key(f, k);
+			if (key == null)
+				return;
+			keys.add(key);
+		}
+	}
+
+	//
+	// chain helpers
+	//
+	/**
+	 * Returns a key identifying the first <code>ops</code> operations of the
+	 * factor, or <code>null</code> if they are not a simple selector chain.
+	 */
+	private static String key(final Factor f, final int ops) {
+		if (!(f.getOperand() instanceof Identifier))
+			return null;
+
+		final StringBuilder sb = new StringBuilder(((Identifier) f.getOperand()).getToken());
+		for (int i = 0; i < ops; i++) {
+			final Node op = f.getOp(i);
+			if (op instanceof Selector) {
+				sb.append('.').append(((Selector) op).getId().getToken());
+			} else if (op instanceof Index) {
+				final Operand idx = indexOperand((Index) op);
+				if (idx instanceof Identifier)
+					sb.append('[').append(((Identifier) idx).getToken()).append(']');
+				else if (idx instanceof IntegerLiteral)
+					sb.append('[').append(((IntegerLiteral) idx).getLiteral()).append(']');
+				else
+					return null;
+			} else {
+				return null;
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String lenKey(final Factor arg) {
+		final String key = key(arg, arg.getOpsSize());
+		return key == null ? null : "len(" + key + ")";
+	}
+
+	/**
+	 * Checks the first <code>ops</code> operations of the factor only select
+	 * members of or index into protobuf values and arrays, using variables
+	 * not assigned in the loop.
+	 */
+	private static boolean isInvariant(final Factor f, final int ops, final Set<String> assigned) {
+		if (key(f, ops) == null)
+			return false;
+
+		final String base = ((Identifier) f.getOperand()).getToken();
+		if (assigned.contains(base) || f.getOperand().env == null || !(f.getOperand().env.hasLocal(base) || f.getOperand().env.hasGlobal(base)))
+			return false;
+
+		BoaType t = unname(f.getOperand().type);
+		if (!(t instanceof BoaProtoTuple || t instanceof BoaProtoList || t instanceof BoaArray || t instanceof BoaString))
+			return false;
+
+		for (int i = 0; i < ops; i++) {
+			final Node op = f.getOp(i);
+			if (op instanceof Selector) {
+				if (!(t instanceof BoaProtoTuple))
+					return false;
+			} else {
+				if (!(t instanceof BoaProtoList || t instanceof BoaArray))
+					return false;
+				final Operand idx = indexOperand((Index) op);
+				if (idx instanceof Identifier && assigned.contains(((Identifier) idx).getToken()))
+					return false;
+			}
+			t = unname(op.type);
+		}
+
+		return true;
+	}
+
+	private static boolean isLenType(BoaType t) {
+		t = unname(t);
+		return t instanceof BoaProtoList || t instanceof BoaArray || t instanceof BoaString;
+	}
+
+	private static boolean isLenCall(final Factor f) {
+		return isBuiltinCall(f, "len");
+	}
+
+	private static boolean isDefCall(final Factor f) {
+		return isBuiltinCall(f, "def");
+	}
+
+	private static boolean isBuiltinCall(final Factor f, final String name) {
+		return f.getOpsSize() > 0 && f.getOp(0) instanceof Call && ((Call) f.getOp(0)).getArgsSize() == 1
+				&& f.getOperand() instanceof Identifier && ((Identifier) f.getOperand()).getToken().equals(name)
+				&& isBuiltinCall(f);
+	}
+
+	/**
+	 * Checks if a call is to a built-in function, other than
+	 * <code>visit()</code>, and is not passed any functions or visitors.
+	 */
+	private static boolean isBuiltinCall(final Factor f) {
+		if (!(f.getOperand() instanceof Identifier))
+			return false;
+
+		final String name = ((Identifier) f.getOperand()).getToken();
+		final SymbolTable env = f.getOperand().env != null ? f.getOperand().env : f.env;
+		if (name.equals("visit") || env == null || env.hasLocal(name) || env.hasGlobal(name))
+			return false;
+
+		for (final Expression e : ((Call) f.getOp(0)).getArgs())
+			if (e.type instanceof BoaFunction || e.type instanceof BoaVisitor)
+				return false;
+
+		return true;
+	}
+
+	private static Operand indexOperand(final Index n) {
+		if (n.hasEnd())
+			return null;
+		final Factor f = asFactor(n.getStart());
+		return f == null || f.getOpsSize() > 0 ? null : f.getOperand();
+	}
+
+	/**
+	 * Returns the only factor of an expression, or <code>null</code>
+	 * if the expression has operators.
+	 */
+	private static Factor asFactor(final Expression e) {
+		if (e.getRhsSize() > 0)
+			return null;
+		final Conjunction c = e.getLhs();
+		if (c.getRhsSize() > 0)
+			return null;
+		final Comparison cmp = c.getLhs();
+		if (cmp.hasRhs())
+			return null;
+		final SimpleExpr s = cmp.getLhs();
+		if (s.getRhsSize() > 0)
+			return null;
+		final Term t = s.getLhs();
+		if (t.getRhsSize() > 0)
+			return null;
+		return t.getLhs();
+	}
+
+	private static BoaType unname(final BoaType t) {
+		return t instanceof BoaName ? ((BoaName) t).getType() : t;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.transforms;
+
+import boa.compiler.SymbolTable;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Program;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.statements.Block;
+import boa.compiler.ast.statements.DoStatement;
+import boa.compiler.ast.statements.ExistsStatement;
+import boa.compiler.ast.statements.ForeachStatement;
+import boa.compiler.ast.statements.ForStatement;
+import boa.compiler.ast.statements.IfAllStatement;
+import boa.compiler.ast.statements.Statement;
+import boa.compiler.ast.statements.SwitchStatement;
+import boa.compiler.ast.statements.VisitStatement;
+import boa.compiler.ast.statements.WhileStatement;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.types.BoaType;
+
+/**
+ * Declares a variable added by a transformation in every scope of a tree.
+ * Scopes are copied when a program is type checked, so scopes made before
+ * the variable existed would not otherwise see it, and nodes added to them
+ * later could not be type checked without checking the whole program again.
+ */
+public class ScopeDeclaringVisitor extends AbstractVisitorNoArg {
+	protected String id;
+	protected BoaType type;
+
+	/**
+	 * Declares a variable in every scope of a tree that does not already
+	 * have a local of that name.
+	 * 
+	 * @param n the root of the tree
+	 * @param id the name of the variable
+	 * @param type the type of the variable
+	 */
+	public void start(final Node n, final String id, final BoaType type) {
+		this.id = id;
+		this.type = type;
+		start(n);
+	}
+
+	private void declare(final SymbolTable env) {
+		if (env != null && !env.hasLocal(id))
+			env.set(id, type);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Program n) {
+		declare(n.env);
+		if (n.getParent() != null)
+			declare(n.getParent().env);
+		for (final Statement s : n.getStatements())
+			declare(s.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Block n) {
+		declare(n.env);
+		for (final Statement s : n.getStatements())
+			declare(s.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final FunctionExpression n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final DoStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ExistsStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForeachStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final IfAllStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final SwitchStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VisitStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final WhileStatement n) {
+		declare(n.env);
+		super.visit(n);
+	}
+}
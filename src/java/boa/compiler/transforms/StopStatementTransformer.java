@@ -19,6 +19,8 @@ package boa.compiler.transforms;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,6 +31,7 @@ import boa.compiler.ast.Component;
 import boa.compiler.ast.Conjunction;
 import boa.compiler.ast.Factor;
 import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
 import boa.compiler.ast.Term;
 import boa.compiler.ast.expressions.Expression;
 import boa.compiler.ast.expressions.FunctionExpression;
@@ -40,12 +43,15 @@ import boa.compiler.ast.statements.ExprStatement;
 import boa.compiler.ast.statements.IfStatement;
 import boa.compiler.ast.statements.PostfixStatement;
 import boa.compiler.ast.statements.ReturnStatement;
+import boa.compiler.ast.statements.Statement;
 import boa.compiler.ast.statements.StopStatement;
 import boa.compiler.ast.statements.VarDeclStatement;
 import boa.compiler.ast.statements.VisitStatement;
 import boa.compiler.ast.types.FunctionType;
 import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.compiler.visitors.TypeCheckingVisitor;
 import boa.compiler.visitors.VisitClassifier;
+import boa.types.BoaInt;
 import boa.types.BoaProtoTuple;
 
 /**
@@ -73,6 +79,9 @@ import boa.types.BoaProtoTuple;
  * 7) find all before/after visits with a node type below a node type found in step 1, for each one:
  *    a) add code "if (stop > 0) stop--;", after ALL if() blocks
  * 
+ * Only the nodes this transformation creates are type checked, in the scope
+ * they are added to, so the program does not need to be type checked again.
+ * 
  * @author rdyer
  */
 public class StopStatementTransformer extends AbstractVisitorNoArg {
@@ -186,19 +195,10 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 				if (id.getToken().equals("visit")) {
 					final Call c = (Call)n.getOp(0);
 					if (c.getArgsSize() == 1) {
-						c.addArg(new Expression(
-									new Conjunction(
-											new Comparison(
-												new SimpleExpr(
-													new Term(
-														new Factor(
-															original.clone()
-														)
-													)
-												)
-											)
-										)
-									));
+						final Factor f = new Factor(original.clone());
+						f.type = original.type;
+						f.env = c.env;
+						c.addArg(wrap(f));
 						return;
 					}
 				}
@@ -212,10 +212,22 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 	protected final VisitClassifier visitClassifier = new VisitClassifier();
 	protected final StopTransformer transformStops = new StopTransformer();
 	protected final SelfVisitTransformer transformSelfVisits = new SelfVisitTransformer();
+	protected final TypeCheckingVisitor typeChecker = new TypeCheckingVisitor();
+	protected final ScopeDeclaringVisitor scopeDeclarer = new ScopeDeclaringVisitor();
 
 	protected int counter = 0;
 	protected VisitorExpression original;
 
+	/**
+	 * The number of visit clauses containing stops that were lifted into
+	 * functions.
+	 * 
+	 * @return the number of lifted visit clauses
+	 */
+	public int getLiftedCount() {
+		return counter;
+	}
+
 	/** @{inheritDoc} */
 	@Override
 	protected void initialize() {
@@ -228,7 +240,7 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 	@Override
 	public void visit(VisitorExpression n) {
 		int wildcardStop = 0;
-		final Map<BoaProtoTuple, Integer> beforeStopTypes = new HashMap<BoaProtoTuple, Integer>();
+		final Map<BoaProtoTuple, Integer> beforeStopTypes = new LinkedHashMap<BoaProtoTuple, Integer>();
 		final Map<VisitStatement, Integer> bodyMap = new HashMap<VisitStatement, Integer>();
 
 		original = n.clone();
@@ -241,7 +253,7 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 		//
 		// 2) add a long var declaration to the enclosing scope
 		//
-		n.insertStatementBefore(new VarDeclStatement(new Identifier(varCounterName), new Identifier("int"),
+		final VarDeclStatement counterDecl = new VarDeclStatement(new Identifier(varCounterName), new Identifier("int"),
 				new Expression(
 					new Conjunction(
 							new Comparison(
@@ -255,7 +267,10 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 							)
 						)
 					)
-				));
+				);
+		n.insertStatementBefore(counterDecl);
+		typeChecker.start(counterDecl, n.env);
+		scopeDeclarer.start(n, varCounterName, new BoaInt());
 
 		//
 		// 3) find all visit statements containing stop statements, for each one:
@@ -296,7 +311,8 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 			//       i) replace all stop statements with incrementing long var and a return statement
 			//
 			transformStops.start(funcBody);
-
+			// checked in the visitor's scope, which only has names declared before it
+			typeChecker.start(var, n.getBody().env);
 
 			//
 			//    b) replace the body with a call to the function
@@ -329,6 +345,7 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 								)
 							)
 						)));
+			typeChecker.start(v.getBody(), v.env);
 
 			bodyMap.put(v, counter);
 
@@ -341,8 +358,9 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 					beforeStopTypes.put((BoaProtoTuple)id.type, counter);
 		}
 
-		final Set<BoaProtoTuple> keys = new HashSet<BoaProtoTuple>(beforeStopTypes.keySet());
-		final Set<BoaProtoTuple> remainingAfters = new HashSet<BoaProtoTuple>(keys);
+		// keep the visits' order, so added after visits are generated in a stable order
+		final Set<BoaProtoTuple> keys = new LinkedHashSet<BoaProtoTuple>(beforeStopTypes.keySet());
+		final Set<BoaProtoTuple> remainingAfters = new LinkedHashSet<BoaProtoTuple>(keys);
 
 		//
 		// 4) find all after visits matching the visited node types in step 1, for each one:
@@ -376,7 +394,7 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 			//
 			//    b) add code "if (stop > 0) stop--;", after ALL if() blocks
 			//
-			createReset(v.getBody());
+			typeChecker.start(createReset(v.getBody()), v.getBody().env);
 		}
 
 		//
@@ -387,18 +405,22 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 			//    a) add an after visit for that type
 			//
 			final Block body = new Block();
-			n.getBody().addStatement(new VisitStatement(false, new Component(new Identifier("n"), new Identifier(t.toString())), body));
+			final VisitStatement after = new VisitStatement(false, new Component(new Identifier("n"), new Identifier(t.toString())), body);
+			n.getBody().addStatement(after);
 
 			//
 			//    b) add code "if (stop > 0) stop--;"
 			//
 			createReset(body);
+			typeChecker.start(after, n.getBody().env);
 		}
 
 		if (wildcardStop > 0 && !visitClassifier.hasDefaultAfter()) {
 			final Block body = new Block();
-			n.getBody().addStatement(new VisitStatement(false, true, body));
+			final VisitStatement after = new VisitStatement(false, true, body);
+			n.getBody().addStatement(after);
 			createReset(body);
+			typeChecker.start(after, n.getBody().env);
 		}
 
 		//
@@ -435,8 +457,8 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 		}
 
 		//    c) add code "if (stop > 0) stop++;" to the START of the new body
-		for (final VisitStatement v : bodyMap.keySet())
-			v.getBody().getStatements().add(0, new IfStatement(
+		for (final VisitStatement v : bodyMap.keySet()) {
+			final IfStatement increment = new IfStatement(
 					new Expression(
 						new Conjunction(
 							new Comparison(
@@ -473,10 +495,16 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 									)
 								)
 							), "++"))
-				));
+				);
+			v.getBody().getStatements().add(0, increment);
+			increment.setParent(v.getBody());
+			typeChecker.start(increment, v.getBody().env);
+		}
 	}
 
 	protected void addGuard(final VisitStatement v) {
+		// check the guard alone, then move the already checked body into it
+		final Block guarded = new Block();
 		final Block body = new Block();
 		body.addStatement(new IfStatement(
 				new Expression(
@@ -499,12 +527,16 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 							)
 						)
 					)
-				), v.getBody().clone()));
+				), guarded));
+		typeChecker.start(body, v.env);
+
+		for (final Statement s : v.getBody().clone().getStatements())
+			guarded.addStatement(s);
 		v.setBody(body);
 	}
 
-	protected void createReset(final Block body) {
-		body.addStatement(new IfStatement(
+	protected IfStatement createReset(final Block body) {
+		final IfStatement reset = new IfStatement(
 				new Expression(
 					new Conjunction(
 						new Comparison(
@@ -541,6 +573,23 @@ public class StopStatementTransformer extends AbstractVisitorNoArg {
 								)
 							)
 						), "--"))
-			));
+			);
+		body.addStatement(reset);
+		return reset;
+	}
+
+	private static Expression wrap(final Factor f) {
+		final Term t = new Term(f);
+		final SimpleExpr s = new SimpleExpr(t);
+		final Comparison c = new Comparison(s);
+		final Conjunction j = new Conjunction(c);
+		final Expression e = new Expression(j);
+
+		for (final Node n : new Node[] { t, s, c, j, e }) {
+			n.type = f.type;
+			n.env = f.env;
+		}
+
+		return e;
 	}
 }
@@ -65,11 +65,18 @@ public class VisitorDesugar extends AbstractVisitorNoArg {
 	}
 
 	private VisitStatement createVisit(final VisitStatement old, final Identifier id) {
-		final VisitStatement v = new VisitStatement(old.isBefore(), new Component(new Identifier("_UNUSED"), id.clone()), old.getBody().clone());
+		final Identifier name = new Identifier("_UNUSED");
+		final Component c = new Component(name, id.clone());
+		final VisitStatement v = new VisitStatement(old.isBefore(), c, old.getBody().clone());
 
 		v.type = old.type;
 		v.env = old.env;
 
+		// type the new component, so it never needs to be type checked again
+		name.type = id.type;
+		name.env = c.env = old.env;
+		c.type = id.type;
+
 		v.beginLine = old.beginLine;
 		v.beginColumn = old.beginColumn;
 		v.endLine = old.endLine;
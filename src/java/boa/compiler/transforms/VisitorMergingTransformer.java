@@ -17,58 +17,236 @@
 package boa.compiler.transforms;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import boa.compiler.SymbolTable;
+import boa.compiler.TypeCheckException;
 import boa.compiler.ast.Call;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Component;
+import boa.compiler.ast.Conjunction;
 import boa.compiler.ast.Factor;
 import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
 import boa.compiler.ast.Program;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.expressions.Expression;
 import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
 import boa.compiler.ast.expressions.VisitorExpression;
 import boa.compiler.ast.statements.Block;
 import boa.compiler.ast.statements.Statement;
+import boa.compiler.ast.statements.VarDeclStatement;
 import boa.compiler.ast.statements.VisitStatement;
 import boa.compiler.visitors.AbstractVisitorNoArg;
 import boa.compiler.visitors.TypeCheckingVisitor;
 import boa.compiler.visitors.VisitClassifier;
+import boa.compiler.visitors.VisitorCostEstimatingVisitor;
 import boa.types.BoaProtoTuple;
+import boa.types.BoaType;
 import boa.types.BoaVisitor;
 import boa.types.proto.ProjectProtoTuple;
 
 /**
  * Takes a list of {@link Program}s and merges them together into a single
- * program, attempting to merge visitors where possible.
+ * program, attempting to merge visitors where possible.  Programs are
+ * grouped using a simple cost model (see {@link VisitorCostEstimatingVisitor})
+ * so that programs sharing expensive traversals are fused together, while
+ * programs that do not need ASTs are kept apart from those that do.
  * 
  * @author rdyer
  */
 public class VisitorMergingTransformer {
+	protected final boolean verifyTypes;
+
+	public VisitorMergingTransformer() {
+		this(false);
+	}
+
+	/**
+	 * Creates a transformer, optionally type checking each program again
+	 * after it is transformed to verify the types the transformations gave
+	 * any new nodes.
+	 * 
+	 * @param verifyTypes if true, fail when a full type check disagrees with the transformations
+	 */
+	public VisitorMergingTransformer(final boolean verifyTypes) {
+		this.verifyTypes = verifyTypes;
+	}
+
 	public List<Program> mergePrograms(final List<Program> programs, final int maxMerged) {
 		final List<Program> merged = new ArrayList<Program>();
+		fusedJobs.clear();
+		liftedStops.clear();
 
-		int pos = 0;
-		int stop = maxMerged;
-
-		while (pos < programs.size()) {
-			final Program current = programs.get(pos++);
+		for (final List<Integer> group : groupPrograms(programs, maxMerged)) {
+			final Program current = programs.get(group.get(0));
+			final List<String> jobs = new ArrayList<String>();
+			jobs.add(current.jobName);
 			preProcessProgram(current);
 
-			for (; pos < stop && pos < programs.size(); pos++) {
-				final Program p = programs.get(pos);
+			for (int i = 1; i < group.size(); i++) {
+				final Program p = programs.get(group.get(i));
+				jobs.add(p.jobName);
 				preProcessProgram(p);
 				mergePrograms(current, p);
-//				merged.add(p);
 			}
 
-			stop += maxMerged;
+			fusedJobs.put(current.jobName, jobs);
 			merged.add(current);
 		}
 
 		return merged;
 	}
 
+	/**
+	 * The programs fused together by the last call to
+	 * {@link #mergePrograms(List, int)}, by the name of the job they were
+	 * fused into.
+	 * 
+	 * @return the names of the fused programs for each job
+	 */
+	public Map<String, List<String>> getFusedJobs() {
+		return fusedJobs;
+	}
+
+	/**
+	 * The number of visit clauses containing stops that had to be lifted
+	 * into functions to fuse each program, by program name.
+	 * 
+	 * @return the number of lifted visit clauses for each program
+	 */
+	public Map<String, Integer> getLiftedStops() {
+		return liftedStops;
+	}
+
+	/**
+	 * The estimated cost of a single visitor program, used to decide
+	 * which programs to fuse together.
+	 */
+	protected static class ProgramCost {
+		protected final int index;
+		protected final Set<Class<? extends BoaProtoTuple>> types;
+		protected final boolean needsAst;
+		protected final int depth;
+		protected final int size;
+
+		protected ProgramCost(final int index, final VisitorCostEstimatingVisitor v) {
+			this.index = index;
+			this.types = new HashSet<Class<? extends BoaProtoTuple>>(v.getTypes());
+			this.needsAst = v.needsAst();
+			this.depth = v.getDepth();
+			this.size = v.getSize();
+		}
+
+		/**
+		 * Compares by descending cost: AST-walking programs first, then
+		 * deeper traversals, then larger programs, then input order.
+		 */
+		protected int compareCost(final ProgramCost other) {
+			if (needsAst != other.needsAst)
+				return needsAst ? -1 : 1;
+			if (depth != other.depth)
+				return other.depth - depth;
+			if (size != other.size)
+				return other.size - size;
+			return index - other.index;
+		}
+	}
+
+	protected final VisitorCostEstimatingVisitor costEstimator = new VisitorCostEstimatingVisitor();
+
+	/**
+	 * Groups programs into at most maxMerged programs per group.  Programs
+	 * needing ASTs are never grouped with programs that do not.  Each group
+	 * is seeded with the most expensive remaining program, then filled with
+	 * the programs whose visited types overlap the group's the most (ties
+	 * broken by closest traversal depth, then input order).
+	 * 
+	 * @param programs the programs to group
+	 * @param maxMerged the maximum number of programs in a group
+	 * @return the groups, as indices into programs in input order
+	 */
+	protected List<List<Integer>> groupPrograms(final List<Program> programs, final int maxMerged) {
+		final List<ProgramCost> remaining = new ArrayList<ProgramCost>();
+		for (int i = 0; i < programs.size(); i++) {
+			costEstimator.start(programs.get(i));
+			remaining.add(new ProgramCost(i, costEstimator));
+		}
+
+		final List<List<Integer>> groups = new ArrayList<List<Integer>>();
+
+		while (!remaining.isEmpty()) {
+			ProgramCost seed = remaining.get(0);
+			for (final ProgramCost c : remaining)
+				if (c.compareCost(seed) < 0)
+					seed = c;
+			remaining.remove(seed);
+
+			final List<Integer> group = new ArrayList<Integer>();
+			group.add(seed.index);
+			final Set<Class<? extends BoaProtoTuple>> groupTypes = new HashSet<Class<? extends BoaProtoTuple>>(seed.types);
+
+			while (group.size() < maxMerged) {
+				ProgramCost best = null;
+				double bestAffinity = -1;
+
+				for (final ProgramCost c : remaining) {
+					if (c.needsAst != seed.needsAst)
+						continue;
+
+					final double affinity = affinity(groupTypes, c.types);
+					if (best == null || affinity > bestAffinity
+							|| (affinity == bestAffinity && Math.abs(c.depth - seed.depth) < Math.abs(best.depth - seed.depth))) {
+						best = c;
+						bestAffinity = affinity;
+					}
+				}
+
+				if (best == null)
+					break;
+
+				remaining.remove(best);
+				group.add(best.index);
+				groupTypes.addAll(best.types);
+			}
+
+			Collections.sort(group);
+			groups.add(group);
+		}
+
+		Collections.sort(groups, new Comparator<List<Integer>>() {
+			public int compare(final List<Integer> left, final List<Integer> right) {
+				return left.get(0) - right.get(0);
+			}
+		});
+
+		return groups;
+	}
+
+	/**
+	 * The Jaccard similarity of two sets of visited types.
+	 */
+	private static double affinity(final Set<Class<? extends BoaProtoTuple>> left, final Set<Class<? extends BoaProtoTuple>> right) {
+		if (left.isEmpty() && right.isEmpty())
+			return 1;
+
+		int shared = 0;
+		for (final Class<? extends BoaProtoTuple> c : right)
+			if (left.contains(c))
+				shared++;
+
+		return (double) shared / (left.size() + right.size() - shared);
+	}
+
 	/**
 	 * Determines if a tree has a top-level visitor declaration.
 	 * 
@@ -138,21 +316,126 @@ public class VisitorMergingTransformer {
 		}
 	}
 
+	/**
+	 * Records the types of the expressions and declarations in a tree.
+	 */
+	protected class TypeRecordingVisitor extends AbstractVisitorNoArg {
+		protected final Map<Node, BoaType> types = new IdentityHashMap<Node, BoaType>();
+
+		public Map<Node, BoaType> getTypes() {
+			return types;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			types.clear();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Expression n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Conjunction n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Comparison n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final SimpleExpr n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Term n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			types.put(n, n.type);
+			for (final Node op : n.getOps())
+				types.put(op, op.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Component n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VarDeclStatement n) {
+			types.put(n, n.type);
+			super.visit(n);
+		}
+	}
+
 	protected final VisitorFindingVisitor visitorFinder = new VisitorFindingVisitor();
 	protected final VisitCallFindingVisitor visitCallFinder = new VisitCallFindingVisitor();
 	protected final TypeCheckingVisitor typeChecker = new TypeCheckingVisitor();
+	protected final TypeRecordingVisitor typeRecorder = new TypeRecordingVisitor();
 
 	protected final StopStatementTransformer stopTransform = new StopStatementTransformer();
 	protected final VariableRenameTransformer varRename = new VariableRenameTransformer();
 
+	protected final Map<String, List<String>> fusedJobs = new LinkedHashMap<String, List<String>>();
+	protected final Map<String, Integer> liftedStops = new HashMap<String, Integer>();
+
 	protected void preProcessProgram(final Program p) {
+		// the stop transformation type checks the nodes it adds,
+		// so the whole program does not need to be checked again
 		stopTransform.start(p);
-		// FIXME rdyer need to figure out how to avoid this, but anything
-		// new in the transformations needs added to the environment
-		typeChecker.start(p, new SymbolTable());
+		liftedStops.put(p.jobName, stopTransform.getLiftedCount());
+		if (verifyTypes)
+			verifyTypes(p);
 		varRename.start(p, p.jobName);
 	}
 
+	/**
+	 * Type checks a transformed program from scratch, failing if any node
+	 * ends up with a different type than the transformations gave it.
+	 * 
+	 * @param p the transformed program
+	 */
+	protected void verifyTypes(final Program p) {
+		typeRecorder.start(p);
+		final Map<Node, BoaType> before = new IdentityHashMap<Node, BoaType>(typeRecorder.getTypes());
+
+		typeChecker.start(p, new SymbolTable());
+
+		typeRecorder.start(p);
+		for (final Map.Entry<Node, BoaType> e : typeRecorder.getTypes().entrySet()) {
+			if (!before.containsKey(e.getKey()))
+				continue;
+
+			final String expected = String.valueOf(e.getValue());
+			final String actual = String.valueOf(before.get(e.getKey()));
+			if (!expected.equals(actual))
+				throw new TypeCheckException(e.getKey(), "transformed node has type '" + actual + "' but type checking gives '" + expected + "'");
+		}
+	}
+
 	protected void mergePrograms(final Program left, final Program right) {
 		int currentLeft = 0;
 		int currentRight = 0;
@@ -45,7 +45,7 @@ public class VisitorOptimizingTransformer extends AbstractVisitorNoArg {
 		astTypes.addAll(new ASTRootProtoTuple().reachableTypes());
 	}
 
-	protected final static VariableRenameTransformer renamer = new VariableRenameTransformer();
+	protected final VariableRenameTransformer renamer = new VariableRenameTransformer();
 
 	protected Set<Class<? extends BoaType>> types;
 	protected final Stack<Set<Class<? extends BoaType>>> typeStack = new Stack<Set<Class<? extends BoaType>>>();
@@ -56,9 +56,21 @@ public class VisitorOptimizingTransformer extends AbstractVisitorNoArg {
 	protected VisitStatement afterChangedFile;
 	protected final Stack<VisitStatement> afterStack = new Stack<VisitStatement>();
 
+	protected int stops;
+
+	/**
+	 * The number of visitors a stop statement was added to.
+	 * 
+	 * @return the number of stops added
+	 */
+	public int getAddedStopsCount() {
+		return stops;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	protected void initialize() {
+		stops = 0;
 		types = new HashSet<Class<? extends BoaType>>();
 		beforeChangedFile = afterChangedFile = null;
 
@@ -108,6 +120,7 @@ public class VisitorOptimizingTransformer extends AbstractVisitorNoArg {
 						beforeChangedFile.getBody().addStatement(s.clone());
 
 				beforeChangedFile.getBody().addStatement(new StopStatement());
+				stops++;
 			}
 		}
 
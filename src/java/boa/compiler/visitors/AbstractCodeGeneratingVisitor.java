@@ -33,7 +33,12 @@ import boa.compiler.ast.Node;
 public abstract class AbstractCodeGeneratingVisitor extends AbstractVisitorNoArg {
 	public static STGroup stg = new STGroupFile("templates/BoaJavaHadoop.stg");
 	static {
-		stg.importTemplates(new STGroupFile("templates/BoaJava.stg"));
+		final STGroup javaStg = new STGroupFile("templates/BoaJava.stg");
+		// load eagerly, as lazy loading is not thread-safe and code
+		// generation may run for several jobs concurrently
+		javaStg.load();
+		stg.importTemplates(javaStg);
+		stg.load();
 	}
 
 	protected final LinkedList<String> code = new LinkedList<String>();
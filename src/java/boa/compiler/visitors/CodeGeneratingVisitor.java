@@ -23,10 +23,12 @@ import java.util.*;
 import java.util.Map.Entry;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.stringtemplate.v4.ST;
 
 import boa.aggregators.AggregatorSpec;
+import boa.aggregators.MonoidAggregator;
 import boa.compiler.SymbolTable;
 import boa.compiler.TypeCheckException;
 import boa.compiler.ast.*;
@@ -35,6 +37,7 @@ import boa.compiler.ast.literals.*;
 import boa.compiler.ast.statements.*;
 import boa.compiler.ast.types.*;
 import boa.types.*;
+import boa.types.proto.ProjectProtoTuple;
 
 /***
  * 
@@ -206,7 +209,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 			if (funcType.getType() instanceof BoaAny)
 				st.add("ret", "void");
 			else
-				st.add("ret", funcType.getType().toBoxedJavaType());
+				st.add("ret", funcType.getType().toJavaType());
 			st.add("args", args);
 			st.add("types", types);
 
@@ -379,10 +382,76 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		}
 	}
 
+	/**
+	 * Estimates the size of the code generated for a statement, and if it
+	 * returns from the enclosing method.  Nested functions and visitors are
+	 * compiled into their own classes, so are not counted.
+	 */
+	protected class CodeSizeFindingVisitor extends AbstractVisitorNoArg {
+		protected int size;
+		protected boolean returns;
+
+		public int getSize() {
+			return size;
+		}
+
+		public boolean returns() {
+			return returns;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void initialize() {
+			super.initialize();
+			size = 0;
+			returns = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Block n) {
+			size += n.getStatementsSize();
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			size++;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final ReturnStatement n) {
+			returns = true;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final StopStatement n) {
+			returns = true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			size++;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			size++;
+		}
+	}
+
 
 	protected final IdentifierFindingVisitor idFinder = new IdentifierFindingVisitor();
 	protected final IndexeeFindingVisitor indexeeFinder = new IndexeeFindingVisitor();
 	protected final CallFindingVisitor callFinder = new CallFindingVisitor();
+	protected final CodeSizeFindingVisitor sizeFinder = new CodeSizeFindingVisitor();
 	protected final VarDeclCodeGeneratingVisitor varDecl;
 	protected final StaticInitializationCodeGeneratingVisitor staticInitialization;
 	protected final FunctionDeclaratorCodeGeneratingVisitor functionDeclarator;
@@ -392,10 +461,69 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 	protected final String name;
 
 	protected String skipIndex = "";
+	/** An index on a map with int/time indices generating a containsKey() test, rather than a get(). */
+	protected Index containsKeyIndex = null;
 	protected boolean abortGeneration = false;
 
-	final public static List<String> combineAggregatorStrings = new ArrayList<String>();
-	final public static List<String> reduceAggregatorStrings = new ArrayList<String>();
+	protected final List<String> combineAggregatorStrings = new ArrayList<String>();
+	protected final List<String> reduceAggregatorStrings = new ArrayList<String>();
+
+	/** Java literals of constant regexes, mapped to the static fields holding their compiled patterns. */
+	protected final Map<String, String> patterns = new LinkedHashMap<String, String>();
+
+	/** The built-in regex functions, and which of their arguments is the regex. */
+	protected static final Map<String, Integer> regexFunctions = new HashMap<String, Integer>();
+
+	static {
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.match", 0);
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.matchPositions", 0);
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.matchStrings", 0);
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.split", 1);
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.splitn", 1);
+		regexFunctions.put("boa.functions.BoaStringIntrinsics.splitall", 1);
+	}
+
+	/** The built-in functions whose results the runtime can memoize, mapped to their Boa names. */
+	protected static final Map<String, String> memoizableFunctions = new HashMap<String, String>();
+
+	static {
+		memoizableFunctions.put("boa.functions.BoaAstIntrinsics.getast", "getast");
+		memoizableFunctions.put("boa.functions.BoaAstIntrinsics.getcomments", "getcomments");
+		memoizableFunctions.put("boa.functions.BoaAstIntrinsics.getSnapshot", "getsnapshot");
+	}
+
+	/** The memoizable built-in functions this job calls. */
+	protected final Set<String> memoizableCalls = new LinkedHashSet<String>();
+
+	/** The static fields holding the caches of memoized functions. */
+	protected final List<String> memoFields = new ArrayList<String>();
+
+	/** The source file name, if generating profiling code, and the static fields registering each profiled site. */
+	protected String profileSource = null;
+	protected final List<String> profileSites = new ArrayList<String>();
+
+	/** If foreach quantifiers with independent iterations run in parallel, and if generating the body of one. */
+	protected boolean parallelQuantifiers = false;
+	protected boolean inParallel = false;
+	protected final ParallelQuantifierCheckingVisitor parallelChecker = new ParallelQuantifierCheckingVisitor();
+
+	/** The indices of the quantifiers enclosing the code being generated, and their Java types. */
+	protected final List<String> quantifierIndices = new ArrayList<String>();
+	protected final List<String> quantifierTypes = new ArrayList<String>();
+
+	/**
+	 * The estimated code size above which a method body is split into helper
+	 * methods, keeping each method well under HotSpot's limit of 8000 bytes
+	 * of bytecode for JIT compilation.
+	 */
+	protected static final int MAX_METHOD_SIZE = 500;
+
+	/** The number of helper methods outlined so far, to name them uniquely. */
+	protected int outlined = 0;
+
+	/** Conditions, any of which must hold for this job to do anything with a project, and the input's aliases they use. */
+	protected List<Expression> filters = new ArrayList<Expression>();
+	protected Set<String> filterAliases = new LinkedHashSet<String>();
 
 	public CodeGeneratingVisitor(final String name) throws IOException {
 		this.name = name;
@@ -405,6 +533,143 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		functionDeclarator = new FunctionDeclaratorCodeGeneratingVisitor();
 	}
 
+	/**
+	 * Returns the statements registering this job's aggregators in the combiner.
+	 */
+	public List<String> getCombineAggregatorStrings() {
+		return combineAggregatorStrings;
+	}
+
+	/**
+	 * Returns the statements registering this job's aggregators in the reducer.
+	 */
+	public List<String> getReduceAggregatorStrings() {
+		return reduceAggregatorStrings;
+	}
+
+	/**
+	 * Sets the project-level filters for this job, as found by a
+	 * {@link ProjectFilterFindingVisitor}.  Projects failing every filter are
+	 * skipped without being fully decoded.
+	 */
+	public void setFilters(final List<Expression> filters, final Set<String> aliases) {
+		this.filters = filters;
+		this.filterAliases = aliases;
+	}
+
+	/**
+	 * Wraps each top-level statement, visit clause and function with
+	 * counters and timers, reported by {@link boa.runtime.BoaProfiler}.
+	 * 
+	 * @param source the name of the source file, to report sites with
+	 */
+	public void setProfiling(final String source) {
+		this.profileSource = source;
+	}
+
+	/**
+	 * Runs the iterations of foreach quantifiers over proto lists in
+	 * parallel, when they only write variables declared inside the
+	 * quantifier.  Emits are buffered and written in order.
+	 * 
+	 * @param parallel true to run quantifiers in parallel
+	 */
+	public void setParallelQuantifiers(final boolean parallel) {
+		this.parallelQuantifiers = parallel;
+	}
+
+	/**
+	 * Wraps generated code for a site with a counter and timer.  Statements
+	 * added by transformations have no line, so are not profiled.
+	 */
+	protected String profile(final String kind, final Node n, final String body) {
+		final String id = "_profile_" + this.profileSites.size();
+		this.profileSites.add("private static final int " + id + " = boa.runtime.BoaProfiler.register(\""
+				+ this.profileSource.replace("\\", "\\\\").replace("\"", "\\\"") + "\", " + n.beginLine + ", \"" + kind + "\");");
+
+		final ST st = stg.getInstanceOf("Profile");
+		st.add("id", id);
+		st.add("body", body);
+		return st.render();
+	}
+
+	/**
+	 * Splits an oversized method body, moving runs of its statements into
+	 * helper methods.  Generated variables are all fields, so the only locals
+	 * a helper needs are the enclosing method's parameters.  Statements that
+	 * return from the method stay in place.
+	 * 
+	 * @param nodes the statements of the body
+	 * @param statements the generated code for each statement
+	 * @param params the parameters of the enclosing method
+	 * @param args the names of those parameters
+	 * @param methods receives the generated helper methods
+	 * @return the generated code for the new body
+	 */
+	protected List<String> outline(final List<Node> nodes, final List<String> statements, final String params, final String args, final List<String> methods) {
+		final int[] sizes = new int[nodes.size()];
+		final boolean[] returns = new boolean[nodes.size()];
+		int total = 0;
+		for (int i = 0; i < nodes.size(); i++) {
+			sizeFinder.start(nodes.get(i));
+			sizes[i] = sizeFinder.getSize() + 1;
+			returns[i] = sizeFinder.returns();
+			total += sizes[i];
+		}
+
+		if (total <= MAX_METHOD_SIZE)
+			return statements;
+
+		final List<String> body = new ArrayList<String>();
+		final List<String> run = new ArrayList<String>();
+		int size = 0;
+		for (int i = 0; i <= nodes.size(); i++) {
+			if (i == nodes.size() || returns[i] || (size > 0 && size + sizes[i] > MAX_METHOD_SIZE)) {
+				if (!run.isEmpty()) {
+					final String method = "_outlined_" + this.outlined++;
+
+					final ST st = stg.getInstanceOf("Outlined");
+					st.add("name", method);
+					st.add("params", params);
+					st.add("body", new ArrayList<String>(run));
+					methods.add(st.render());
+
+					body.add(method + "(" + args + ");\n");
+					run.clear();
+					size = 0;
+				}
+
+				if (i == nodes.size())
+					break;
+
+				if (returns[i]) {
+					body.add(statements.get(i));
+					continue;
+				}
+			}
+
+			run.add(statements.get(i));
+			size += sizes[i];
+		}
+
+		return body;
+	}
+
+	/**
+	 * Returns true if this job has project-level filters.
+	 */
+	public boolean hasFilters() {
+		return !filters.isEmpty();
+	}
+
+	/**
+	 * Returns the names of the memoizable built-in functions (getast,
+	 * getcomments and getsnapshot) this job explicitly calls.
+	 */
+	public Set<String> getMemoizableCalls() {
+		return memoizableCalls;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final Program n) {
@@ -412,25 +677,56 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		st.add("name", this.name);
 
+		this.patterns.clear();
+		this.profileSites.clear();
+		this.memoFields.clear();
+		this.outlined = 0;
+
 		this.varDecl.start(n);
 		this.functionDeclarator.start(n);
+		String staticDeclarations = this.varDecl.getCode();
 		if (this.functionDeclarator.hasCode())
-			st.add("staticDeclarations", this.varDecl.getCode() + "\n" + this.functionDeclarator.getCode());
-		else
-			st.add("staticDeclarations", this.varDecl.getCode());
+			staticDeclarations += "\n" + this.functionDeclarator.getCode();
 
 		this.staticInitialization.start(n);
 		if (this.staticInitialization.hasCode())
 			st.add("staticStatements", this.staticInitialization.getCode());
 
+		final List<Node> nodes = new ArrayList<Node>();
 		final List<String> statements = new ArrayList<String>();
 		for (final Statement s : n.getStatements()) {
 			s.accept(this);
 			final String statement = code.removeLast();
-			if (!statement.isEmpty())
-				statements.add(statement);
+			if (!statement.isEmpty()) {
+				nodes.add(s);
+				statements.add(this.profileSource == null || s.beginLine <= 0 ? statement : profile("statement", s, statement));
+			}
 		}
-		st.add("statements", statements);
+		final List<String> methods = new ArrayList<String>();
+		st.add("statements", outline(nodes, statements,
+				"final " + new ProjectProtoTuple().toJavaType() + " _input, final org.apache.hadoop.mapreduce.Mapper<org.apache.hadoop.io.Text, org.apache.hadoop.io.BytesWritable, boa.io.EmitKey, boa.io.EmitValue>.Context context",
+				"_input, context", methods));
+		st.add("methods", methods);
+
+		if (!this.filters.isEmpty()) {
+			String filter = "";
+			for (final Expression e : this.filters) {
+				e.accept(this);
+				filter += (filter.isEmpty() ? "(" : " || (") + code.removeLast() + ")";
+			}
+			st.add("filter", filter);
+			for (final String alias : this.filterAliases)
+				st.add("filterAliases", "final " + new ProjectProtoTuple().toJavaType() + " ___" + alias + " = _input;");
+		}
+
+		// after the statements, so all constant regexes are known
+		for (final Entry<String, String> entry : this.patterns.entrySet())
+			staticDeclarations += "\nprivate static final java.util.regex.Pattern " + entry.getValue() + " = java.util.regex.Pattern.compile(" + entry.getKey() + ");";
+		for (final String site : this.profileSites)
+			staticDeclarations += "\n" + site;
+		for (final String memo : this.memoFields)
+			staticDeclarations += "\n" + memo;
+		st.add("staticDeclarations", staticDeclarations);
 
 		if (this.aggregators.size() == 0)
 			throw new TypeCheckException(n, "No output variables were declared - must declare at least one output variable");
@@ -454,7 +750,8 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 				src.append(", new " + c.getCanonicalName() + "(" + parameters + ")");
 				try {
 					final AggregatorSpec annotation = c.getAnnotation(AggregatorSpec.class);
-					if (annotation.canCombine())
+					// aggregators with an explicit partial state can always combine
+					if (annotation.canCombine() || MonoidAggregator.class.isAssignableFrom(c))
 						combines = true;
 				} catch (final RuntimeException e) {
 					throw new TypeCheckException(n, e.getMessage(), e);
@@ -501,20 +798,110 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		} else {
 			if (f.hasName()) {
 				st.add("operand", f.getName());
+				if (memoizableFunctions.containsKey(f.getName()))
+					memoizableCalls.add(memoizableFunctions.get(f.getName()));
 			} else {
 				n.env.getOperand().accept(this);
 				st.add("operand", code.removeLast() + ".invoke");
 			}
 
 			if (n.getArgsSize() > 0) {
-				visit(n.getArgs());
-				st.add("parameters", code.removeLast());
+				// pass constant regexes as precompiled patterns
+				String pattern = null;
+				if (f.hasName() && regexFunctions.containsKey(f.getName()))
+					pattern = getPatternField(n.getArgs().get(regexFunctions.get(f.getName())));
+
+				if (pattern == null) {
+					visit(n.getArgs());
+					st.add("parameters", code.removeLast());
+				} else {
+					String parameters = "";
+					for (int i = 0; i < n.getArgsSize(); i++) {
+						if (i > 0)
+							parameters += ", ";
+						if (i == regexFunctions.get(f.getName())) {
+							parameters += pattern;
+						} else {
+							n.getArgs().get(i).accept(this);
+							parameters += code.removeLast();
+						}
+					}
+					st.add("parameters", parameters);
+				}
 			}
 		}
 
 		code.add(st.render());
 	}
 
+	/**
+	 * If the expression is a constant regex that is worth precompiling,
+	 * returns the name of a static field holding its compiled pattern.
+	 * Literal strings are left alone, as matching them does not need a
+	 * pattern, and neither are invalid regexes, so they fail at runtime as
+	 * before.
+	 */
+	protected String getPatternField(final Expression e) {
+		if (e.getRhsSize() > 0 || e.getLhs().getRhsSize() > 0 || e.getLhs().getLhs().hasRhs())
+			return null;
+		final SimpleExpr s = e.getLhs().getLhs().getLhs();
+		if (s.getRhsSize() > 0 || s.getLhs().getRhsSize() > 0)
+			return null;
+		final Factor f = s.getLhs().getLhs();
+		if (f.getOpsSize() > 0 || !(f.getOperand() instanceof StringLiteral))
+			return null;
+
+		final String lit = ((StringLiteral) f.getOperand()).getLiteral();
+		final String regex = unescape(lit);
+		if (boa.functions.BoaStringIntrinsics.isLiteral(regex))
+			return null;
+		try {
+			Pattern.compile(regex);
+		} catch (final PatternSyntaxException ex) {
+			return null;
+		}
+
+		if (!patterns.containsKey(lit))
+			patterns.put(lit, "_pattern_" + patterns.size());
+		return patterns.get(lit);
+	}
+
+	/**
+	 * Returns the value of a Java string literal.
+	 */
+	protected static String unescape(final String lit) {
+		final StringBuilder sb = new StringBuilder();
+
+		for (int i = 1; i < lit.length() - 1; i++) {
+			char c = lit.charAt(i);
+			if (c != '\\') {
+				sb.append(c);
+				continue;
+			}
+
+			c = lit.charAt(++i);
+			switch (c) {
+				case 'b': sb.append('\b'); break;
+				case 't': sb.append('\t'); break;
+				case 'n': sb.append('\n'); break;
+				case 'f': sb.append('\f'); break;
+				case 'r': sb.append('\r'); break;
+				default:
+					if (c >= '0' && c <= '7') {
+						int value = c - '0';
+						final int max = c <= '3' ? 2 : 1;
+						for (int j = 0; j < max && i + 1 < lit.length() - 1 && lit.charAt(i + 1) >= '0' && lit.charAt(i + 1) <= '7'; j++)
+							value = value * 8 + (lit.charAt(++i) - '0');
+						sb.append((char) value);
+					} else {
+						sb.append(c);
+					}
+			}
+		}
+
+		return sb.toString();
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final Comparison n) {
@@ -655,9 +1042,58 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		code.add(st.render());
 	}
 
+	/**
+	 * If the factor is <code>def(e[k])</code> where <code>e</code> is a map
+	 * with int/time indices, returns the factor <code>e[k]</code>.
+	 */
+	protected Factor getDefinedPrimitiveMapIndex(final Factor n) {
+		if (!(n.getOperand() instanceof Identifier) || !((Identifier) n.getOperand()).getToken().equals("def"))
+			return null;
+		if (n.getOpsSize() != 1 || !(n.getOp(0) instanceof Call) || ((Call) n.getOp(0)).getArgsSize() != 1)
+			return null;
+
+		final Expression e = ((Call) n.getOp(0)).getArgs().get(0);
+		if (e.getRhsSize() > 0 || e.getLhs().getRhsSize() > 0 || e.getLhs().getLhs().hasRhs())
+			return null;
+		final SimpleExpr s = e.getLhs().getLhs().getLhs();
+		if (s.getRhsSize() > 0 || s.getLhs().getRhsSize() > 0)
+			return null;
+		final Factor f = s.getLhs().getLhs();
+		if (f.getOpsSize() == 0 || !(f.getOp(f.getOpsSize() - 1) instanceof Index))
+			return null;
+
+		// find the type being indexed by the last index
+		BoaType t = f.getOperand().type;
+		for (int i = 0; i < f.getOpsSize() - 1; i++) {
+			final Node op = f.getOp(i);
+			if (op instanceof Index && t instanceof BoaMap)
+				t = ((BoaMap) t).getType();
+			else if (op instanceof Index && t instanceof BoaArray)
+				t = ((BoaArray) t).getType();
+			else if (op instanceof Selector && t instanceof BoaTuple && !(t instanceof BoaProtoTuple))
+				t = ((BoaTuple) t).getMember(((Selector) op).getId().getToken());
+			else
+				return null;
+		}
+
+		if (t instanceof BoaMap && ((BoaMap) t).isPrimitive() && !((Index) f.getOp(f.getOpsSize() - 1)).hasEnd())
+			return f;
+		return null;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final Factor n) {
+		// "def(m[k])" generates "m.containsKey(k)", as maps with int/time indices may hold unboxed values
+		final Factor indexed = getDefinedPrimitiveMapIndex(n);
+		if (indexed != null) {
+			containsKeyIndex = (Index) indexed.getOp(indexed.getOpsSize() - 1);
+			indexed.accept(this);
+			containsKeyIndex = null;
+			n.env.setOperandType(n.type);
+			return;
+		}
+
 		if (n.getOpsSize() > 0) {
 			n.env.setOperand(n.getOperand());
 
@@ -693,9 +1129,9 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		if (n.env.hasType(id)) {
 			if (n.env.getNeedsBoxing())
-				code.add(SymbolTable.getType(id).toBoxedJavaType());
+				code.add(n.env.getType(id).toBoxedJavaType());
 			else
-				code.add(SymbolTable.getType(id).toJavaType());
+				code.add(n.env.getType(id).toJavaType());
 			return;
 		}
 
@@ -717,7 +1153,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 			return;
 		}
 
-		final ST st = stg.getInstanceOf("Index");
+		final ST st = stg.getInstanceOf(n == containsKeyIndex ? "ContainsKey" : "Index");
 
 		final BoaType t = n.env.getOperandType();
 		if (t instanceof BoaMap) {
@@ -970,7 +1406,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		generateQuantifier(n, n.getVar(), n.getCondition(), n.getBody(), "ifall", st);
 	}
 
-	protected void generateQuantifier(final Node n, final Component c, final Expression e, final Block b, final String kind, final ST st) {
+	protected void generateQuantifier(final Node n, final Component c, final Expression e, final Block b, final String kind, ST st) {
 		final BoaType type = c.getType().type;
 
 		final String id = c.getIdentifier().getToken();
@@ -981,6 +1417,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		this.indexeeFinder.start(e, id);
 		final Set<Node> indexees = this.indexeeFinder.getIndexees();
+		boolean parallel = false;
 	
 		if (indexees.size() > 0) {
 			final List<Node> array = new ArrayList<Node>(indexees);
@@ -1002,20 +1439,62 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 					src = src2 + func;
 			}
 
+			if (isParallel(n, indexees)) {
+				parallel = true;
+				st = stg.getInstanceOf("ParallelWhenStatement");
+				st.add("type", type.toJavaType());
+				st.add("index", id);
+				st.add("outer", new ArrayList<String>(this.quantifierIndices));
+				st.add("outerTypes", new ArrayList<String>(this.quantifierTypes));
+				st.add("emits", this.parallelChecker.hasEmits());
+				for (final VarDeclStatement v : this.parallelChecker.getDeclarations()) {
+					final String t = v.type.toJavaType();
+					final String init = t.equals("boolean") ? "false" : (t.equals("long") || t.equals("double")) ? "0" : "null";
+					st.add("locals", t + " ___" + v.getId().getToken() + " = " + init + ";");
+				}
+			}
+
 			st.add("len", src);
 		} else {
 			throw new TypeCheckException(e, "quantifier variable '" + id + "' must be used in the " + kind + " condition expression");
 		}
 
-		e.accept(this);
-		st.add("expression", code.removeLast());
+		final boolean wasParallel = this.inParallel;
+		if (parallel)
+			this.inParallel = true;
+		this.quantifierIndices.add(id);
+		this.quantifierTypes.add(type.toJavaType());
+		try {
+			e.accept(this);
+			st.add("expression", code.removeLast());
 
-		b.accept(this);
-		st.add("statement", code.removeLast());
+			b.accept(this);
+			st.add("statement", code.removeLast());
+		} finally {
+			this.quantifierIndices.remove(this.quantifierIndices.size() - 1);
+			this.quantifierTypes.remove(this.quantifierTypes.size() - 1);
+			this.inParallel = wasParallel;
+		}
 
 		code.add(st.render());
 	}
 
+	/**
+	 * Determines if a quantifier runs in parallel.  Only foreach quantifiers
+	 * over proto lists can, as arrays are usually small, and not when nested
+	 * in another parallel quantifier or when profiling.
+	 */
+	protected boolean isParallel(final Node n, final Set<Node> indexees) {
+		if (!this.parallelQuantifiers || this.inParallel || this.profileSource != null || !(n instanceof ForeachStatement))
+			return false;
+
+		for (final Node indexee : indexees)
+			if (!(this.indexeeFinder.getFactors().get(indexee).type instanceof BoaProtoList))
+				return false;
+
+		return this.parallelChecker.check((ForeachStatement) n);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final ForStatement n) {
@@ -1220,7 +1699,10 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 
 		final boolean isBefore = n.isBefore();
 
-		final List<String> body = new ArrayList<String>();
+		final List<Node> nodes = new ArrayList<Node>();
+		final List<String> statements = new ArrayList<String>();
+		String params = "";
+		String args = "";
 
 		if (n.hasWildcard()) {
 			st.add("name", isBefore ? "defaultPreVisit" : "defaultPostVisit");
@@ -1233,6 +1715,9 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 			st.add("type", c.getType().type.toJavaType());
 
 			st.add("name", isBefore ? "preVisit" : "postVisit");
+
+			params = "final " + c.getType().type.toJavaType() + " ___" + id;
+			args = "___" + id;
 		}
 
 		st.add("ret", isBefore ? "boolean" : "void");
@@ -1240,17 +1725,33 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		if (n.getBody() instanceof Block) {
 			for (final Node b : ((Block)n.getBody()).getStatements()) {
 				b.accept(this);
-				body.add(code.removeLast());
+				nodes.add(b);
+				statements.add(code.removeLast());
 			}
 		} else {
 			n.getBody().accept(this);
-			body.add(code.removeLast());
+			nodes.add(n.getBody());
+			statements.add(code.removeLast());
 		}
+
+		final List<String> methods = new ArrayList<String>();
+		final List<String> body = outline(nodes, statements, params, args, methods);
 		if (isBefore && !lastStatementIsStop(n.getBody()))
 			body.add("return true;\n");
+		if (this.profileSource != null) {
+			String s = "";
+			for (final String b : body)
+				s += b;
+			body.clear();
+			body.add(profile("visit", n, s));
+		}
 		st.add("body", body);
 
-		code.add(st.render());
+		// helper methods are members of the same visitor as the clause
+		String clause = st.render();
+		for (final String m : methods)
+			clause += "\n" + m;
+		code.add(clause);
 	}
 
 	/** {@inheritDoc} */
@@ -1323,12 +1824,22 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		if (funcType.getType() instanceof BoaAny)
 			st.add("ret", "void");
 		else
-			st.add("ret", funcType.getType().toBoxedJavaType());
+			st.add("ret", funcType.getType().toJavaType());
 		st.add("args", args);
 		st.add("types", types);
 
+		if (n.isMemoized()) {
+			final String memo = "_memo_" + this.memoFields.size();
+			this.memoFields.add("private static final boa.runtime.BoaFunctionCache " + memo + " = new boa.runtime.BoaFunctionCache();");
+			st.add("memo", memo);
+			st.add("boxedRet", funcType.getType().toBoxedJavaType());
+		}
+
 		n.getBody().accept(this);
-		st.add("body", code.removeLast());
+		if (this.profileSource == null)
+			st.add("body", code.removeLast());
+		else
+			st.add("body", profile("function", n, code.removeLast()));
 
 		code.add(st.render());
 	}
@@ -1503,7 +2014,7 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 		if (funcType.getType() instanceof BoaAny)
 			st.add("ret", "void");
 		else
-			st.add("ret", funcType.getType().toBoxedJavaType());
+			st.add("ret", funcType.getType().toJavaType());
 		st.add("args", args);
 		st.add("types", types);
 
@@ -1513,6 +2024,12 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final MapType n) {
+		// maps with int/time indices use a specialized class, which has no type arguments to fill in
+		if (n.type instanceof BoaMap && ((BoaMap) n.type).isPrimitive()) {
+			code.add("new " + n.type.toJavaType() + "()");
+			return;
+		}
+
 		final ST st = stg.getInstanceOf("MapType");
 
 		n.env.setNeedsBoxing(true);
@@ -1565,6 +2082,11 @@ public class CodeGeneratingVisitor extends AbstractCodeGeneratingVisitor {
 	/** {@inheritDoc} */
 	@Override
 	public void visit(final SetType n) {
+		if (n.type instanceof BoaSet && ((BoaSet) n.type).isPrimitive()) {
+			code.add("new " + n.type.toJavaType() + "()");
+			return;
+		}
+
 		final ST st = stg.getInstanceOf("SetType");
 
 		n.env.setNeedsBoxing(true);
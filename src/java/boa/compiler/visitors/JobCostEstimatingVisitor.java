@@ -0,0 +1,222 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.statements.DoStatement;
+import boa.compiler.ast.statements.EmitStatement;
+import boa.compiler.ast.statements.ExistsStatement;
+import boa.compiler.ast.statements.ForStatement;
+import boa.compiler.ast.statements.ForeachStatement;
+import boa.compiler.ast.statements.IfAllStatement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.ast.statements.VisitStatement;
+import boa.compiler.ast.statements.WhileStatement;
+import boa.compiler.ast.types.OutputType;
+
+/**
+ * Estimates the cost of running a job: on top of what the visitor cost
+ * estimate provides, it records how many values each output table is
+ * expected to receive per project and which tables need their reducer to
+ * hold every value in memory.
+ */
+public class JobCostEstimatingVisitor extends VisitorCostEstimatingVisitor {
+	/** the assumed number of times a loop body runs */
+	public final static int LOOP_FANOUT = 10;
+	/** the assumed number of times a visit clause runs */
+	public final static int VISIT_FANOUT = 100;
+	/** the assumed number of times a visit clause over an AST type runs */
+	public final static int AST_VISIT_FANOUT = 1000;
+
+	/** aggregators that must see every value for a key before producing a result */
+	protected final static Set<String> unboundedAggregators = new HashSet<String>(Arrays.asList(
+		"set", "median", "quantile", "kurtosis", "skewness", "stdev", "variance", "statistics", "confidence"
+	));
+
+	protected final Map<String, Long> fanOut = new HashMap<String, Long>();
+	protected final Set<String> indexed = new HashSet<String>();
+	protected final Set<String> unbounded = new HashSet<String>();
+
+	protected long weight;
+
+	/**
+	 * The estimated number of values emitted to each output table, per project.
+	 * 
+	 * @return a map of table names to their estimated fan-out
+	 */
+	public Map<String, Long> getFanOuts() {
+		return fanOut;
+	}
+
+	/**
+	 * The estimated number of values emitted to all output tables, per project.
+	 * 
+	 * @return the estimated fan-out
+	 */
+	public long getFanOut() {
+		long total = 0;
+		for (final long l : fanOut.values())
+			total = saturatingAdd(total, l);
+		return total;
+	}
+
+	/**
+	 * Determines if any output table is indexed, which can produce many keys.
+	 * 
+	 * @return true if any output table is indexed
+	 */
+	public boolean hasIndexedOutput() {
+		return !indexed.isEmpty();
+	}
+
+	/**
+	 * Determines if any output table uses an aggregator that keeps every value
+	 * for a key in memory.
+	 * 
+	 * @return true if any output table has unbounded memory needs
+	 */
+	public boolean hasUnboundedOutput() {
+		return !unbounded.isEmpty();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		super.initialize();
+		fanOut.clear();
+		indexed.clear();
+		unbounded.clear();
+		weight = 1;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VarDeclStatement n) {
+		if (n.hasType() && n.getType() instanceof OutputType) {
+			final OutputType t = (OutputType)n.getType();
+			final String name = n.getId().getToken();
+
+			if (t.getIndicesSize() > 0)
+				indexed.add(name);
+			if (unboundedAggregators.contains(t.getId().getToken()))
+				unbounded.add(name);
+		}
+
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final EmitStatement n) {
+		final String name = n.getId().getToken();
+		final Long old = fanOut.get(name);
+		fanOut.put(name, old == null ? weight : saturatingAdd(old, weight));
+
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VisitStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, visitsAst(n) ? AST_VISIT_FANOUT : VISIT_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final DoStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ExistsStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForeachStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ForStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final IfAllStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final WhileStatement n) {
+		final long old = weight;
+		weight = saturatingMultiply(weight, LOOP_FANOUT);
+		super.visit(n);
+		weight = old;
+	}
+
+	private static boolean visitsAst(final VisitStatement n) {
+		if (n.hasWildcard())
+			return true;
+		if (n.hasComponent())
+			return astTypes.contains(n.getComponent().getType().type.getClass());
+		final List<Identifier> ids = n.getIdList();
+		for (final Identifier id : ids)
+			if (astTypes.contains(id.type.getClass()))
+				return true;
+		return false;
+	}
+
+	private static long saturatingAdd(final long a, final long b) {
+		final long r = a + b;
+		return r < 0 ? Long.MAX_VALUE : r;
+	}
+
+	private static long saturatingMultiply(final long a, final long b) {
+		return a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+	}
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import boa.compiler.SymbolTable;
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Comparison;
+import boa.compiler.ast.Component;
+import boa.compiler.ast.Conjunction;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Term;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.SimpleExpr;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.statements.AssignmentStatement;
+import boa.compiler.ast.statements.BreakStatement;
+import boa.compiler.ast.statements.ContinueStatement;
+import boa.compiler.ast.statements.EmitStatement;
+import boa.compiler.ast.statements.ForeachStatement;
+import boa.compiler.ast.statements.PostfixStatement;
+import boa.compiler.ast.statements.ReturnStatement;
+import boa.compiler.ast.statements.StopStatement;
+import boa.compiler.ast.statements.VarDeclStatement;
+import boa.compiler.ast.statements.VisitStatement;
+import boa.types.BoaFunction;
+import boa.types.BoaTable;
+import boa.types.BoaType;
+
+/**
+ * Determines if the iterations of a foreach quantifier can run in parallel.
+ * The condition and body may read any variable and emit, but may only write
+ * variables declared inside the quantifier, may only call built-in functions
+ * known to be thread-safe, and may not visit or leave the loop early
+ * (break, continue, return or stop).
+ * 
+ * The variables declared inside the quantifier are fields of the enclosing
+ * class, so the code generator must declare them again in each task.
+ */
+public class ParallelQuantifierCheckingVisitor extends AbstractVisitorNoArg {
+	/** the built-in macros that modify their first argument */
+	protected final static Set<String> modifyingMacros = new HashSet<String>(Arrays.asList(
+		"add",
+		"clear",
+		"pop",
+		"push",
+		"remove"
+	));
+
+	/** the built-in macros that touch the current visitor */
+	protected final static Set<String> unsafeMacros = new HashSet<String>(Arrays.asList(
+		"_cur_visitor",
+		"ast_len",
+		"visit"
+	));
+
+	/**
+	 * The built-in functions checked to keep no shared mutable state, so they
+	 * are safe to call from several threads at once.  Being pure is not
+	 * enough: e.g. formatTime() shares its formatters between callers.
+	 */
+	protected final static Set<String> threadSafeFunctions = new HashSet<String>();
+
+	static {
+		for (final String s : Arrays.asList("booleanToLong", "doubleToString", "longToString", "stringToBoolean", "stringToTime", "timeToString"))
+			threadSafeFunctions.add("boa.functions.BoaCasts." + s);
+		for (final String s : Arrays.asList("arrayToString", "basic_array", "concat", "hasfile", "isfixingrevision", "iskind", "map_keys", "map_values", "protolistToString", "stack_peek", "stack_pop"))
+			threadSafeFunctions.add("boa.functions.BoaIntrinsics." + s);
+		for (final String s : Arrays.asList("acosh", "asinh", "atanh", "isFinite", "isInfinite", "isNaN", "isNormal", "trunc"))
+			threadSafeFunctions.add("boa.functions.BoaMathIntrinsics." + s);
+		for (final String s : Arrays.asList("format", "indexOf", "lastIndexOf", "lowerCase", "match", "matchPositions", "matchStrings", "split", "splitall", "splitn", "stringReplace", "substring", "trim", "upperCase"))
+			threadSafeFunctions.add("boa.functions.BoaStringIntrinsics." + s);
+		for (final String s : Arrays.asList("addDay", "addMonth", "addWeek", "addYear", "dayOfMonth", "dayOfWeek", "dayOfYear", "hourOf", "minuteOf", "monthOf", "secondOf", "truncToDay", "truncToHour", "truncToMinute", "truncToMonth", "truncToSecond", "truncToYear", "yearOf"))
+			threadSafeFunctions.add("boa.functions.BoaTimeIntrinsics." + s);
+		for (final String s : Arrays.asList("abs", "acos", "asin", "atan", "atan2", "cbrt", "ceil", "cos", "cosh", "exp", "expm1", "floor", "hypot", "IEEEremainder", "log", "log10", "log1p", "max", "min", "pow", "rint", "round", "signum", "sin", "sinh", "sqrt", "tan", "tanh", "toDegrees", "toRadians", "ulp"))
+			threadSafeFunctions.add("java.lang.Math." + s);
+		threadSafeFunctions.addAll(Arrays.asList(
+			"java.lang.Boolean.toString",
+			"java.lang.Double.parseDouble",
+			"java.lang.Long.decode",
+			"java.lang.Long.highestOneBit",
+			"java.lang.Long.parseLong"
+		));
+	}
+
+	protected final Set<String> locals = new HashSet<String>();
+	protected final List<VarDeclStatement> decls = new ArrayList<VarDeclStatement>();
+	protected boolean parallel;
+	protected boolean emits;
+
+	/**
+	 * Checks if the iterations of a foreach quantifier can run in parallel.
+	 * 
+	 * @param n the quantifier to check
+	 * @return true if its iterations can run in parallel
+	 */
+	public boolean check(final ForeachStatement n) {
+		initialize();
+
+		locals.add(n.getVar().getIdentifier().getToken());
+		new AbstractVisitorNoArg() {
+			/** {@inheritDoc} */
+			@Override
+			public void visit(final VarDeclStatement n) {
+				locals.add(n.getId().getToken());
+				if (!(n.type instanceof BoaTable))
+					decls.add(n);
+				super.visit(n);
+			}
+
+			/** {@inheritDoc} */
+			@Override
+			public void visit(final Component n) {
+				if (n.hasIdentifier())
+					locals.add(n.getIdentifier().getToken());
+				super.visit(n);
+			}
+		}.start(n.getBody());
+
+		n.getCondition().accept(this);
+		n.getBody().accept(this);
+		return parallel;
+	}
+
+	/**
+	 * The variables declared inside the last checked quantifier.
+	 * 
+	 * @return the declarations
+	 */
+	public List<VarDeclStatement> getDeclarations() {
+		return decls;
+	}
+
+	/**
+	 * Determines if the last checked quantifier emits.
+	 * 
+	 * @return true if it emits
+	 */
+	public boolean hasEmits() {
+		return emits;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		locals.clear();
+		decls.clear();
+		parallel = true;
+		emits = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Factor n) {
+		super.visit(n);
+
+		if (!(n.getOperand() instanceof Identifier) || n.getOpsSize() == 0 || !(n.getOp(0) instanceof Call))
+			return;
+
+		final String name = ((Identifier) n.getOperand()).getToken();
+		final Call c = (Call) n.getOp(0);
+
+		// user functions may write any variable they can see
+		if (n.env.hasLocal(name)) {
+			parallel = false;
+			return;
+		}
+
+		final BoaFunction f = lookup(name, c, n.env);
+		if (f == null) {
+			parallel = false;
+		} else if (f.hasMacro()) {
+			if (unsafeMacros.contains(name))
+				parallel = false;
+			else if (modifyingMacros.contains(name) && c.getArgsSize() > 0 && !isLocal(c.getArg(0)))
+				parallel = false;
+		} else if (!f.hasName() || !threadSafeFunctions.contains(f.getName()))
+			parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VarDeclStatement n) {
+		if (n.isStatic())
+			parallel = false;
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final AssignmentStatement n) {
+		if (!isLocal(n.getLhs()))
+			parallel = false;
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final PostfixStatement n) {
+		if (!isLocal(n.getExpr()))
+			parallel = false;
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final EmitStatement n) {
+		emits = true;
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final BreakStatement n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ContinueStatement n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final ReturnStatement n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final StopStatement n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VisitStatement n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final FunctionExpression n) {
+		parallel = false;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final VisitorExpression n) {
+		parallel = false;
+	}
+
+	protected boolean isLocal(final Factor f) {
+		return f.getOperand() instanceof Identifier && locals.contains(((Identifier) f.getOperand()).getToken());
+	}
+
+	protected boolean isLocal(final Expression e) {
+		final Factor f = asFactor(e);
+		return f != null && isLocal(f);
+	}
+
+	private static BoaFunction lookup(final String name, final Call c, final SymbolTable env) {
+		final List<BoaType> types = new ArrayList<BoaType>();
+		for (final Expression e : c.getArgs())
+			types.add(e.type instanceof BoaFunction ? ((BoaFunction) e.type).getType() : e.type);
+
+		try {
+			return env.getFunction(name, types);
+		} catch (final RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static Factor asFactor(final Expression e) {
+		if (e.getRhsSize() > 0)
+			return null;
+		final Conjunction c = e.getLhs();
+		if (c.getRhsSize() > 0)
+			return null;
+		final Comparison cmp = c.getLhs();
+		if (cmp.hasRhs())
+			return null;
+		final SimpleExpr s = cmp.getLhs();
+		if (s.getRhsSize() > 0)
+			return null;
+		final Term t = s.getLhs();
+		if (t.getRhsSize() > 0)
+			return null;
+		return t.getLhs();
+	}
+}
@@ -400,6 +400,10 @@ public class PrettyPrintVisitor extends AbstractVisitorNoArg {
 	@Override
 	public void visit(final VarDeclStatement n) {
 		indent();
+		for (final Identifier a : n.getAnnotations()) {
+			a.accept(this);
+			System.out.print(" ");
+		}
 		if (n.isStatic()) System.out.print("static ");
 		n.getId().accept(this);
 		if (n.hasType()) {
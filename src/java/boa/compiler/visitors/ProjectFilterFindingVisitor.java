@@ -0,0 +1,270 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.Node;
+import boa.compiler.ast.Program;
+import boa.compiler.ast.Selector;
+import boa.compiler.ast.expressions.Expression;
+import boa.compiler.ast.expressions.FunctionExpression;
+import boa.compiler.ast.expressions.VisitorExpression;
+import boa.compiler.ast.statements.AssignmentStatement;
+import boa.compiler.ast.statements.IfStatement;
+import boa.compiler.ast.statements.Statement;
+import boa.compiler.ast.statements.VarDeclStatement;
+
+import boa.types.proto.ProjectProtoTuple;
+
+/**
+ * Finds project-level filters that can be checked before a project is fully
+ * decoded.  A program has a filter if, other than declarations, all of its
+ * top-level statements are if statements (without else) whose conditions
+ * only read the project's metadata.  The project is then only of interest
+ * if one of those conditions holds.
+ * 
+ * Conditions may use the input (or variables declared as aliases of it),
+ * literals, types and built-in functions.  They may not read the project's
+ * code or issue repositories, or pass the project itself to a function, as
+ * the metadata does not include them.
+ */
+public class ProjectFilterFindingVisitor extends AbstractVisitorNoArg {
+	/** The members of a project not decoded when checking filters. */
+	protected static final Set<String> skippedMembers = new HashSet<String>(Arrays.asList("code_repositories", "issue_repositories"));
+
+	/** Built-in functions that may return different results each call. */
+	protected static final Set<String> impureFunctions = new HashSet<String>(Arrays.asList("rand", "nrand", "now"));
+
+	protected final List<Expression> filters = new ArrayList<Expression>();
+	protected final Set<String> aliases = new LinkedHashSet<String>();
+
+	protected final CallFindingVisitor callFinder = new CallFindingVisitor();
+	protected final AliasAssignmentFindingVisitor aliasAssignmentFinder = new AliasAssignmentFindingVisitor();
+	protected final FilterCheckingVisitor filterChecker = new FilterCheckingVisitor();
+
+	public boolean hasFilter() {
+		return !filters.isEmpty();
+	}
+
+	/**
+	 * The conditions, any of which must hold for the program to do anything
+	 * with a project.  These are copies, and are not part of the program.
+	 */
+	public List<Expression> getFilters() {
+		return filters;
+	}
+
+	/**
+	 * The names of the variables the filters use to refer to the input.
+	 */
+	public Set<String> getAliases() {
+		return aliases;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		filters.clear();
+		aliases.clear();
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Program n) {
+		for (final Statement s : n.getStatements()) {
+			if (s instanceof VarDeclStatement) {
+				final VarDeclStatement decl = (VarDeclStatement) s;
+
+				if (!decl.hasInitializer())
+					continue;
+
+				if (isInput(decl.getInitializer())) {
+					aliases.add(decl.getId().getToken());
+					continue;
+				}
+
+				callFinder.start(decl.getInitializer());
+				if (!callFinder.hasCall())
+					continue;
+			} else if (s instanceof IfStatement) {
+				final IfStatement ifStmt = (IfStatement) s;
+
+				if (!ifStmt.hasElse()) {
+					filterChecker.start(ifStmt.getCondition());
+					if (filterChecker.isFilter()) {
+						filters.add(ifStmt.getCondition().clone());
+						continue;
+					}
+				}
+			}
+
+			// anything else might do something for every project
+			filters.clear();
+			return;
+		}
+
+		aliasAssignmentFinder.start(n);
+		if (aliasAssignmentFinder.hasAssignment())
+			filters.clear();
+	}
+
+	/**
+	 * Determines if an expression is just the input.
+	 */
+	protected static boolean isInput(final Expression e) {
+		if (e.getRhsSize() > 0 || e.getLhs().getRhsSize() > 0 || e.getLhs().getLhs().hasRhs())
+			return false;
+		if (e.getLhs().getLhs().getLhs().getRhsSize() > 0 || e.getLhs().getLhs().getLhs().getLhs().getRhsSize() > 0)
+			return false;
+
+		final Factor f = e.getLhs().getLhs().getLhs().getLhs().getLhs();
+		return f.getOpsSize() == 0 && f.getOperand() instanceof Identifier
+				&& ((Identifier) f.getOperand()).getToken().equals("input");
+	}
+
+	/**
+	 * Determines if an expression calls any functions.  Does not look inside
+	 * function or visitor declarations, as declaring them does nothing.
+	 */
+	protected class CallFindingVisitor extends AbstractVisitorNoArg {
+		protected boolean hasCall;
+
+		public boolean hasCall() {
+			return hasCall;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			hasCall = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Call n) {
+			hasCall = true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			// declaring a function has no effect
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			// declaring a visitor has no effect
+		}
+	}
+
+	/**
+	 * Determines if any alias of the input is assigned to.
+	 */
+	protected class AliasAssignmentFindingVisitor extends AbstractVisitorNoArg {
+		protected boolean hasAssignment;
+
+		public boolean hasAssignment() {
+			return hasAssignment;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			hasAssignment = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final AssignmentStatement n) {
+			if (n.getLhs().getOperand() instanceof Identifier && aliases.contains(((Identifier) n.getLhs().getOperand()).getToken()))
+				hasAssignment = true;
+			super.visit(n);
+		}
+	}
+
+	/**
+	 * Determines if a condition only reads the project's metadata.
+	 */
+	protected class FilterCheckingVisitor extends AbstractVisitorNoArg {
+		protected boolean isFilter;
+
+		public boolean isFilter() {
+			return isFilter;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			isFilter = true;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			if (n.getOperand() instanceof Identifier) {
+				final String id = ((Identifier) n.getOperand()).getToken();
+				final Node op = n.getOpsSize() > 0 ? n.getOp(0) : null;
+
+				if (id.equals("input") || aliases.contains(id)) {
+					if (!(op instanceof Selector) || skippedMembers.contains(((Selector) op).getId().getToken()))
+						isFilter = false;
+				} else if (n.env.hasType(id)) {
+					// casts and enum values
+				} else if (!(op instanceof Call) || n.env.hasGlobal(id) || n.env.hasLocal(id)
+						|| !n.env.hasGlobalFunction(id) || impureFunctions.contains(id)) {
+					isFilter = false;
+				}
+
+				if (!isFilter)
+					return;
+			}
+
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Call n) {
+			for (final Expression e : n.getArgs())
+				if (e.type instanceof ProjectProtoTuple)
+					isFilter = false;
+			super.visit(n);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final FunctionExpression n) {
+			isFilter = false;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final VisitorExpression n) {
+			isFilter = false;
+		}
+	}
+}
@@ -406,7 +406,7 @@ public class TypeCheckingVisitor extends AbstractVisitorNoReturn<SymbolTable> {
 		n.env = env;
 
 		if (env.hasType(n.getToken()))
-			n.type = SymbolTable.getType(n.getToken());
+			n.type = env.getType(n.getToken());
 		else
 			try {
 				n.type = env.get(n.getToken());
@@ -842,6 +842,10 @@ public class TypeCheckingVisitor extends AbstractVisitorNoReturn<SymbolTable> {
 			}
 		}
 
+		for (final Identifier a : n.getAnnotations())
+			if (!(rhs instanceof BoaFunction))
+				throw new TypeCheckException(a, "annotation '" + a.getToken() + "' only applies to function declarations");
+
 		BoaType lhs;
 		if (n.hasType()) {
 			if (n.getType() instanceof Identifier && !env.hasType(((Identifier)n.getType()).getToken()))
@@ -890,7 +894,7 @@ public class TypeCheckingVisitor extends AbstractVisitorNoReturn<SymbolTable> {
 		}
 		else if (!n.hasWildcard())
 			for (final Identifier id : n.getIdList()) {
-				if (SymbolTable.getType(id.getToken()) == null)
+				if (st.getType(id.getToken()) == null)
 					throw new TypeCheckException(id, "Invalid type '" + id.getToken() + "'");
 				id.accept(this, st);
 			}
@@ -1162,7 +1166,7 @@ public class TypeCheckingVisitor extends AbstractVisitorNoReturn<SymbolTable> {
 			if (annotation.weightType().equals("none"))
 				throw new TypeCheckException(n.getWeight(), "output aggregator '" + n.getId().getToken() + "' does not expect a weight");
 
-			final BoaType aweight = SymbolTable.getType(annotation.weightType());
+			final BoaType aweight = SymbolTable.getBuiltinType(annotation.weightType());
 			n.getWeight().accept(this, env);
 			tweight = (BoaScalar) n.getWeight().type;
 
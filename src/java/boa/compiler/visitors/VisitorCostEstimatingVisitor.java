@@ -0,0 +1,183 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.compiler.visitors;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+import boa.compiler.ast.Call;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Identifier;
+import boa.compiler.ast.statements.Block;
+import boa.compiler.ast.statements.VisitStatement;
+
+import boa.types.BoaProtoList;
+import boa.types.BoaProtoTuple;
+import boa.types.BoaType;
+import boa.types.proto.ASTRootProtoTuple;
+import boa.types.proto.ProjectProtoTuple;
+
+/**
+ * Estimates the cost of running a visitor-based program: which types its
+ * visitors reach, whether it needs ASTs, how deep the traversal goes and
+ * roughly how much code it has.
+ */
+public class VisitorCostEstimatingVisitor extends AbstractVisitorNoArg {
+	protected final static Set<Class<? extends BoaProtoTuple>> astTypes = new HashSet<Class<? extends BoaProtoTuple>>();
+	protected final static Map<Class<? extends BoaProtoTuple>, Integer> depths = new HashMap<Class<? extends BoaProtoTuple>, Integer>();
+	protected final static int maxDepth;
+
+	static {
+		astTypes.addAll(new ASTRootProtoTuple().reachableTypes());
+
+		// breadth-first from the root, giving each type its shallowest depth
+		final Queue<BoaProtoTuple> queue = new ArrayDeque<BoaProtoTuple>();
+		final ProjectProtoTuple root = new ProjectProtoTuple();
+		depths.put(ProjectProtoTuple.class, 0);
+		queue.add(root);
+
+		int max = 0;
+		while (!queue.isEmpty()) {
+			final BoaProtoTuple t = queue.remove();
+			final int depth = depths.get(t.getClass()) + 1;
+
+			for (final BoaType member : t.getTypes()) {
+				BoaType child = member;
+				// lists of enums are not scalars, but also reach no types
+				if (member instanceof BoaProtoList)
+					child = ((BoaProtoList) member).reachableTypes().isEmpty() ? null : ((BoaProtoList) member).getType();
+				if (!(child instanceof BoaProtoTuple) || depths.containsKey(child.getClass()))
+					continue;
+
+				@SuppressWarnings("unchecked")
+				final Class<? extends BoaProtoTuple> c = (Class<? extends BoaProtoTuple>) child.getClass();
+				depths.put(c, depth);
+				max = Math.max(max, depth);
+				queue.add((BoaProtoTuple) child);
+			}
+		}
+		maxDepth = max;
+	}
+
+	protected final Set<Class<? extends BoaProtoTuple>> types = new HashSet<Class<? extends BoaProtoTuple>>();
+
+	protected boolean wildcard;
+	protected boolean usesAst;
+	protected int size;
+
+	/**
+	 * The types visited by the program.  A wildcard visit reaches every type.
+	 * 
+	 * @return the set of visited types
+	 */
+	public Set<Class<? extends BoaProtoTuple>> getTypes() {
+		if (wildcard)
+			return Collections.unmodifiableSet(depths.keySet());
+		return Collections.unmodifiableSet(types);
+	}
+
+	/**
+	 * Determines if the program needs ASTs, either by calling getast() or
+	 * getcomments() or by visiting any AST type.
+	 * 
+	 * @return true if the program needs ASTs
+	 */
+	public boolean needsAst() {
+		if (usesAst || wildcard)
+			return true;
+		for (final Class<? extends BoaProtoTuple> c : types)
+			if (astTypes.contains(c))
+				return true;
+		return false;
+	}
+
+	/**
+	 * The estimated depth (from the root project) the traversal has to reach.
+	 * 
+	 * @return the estimated traversal depth
+	 */
+	public int getDepth() {
+		if (wildcard)
+			return maxDepth;
+
+		int depth = 0;
+		for (final Class<? extends BoaProtoTuple> c : types)
+			if (depths.containsKey(c))
+				depth = Math.max(depth, depths.get(c));
+		return depth;
+	}
+
+	/**
+	 * The estimated code size, as a count of statements and factors.
+	 * 
+	 * @return the estimated code size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	protected void initialize() {
+		types.clear();
+		wildcard = false;
+		usesAst = false;
+		size = 0;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Block n) {
+		size += n.getStatementsSize();
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void visit(final Factor n) {
+		size++;
+
+		if (n.getOperand() instanceof Identifier) {
+			final String id = ((Identifier)n.getOperand()).getToken();
+			if ("getast".equals(id) || "getcomments".equals(id))
+				if (n.getOpsSize() > 0 && n.getOp(0) instanceof Call)
+					usesAst = true;
+		}
+
+		super.visit(n);
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void visit(final VisitStatement n) {
+		super.visit(n);
+
+		if (n.hasWildcard())
+			wildcard = true;
+		else if (n.hasComponent())
+			types.add((Class<? extends BoaProtoTuple>) n.getComponent().getType().type.getClass());
+		else
+			for (final Identifier id : n.getIdList())
+				types.add((Class<? extends BoaProtoTuple>) id.type.getClass());
+	}
+}
@@ -17,6 +17,7 @@
 package boa.functions;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Stack;
 
@@ -58,8 +59,63 @@ public class BoaAstIntrinsics {
 		GETS_FAIL_MISSING,
 		GETS_FAIL_BADPROTOBUF,
 		GETS_FAIL_BADLOC,
+		GETS_MEMOIZED,
 	};
 
+	/**
+	 * The maximum number of snapshots memoized per project.  Once full,
+	 * further results are simply not memoized.
+	 */
+	private static final int MAX_MEMOIZED = 1024;
+
+	/**
+	 * The maximum total serialized size, in bytes, of the ASTs and comments
+	 * memoized per project.  A few large files can hold far more memory than
+	 * many small ones, so these are bounded by size rather than by count.
+	 */
+	private static final long MAX_MEMOIZED_BYTES = 16 * 1024 * 1024;
+	private static long memoizedBytes;
+
+	private static boolean memoizeAst, memoizeComments, memoizeSnapshot;
+	private static final HashMap<String, ASTRoot> astMemo = new HashMap<String, ASTRoot>();
+	private static final HashMap<String, CommentsRoot> commentsMemo = new HashMap<String, CommentsRoot>();
+	private static final HashMap<SnapshotKey, ChangedFile[]> snapshotMemo = new HashMap<SnapshotKey, ChangedFile[]>();
+
+	/**
+	 * Memoizes the results of a function for the current project, so that
+	 * several jobs run by the same mapper only compute each result once.
+	 * 
+	 * @param function the name of the function: getast, getcomments or getsnapshot
+	 */
+	public static void memoize(final String function) {
+		if ("getast".equals(function))
+			memoizeAst = true;
+		else if ("getcomments".equals(function))
+			memoizeComments = true;
+		else if ("getsnapshot".equals(function))
+			memoizeSnapshot = true;
+		else
+			throw new IllegalArgumentException("can not memoize function '" + function + "'");
+	}
+
+	/**
+	 * Clears all memoized results.  Must be called before moving on to the
+	 * next project.
+	 */
+	public static void resetMemo() {
+		astMemo.clear();
+		commentsMemo.clear();
+		snapshotMemo.clear();
+		memoizedBytes = 0;
+	}
+
+	private static boolean fitsMemo(final int size) {
+		if (memoizedBytes + size > MAX_MEMOIZED_BYTES)
+			return false;
+		memoizedBytes += size;
+		return true;
+	}
+
 	@FunctionSpec(name = "url", returnType = "string", formalParameters = { "ChangedFile" })
 	public static String changedfileToString(final ChangedFile f) {
 		return f.getKey() + "!!" + f.getName();
@@ -86,10 +142,28 @@ public class BoaAstIntrinsics {
 				&& kind != ChangedFile.FileKind.SOURCE_JAVA_JLS4)
 			return emptyAst;
 
-		context.getCounter(AST_COUNTER.GETS_ATTEMPTED).increment(1);
-
 		final String rowName = f.getKey() + "!!" + f.getName();
 
+		if (memoizeAst) {
+			ASTRoot root = astMemo.get(rowName);
+			if (root != null) {
+				context.getCounter(AST_COUNTER.GETS_MEMOIZED).increment(1);
+				return root;
+			}
+
+			root = getast(rowName);
+			if (fitsMemo(root.getSerializedSize()))
+				astMemo.put(rowName, root);
+			return root;
+		}
+
+		return getast(rowName);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ASTRoot getast(final String rowName) {
+		context.getCounter(AST_COUNTER.GETS_ATTEMPTED).increment(1);
+
 		if (map == null)
 			openMap();
 
@@ -142,6 +216,20 @@ public class BoaAstIntrinsics {
 
 		final String rowName = f.getKey() + "!!" + f.getName();
 
+		if (memoizeComments) {
+			CommentsRoot root = commentsMemo.get(rowName);
+			if (root == null) {
+				root = getcomments(rowName);
+				if (fitsMemo(root.getSerializedSize()))
+					commentsMemo.put(rowName, root);
+			}
+			return root;
+		}
+
+		return getcomments(rowName);
+	}
+
+	private static CommentsRoot getcomments(final String rowName) {
 		if (commentsMap == null)
 			openCommentMap();
 
@@ -244,6 +332,9 @@ public class BoaAstIntrinsics {
 
 	@SuppressWarnings("rawtypes")
 	public static void cleanup(final Context context) {
+		resetMemo();
+		memoizeAst = memoizeComments = memoizeSnapshot = false;
+
 		closeMap();
 		closeCommentMap();
 		closeIssuesMap();
@@ -398,10 +489,54 @@ public class BoaAstIntrinsics {
 
 	public final static SnapshotVisitor snapshot = new SnapshotVisitor();
 
+	/**
+	 * The arguments to a getsnapshot() call.  Repositories are compared by
+	 * identity, as memoized snapshots only live as long as one project.
+	 */
+	private static final class SnapshotKey {
+		private final CodeRepository cr;
+		private final long timestamp;
+		private final String[] kinds;
+
+		SnapshotKey(final CodeRepository cr, final long timestamp, final String[] kinds) {
+			this.cr = cr;
+			this.timestamp = timestamp;
+			this.kinds = kinds.clone();
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(cr) + (int) (timestamp ^ (timestamp >>> 32))) + Arrays.hashCode(kinds);
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public boolean equals(final Object obj) {
+			if (!(obj instanceof SnapshotKey))
+				return false;
+			final SnapshotKey other = (SnapshotKey) obj;
+			return cr == other.cr && timestamp == other.timestamp && Arrays.equals(kinds, other.kinds);
+		}
+	}
+
 	@FunctionSpec(name = "getsnapshot", returnType = "array of ChangedFile", formalParameters = { "CodeRepository", "time", "string..." })
 	public static ChangedFile[] getSnapshot(final CodeRepository cr, final long timestamp, final String... kinds) throws Exception {
-		snapshot.initialize(timestamp, kinds).visit(cr);
-		return snapshot.map.values().toArray(new ChangedFile[0]);
+		if (!memoizeSnapshot) {
+			snapshot.initialize(timestamp, kinds).visit(cr);
+			return snapshot.map.values().toArray(new ChangedFile[0]);
+		}
+
+		final SnapshotKey key = new SnapshotKey(cr, timestamp, kinds);
+		ChangedFile[] files = snapshotMemo.get(key);
+		if (files == null) {
+			snapshot.initialize(timestamp, kinds).visit(cr);
+			files = snapshot.map.values().toArray(new ChangedFile[0]);
+			if (snapshotMemo.size() < MAX_MEMOIZED)
+				snapshotMemo.put(key, files);
+		}
+		// arrays are mutable, so each caller gets its own copy
+		return files.clone();
 	}
 
 	@FunctionSpec(name = "getsnapshot", returnType = "array of ChangedFile", formalParameters = { "CodeRepository", "string..." })
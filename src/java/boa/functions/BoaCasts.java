@@ -94,7 +94,13 @@ public class BoaCasts {
 		return BoaCasts.stringToTime(s, "PST8PDT");
 	}
 
-	private static final DecimalFormat df = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+	// each thread gets its own formatter, as formatting changes its settings
+	private static final ThreadLocal<DecimalFormat> df = new ThreadLocal<DecimalFormat>() {
+		@Override
+		protected DecimalFormat initialValue() {
+			return new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
+		}
+	};
 
 	/**
 	 * Format a double into a {@link String}.
@@ -105,6 +111,7 @@ public class BoaCasts {
 	 * @return A {@link String} containing the number <em>d</em>
 	 */
 	public static String doubleToString(final double d) {
+		final DecimalFormat df = BoaCasts.df.get();
 		df.setMaximumFractionDigits(340); // value in private field: DecimalFormat.DOUBLE_FRACTION_DIGITS
 		df.setMinimumFractionDigits(1);
 		return df.format(d);
@@ -119,6 +126,7 @@ public class BoaCasts {
 	 * @return A {@link String} containing the number <em>l</em>
 	 */
 	public static String longToString(final long l) {
+		final DecimalFormat df = BoaCasts.df.get();
 		df.setMaximumFractionDigits(0);
 		df.setMinimumFractionDigits(0);
 		return df.format(l);
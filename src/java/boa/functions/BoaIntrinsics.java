@@ -16,12 +16,15 @@
  */
 package boa.functions;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
 import java.util.regex.Pattern;
 
+import boa.collections.LongDoubleMap;
+import boa.collections.LongHashTable;
+import boa.collections.LongLongMap;
+import boa.collections.LongObjectMap;
 import boa.types.Code.CodeRepository;
 import boa.types.Code.Revision;
 import boa.types.Diff.ChangedFile;
@@ -40,11 +43,17 @@ public class BoaIntrinsics {
 		//"\\b(bug|issue|fix)\\b\\s*id(s)?\\s*(=)?\\s*[0-9]+"
 	};
 
-	private final static List<Matcher> fixingMatchers = new ArrayList<Matcher>();
+	// a single case-insensitive pattern, so logs are scanned once and never lowercased
+	private final static Pattern fixingPattern;
 
 	static {
-		for (final String s : BoaIntrinsics.fixingRegex)
-			fixingMatchers.add(Pattern.compile(s).matcher(""));
+		final StringBuilder sb = new StringBuilder();
+		for (final String s : BoaIntrinsics.fixingRegex) {
+			if (sb.length() > 0)
+				sb.append('|');
+			sb.append("(?:").append(s).append(')');
+		}
+		fixingPattern = Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE);
 	}
 
 	/**
@@ -66,12 +75,7 @@ public class BoaIntrinsics {
 	 */
 	@FunctionSpec(name = "isfixingrevision", returnType = "bool", formalParameters = { "string" })
 	public static boolean isfixingrevision(final String log) {
-		final String lower = log.toLowerCase();
-		for (final Matcher m : fixingMatchers)
-			if (m.reset(lower).find())
-				return true;
-
-		return false;
+		return fixingPattern.matcher(log).find();
 	}
 
 	/**
@@ -143,6 +147,30 @@ public class BoaIntrinsics {
 		return s.peek();
 	}
 
+	public static <K, V> K[] map_keys(final Map<K, V> m, final K[] a) {
+		return m.keySet().toArray(a);
+	}
+
+	public static long[] map_keys(final LongHashTable m, final Long[] a) {
+		return m.keys();
+	}
+
+	public static <K, V> V[] map_values(final Map<K, V> m, final V[] a) {
+		return m.values().toArray(a);
+	}
+
+	public static long[] map_values(final LongLongMap m, final Long[] a) {
+		return m.values();
+	}
+
+	public static double[] map_values(final LongDoubleMap m, final Double[] a) {
+		return m.values();
+	}
+
+	public static <V> V[] map_values(final LongObjectMap<V> m, final V[] a) {
+		return m.values(a);
+	}
+
 	public static String protolistToString(final List<String> l) {
 		String s = "";
 		for (final String str : l)
@@ -218,6 +246,14 @@ public class BoaIntrinsics {
 		return arr2;
 	}
 
+	public static long[] basic_array(final long[] arr) {
+		return arr;
+	}
+
+	public static double[] basic_array(final double[] arr) {
+		return arr;
+	}
+
 	public static <T> T[] concat(final T[] first, @SuppressWarnings("unchecked") final T[]... rest) {
 		int totalLength = first.length;
 		for (T[] array : rest)
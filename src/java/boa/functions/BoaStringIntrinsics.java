@@ -16,7 +16,7 @@
  */
 package boa.functions;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -149,7 +149,11 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "split", returnType = "array of string", formalParameters = { "string", "string"})
 	public static String[] split(final String str, final String regex) {
-		return str.split(regex, 1);
+		return splitRegex(str, regex, 1);
+	}
+
+	public static String[] split(final String str, final Pattern regex) {
+		return regex.split(str, 1);
 	}
 
 	/**
@@ -163,7 +167,11 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "splitn", returnType = "array of string", formalParameters = { "string", "string", "int"})
 	public static String[] splitn(final String str, final String regex, final long n) {
-		return str.split(regex, (int)n);
+		return splitRegex(str, regex, (int)n);
+	}
+
+	public static String[] splitn(final String str, final Pattern regex, final long n) {
+		return regex.split(str, (int)n);
 	}
 
 	/**
@@ -176,7 +184,18 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "splitall", returnType = "array of string", formalParameters = { "string", "string"})
 	public static String[] splitall(final String str, final String regex) {
-		return str.split(regex);
+		return splitRegex(str, regex, 0);
+	}
+
+	public static String[] splitall(final String str, final Pattern regex) {
+		return regex.split(str);
+	}
+
+	private static String[] splitRegex(final String str, final String regex, final int limit) {
+		// String.split() does not compile single character regexes
+		if (regex.length() == 1 && isLiteral(regex))
+			return str.split(regex, limit);
+		return getPattern(regex).split(str, limit);
 	}
 
 	/**
@@ -204,17 +223,64 @@ public class BoaStringIntrinsics {
 	public static String stringReplace(final String str, final String lit, final String rep, final boolean replaceAll) {
 		if (replaceAll)
 			return str.replace(lit, rep);
-		else
-			return str.replaceFirst(Pattern.quote(lit), rep);
+
+		final int i = str.indexOf(lit);
+		if (i == -1)
+			return str;
+
+		// the replacement string may refer to groups
+		if (rep.indexOf('$') != -1 || rep.indexOf('\\') != -1)
+			return getPattern(Pattern.quote(lit)).matcher(str).replaceFirst(rep);
+
+		return str.substring(0, i) + rep + str.substring(i + lit.length());
 	}
 
 	// cache the regular expression patterns for performance
-	private static Map<String, Matcher> matchers = new HashMap<String, Matcher>();
+	private static final int MAX_PATTERNS = 1024;
+
+	private static final Map<String, Pattern> patterns = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+			return size() > MAX_PATTERNS;
+		}
+	};
+
+	/**
+	 * Returns the compiled regular expression <em>r</em>.  Patterns are kept
+	 * in a bounded cache shared by all callers.
+	 * 
+	 * @param r
+	 *            A {@link String} containing a regular expression
+	 * 
+	 * @return the compiled {@link Pattern}
+	 */
+	public static Pattern getPattern(final String r) {
+		synchronized (patterns) {
+			Pattern p = patterns.get(r);
+			if (p == null) {
+				p = Pattern.compile(r);
+				patterns.put(r, p);
+			}
+			return p;
+		}
+	}
 
-	private static Matcher getMatcher(final String r) {
-		if (!matchers.containsKey(r))
-			matchers.put(r, Pattern.compile(r).matcher(""));
-		return matchers.get(r);
+	/**
+	 * Checks if the regular expression <em>r</em> has no metacharacters,
+	 * and thus only matches itself.
+	 * 
+	 * @param r
+	 *            A {@link String} containing a regular expression
+	 * 
+	 * @return true if <em>r</em> is a literal string
+	 */
+	public static boolean isLiteral(final String r) {
+		for (int i = 0; i < r.length(); i++)
+			if ("\\^$.|?*+()[]{}".indexOf(r.charAt(i)) != -1)
+				return false;
+		return true;
 	}
 
 	/**
@@ -233,8 +299,13 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "match", returnType = "bool", formalParameters = { "string", "string" })
 	public static boolean match(final String r, final String s) {
-		final Matcher m = getMatcher(r).reset(s);
-		return m.find();
+		if (isLiteral(r))
+			return s.contains(r);
+		return match(getPattern(r), s);
+	}
+
+	public static boolean match(final Pattern r, final String s) {
+		return r.matcher(s).find();
 	}
 
 	/**
@@ -255,7 +326,17 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "matchposns", returnType = "array of int", formalParameters = { "string", "string" })
 	public static long[] matchPositions(final String r, final String s) {
-		final Matcher m = getMatcher(r).reset(s);
+		if (isLiteral(r)) {
+			final int i = s.indexOf(r);
+			if (i == -1)
+				return new long[0];
+			return new long[] { i, i + r.length() };
+		}
+		return matchPositions(getPattern(r), s);
+	}
+
+	public static long[] matchPositions(final Pattern r, final String s) {
+		final Matcher m = r.matcher(s);
 
 		if (!m.find())
 			return new long[0];
@@ -292,7 +373,13 @@ public class BoaStringIntrinsics {
 	 */
 	@FunctionSpec(name = "matchstrs", returnType = "array of string", formalParameters = { "string", "string" })
 	public static String[] matchStrings(final String r, final String s) {
-		final Matcher m = getMatcher(r).reset(s);
+		if (isLiteral(r))
+			return s.contains(r) ? new String[] { r } : new String[0];
+		return matchStrings(getPattern(r), s);
+	}
+
+	public static String[] matchStrings(final Pattern r, final String s) {
+		final Matcher m = r.matcher(s);
 
 		if (!m.find())
 			return new String[0];
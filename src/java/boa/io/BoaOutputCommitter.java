@@ -16,6 +16,8 @@
  */
 package boa.io;
 
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
 import java.sql.*;
 
 import org.apache.hadoop.fs.FileSystem;
@@ -34,6 +36,8 @@ import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 /**
  * A {@link FileOutputCommitter} that stores the job results into a database.
+ * If several queries shared the job, each query's output is split out and
+ * stored separately.
  * 
  * @author rdyer
  */
@@ -53,8 +57,19 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 	public void commitJob(JobContext context) throws java.io.IOException {
 		super.commitJob(context);
 
+		final String[] boaJobIds = context.getConfiguration().getStrings("boa.hadoop.jobids");
+		if (boaJobIds != null) {
+			demultiplex(context, boaJobIds.length);
+			for (int i = 0; i < boaJobIds.length; i++) {
+				final int boaJobId = Integer.parseInt(boaJobIds[i].trim());
+				storeOutput(context, new Path(outputPath, "" + i), boaJobId);
+				updateStatus(null, boaJobId);
+			}
+			return;
+		}
+
 		int boaJobId = context.getConfiguration().getInt("boa.hadoop.jobid", 0);
-		storeOutput(context, boaJobId);
+		storeOutput(context, outputPath, boaJobId);
 		updateStatus(null, boaJobId);
 	}
 
@@ -80,6 +95,11 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 					break;
 			}
 		updateStatus(diag, context.getConfiguration().getInt("boa.hadoop.jobid", 0));
+
+		final String[] boaJobIds = context.getConfiguration().getStrings("boa.hadoop.jobids");
+		if (boaJobIds != null)
+			for (final String boaJobId : boaJobIds)
+				updateStatus(diag, Integer.parseInt(boaJobId.trim()));
 	}
 
 	private final static String url = "jdbc:mysql://head:3306/drupal";
@@ -114,7 +134,51 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 		}
 	}
 
-	private void storeOutput(final JobContext context, final int jobId) {
+	/**
+	 * Splits the output of a job shared by several queries into a directory
+	 * per query, named by the query's number.  Each line of output is tagged
+	 * with the number of the query it belongs to, and lines that are not
+	 * (because a value spans several lines) belong to the same query as the
+	 * line before.
+	 */
+	private void demultiplex(final JobContext context, final int queries) throws java.io.IOException {
+		final FileSystem fileSystem = outputPath.getFileSystem(context.getConfiguration());
+
+		for (int partNum = 0; ; partNum++) {
+			final String part = "part-r-" + String.format("%05d", partNum);
+			final Path path = new Path(outputPath, part);
+			if (!fileSystem.exists(path))
+				break;
+
+			final FSDataOutputStream[] outs = new FSDataOutputStream[queries];
+			final BufferedReader in = new BufferedReader(new InputStreamReader(fileSystem.open(path), "UTF-8"));
+			try {
+				int query = 0;
+				String line;
+				while ((line = in.readLine()) != null) {
+					final int sep = line.indexOf("::");
+					if (sep > 0 && line.substring(0, sep).matches("\\d+")) {
+						query = Integer.parseInt(line.substring(0, sep));
+						line = line.substring(sep + 2);
+					}
+					if (query >= queries)
+						continue;
+
+					if (outs[query] == null)
+						outs[query] = fileSystem.create(new Path(new Path(outputPath, "" + query), part));
+					outs[query].write((line + "\n").getBytes("UTF-8"));
+
+					this.context.progress();
+				}
+			} finally {
+				try { in.close(); } catch (final Exception e) { e.printStackTrace(); }
+				for (final FSDataOutputStream out : outs)
+					try { if (out != null) out.close(); } catch (final Exception e) { e.printStackTrace(); }
+			}
+		}
+	}
+
+	private void storeOutput(final JobContext context, final Path dir, final int jobId) {
 		if (jobId == 0)
 			return;
 
@@ -147,10 +211,15 @@ public class BoaOutputCommitter extends FileOutputCommitter {
 			boolean hasWebResult = false;
 
 			while (true) {
-				final Path path = new Path(outputPath, "part-r-" + String.format("%05d", partNum++));
-				if (!fileSystem.exists(path))
+				final String part = "part-r-" + String.format("%05d", partNum++);
+				if (!fileSystem.exists(new Path(outputPath, part)))
 					break;
 
+				// a query sharing the job may have no output in some parts
+				final Path path = new Path(dir, part);
+				if (!fileSystem.exists(path))
+					continue;
+
 				if (in != null)
 					try { in.close(); } catch (final Exception e) { e.printStackTrace(); }
 				in = fileSystem.open(path);
@@ -36,6 +36,7 @@ import boa.functions.BoaCasts;
 public class EmitValue implements Writable {
 	private String[] data;
 	private String metadata;
+	private byte[] state;
 
 	/**
 	 * Construct an EmitValue.
@@ -233,11 +234,35 @@ public class EmitValue implements Writable {
 		this(new String[] { BoaCasts.doubleToString(data) }, BoaCasts.doubleToString(metadata));
 	}
 
+	/**
+	 * Construct an EmitValue holding the serialized partial state of a
+	 * {@link boa.aggregators.MonoidAggregator}.
+	 * 
+	 * @param state
+	 *            An array of bytes containing the serialized state
+	 */
+	public EmitValue(final byte[] state) {
+		this(new String[0], null);
+
+		this.state = state;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void readFields(final DataInput in) throws IOException {
 		final int count = in.readInt();
 
+		// a negative count marks a serialized partial state
+		if (count < 0) {
+			this.data = new String[0];
+			this.metadata = null;
+			this.state = new byte[in.readInt()];
+			in.readFully(this.state);
+			return;
+		}
+
+		this.state = null;
+
 		this.data = new String[count];
 		for (int i = 0; i < count; i++)
 			this.data[i] = Text.readString(in);
@@ -252,6 +277,13 @@ public class EmitValue implements Writable {
 	/** {@inheritDoc} */
 	@Override
 	public void write(final DataOutput out) throws IOException {
+		if (this.state != null) {
+			out.writeInt(-1);
+			out.writeInt(this.state.length);
+			out.write(this.state);
+			return;
+		}
+
 		out.writeInt(this.data.length);
 
 		for (final String d : this.data)
@@ -293,12 +325,27 @@ public class EmitValue implements Writable {
 		this.metadata = metadata;
 	}
 
+	/**
+	 * @return true if this value holds a serialized partial state
+	 */
+	public boolean isPartial() {
+		return this.state != null;
+	}
+
+	/**
+	 * @return the serialized partial state, or null
+	 */
+	public byte[] getState() {
+		return this.state;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + Arrays.hashCode(this.data);
 		result = prime * result + (this.metadata == null ? 0 : this.metadata.hashCode());
+		result = prime * result + Arrays.hashCode(this.state);
 		return result;
 	}
 
@@ -318,6 +365,8 @@ public class EmitValue implements Writable {
 				return false;
 		} else if (!this.metadata.equals(other.metadata))
 			return false;
+		if (!Arrays.equals(this.state, other.state))
+			return false;
 		return true;
 	}
 
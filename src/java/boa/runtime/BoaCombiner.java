@@ -27,6 +27,7 @@ import org.apache.log4j.Logger;
 
 import boa.aggregators.Aggregator;
 import boa.aggregators.FinishedException;
+import boa.aggregators.SpillSettings;
 import boa.io.EmitKey;
 import boa.io.EmitValue;
 
@@ -72,6 +73,7 @@ public abstract class BoaCombiner extends Reducer<EmitKey, EmitValue, EmitKey, E
 	public void setConf(final Configuration conf) {
 		this.conf = conf;
 		this.robust = conf.getBoolean("boa.runtime.robust", false);
+		SpillSettings.configure(conf);
 	}
 
 	/** {@inheritDoc} */
@@ -95,8 +97,7 @@ public abstract class BoaCombiner extends Reducer<EmitKey, EmitValue, EmitKey, E
 
 		for (final EmitValue value : values)
 			try {
-				for (final String s : value.getData())
-					a.aggregate(s, value.getMetadata());
+				a.aggregate(value);
 			} catch (final FinishedException e) {
 				// we are done
 				return;
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Collects the emits of one part of a parallel quantifier, so they can be
+ * written to the task's context in order once every part is done.  Without a
+ * context to buffer for, emits are written straight through.
+ */
+public class BoaEmitBuffer {
+	private final TaskInputOutputContext<?, ?, EmitKey, EmitValue> context;
+	private final List<EmitKey> keys = new ArrayList<EmitKey>();
+	private final List<EmitValue> values = new ArrayList<EmitValue>();
+
+	public BoaEmitBuffer() {
+		this(null);
+	}
+
+	public BoaEmitBuffer(final TaskInputOutputContext<?, ?, EmitKey, EmitValue> context) {
+		this.context = context;
+	}
+
+	/**
+	 * Emits a value, buffering it unless writing straight through.
+	 * 
+	 * @param key the key of the emit
+	 * @param value the value of the emit
+	 */
+	public void write(final EmitKey key, final EmitValue value) throws IOException, InterruptedException {
+		if (context != null) {
+			context.write(key, value);
+		} else {
+			keys.add(key);
+			values.add(value);
+		}
+	}
+
+	/**
+	 * Writes the buffered emits to a context, in the order they were made.
+	 * 
+	 * @param context the context to write to
+	 */
+	public void flush(final TaskInputOutputContext<?, ?, EmitKey, EmitValue> context) throws IOException, InterruptedException {
+		for (int i = 0; i < keys.size(); i++)
+			context.write(keys.get(i), values.get(i));
+		keys.clear();
+		values.clear();
+	}
+}
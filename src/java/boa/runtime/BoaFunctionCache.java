@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the results of a memoized Boa function, keyed by its
+ * arguments.  Each task keeps one per memoized function, evicting the least
+ * recently used result once full.
+ */
+public class BoaFunctionCache {
+	/** The default maximum number of results cached per function. */
+	public static final int MAX_CACHED = 10000;
+
+	private final Map<Object, Object> cache;
+
+	public BoaFunctionCache() {
+		this(MAX_CACHED);
+	}
+
+	public BoaFunctionCache(final int max) {
+		this.cache = new LinkedHashMap<Object, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Object, Object> eldest) {
+				return size() > max;
+			}
+		};
+	}
+
+	/**
+	 * Makes the key for a call, from its arguments.
+	 * 
+	 * @param args the arguments of the call
+	 * @return the key
+	 */
+	public static Object key(final Object... args) {
+		if (args.length == 1)
+			return args[0];
+		return Arrays.asList(args);
+	}
+
+	/**
+	 * Returns the cached result for a key, or null if there is none.
+	 * 
+	 * @param key the key of the call
+	 * @return the cached result, or null
+	 */
+	public synchronized Object get(final Object key) {
+		return cache.get(key);
+	}
+
+	/**
+	 * Caches the result for a key.
+	 * 
+	 * @param key the key of the call
+	 * @param value the result of the call
+	 */
+	public synchronized void put(final Object key, final Object value) {
+		cache.put(key, value);
+	}
+}
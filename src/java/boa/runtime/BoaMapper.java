@@ -16,6 +16,7 @@
  */
 package boa.runtime;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.apache.hadoop.conf.Configurable;
@@ -25,8 +26,12 @@ import org.apache.hadoop.io.BytesWritable;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.log4j.Logger;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
 import boa.io.EmitKey;
 import boa.io.EmitValue;
+import boa.types.Toplevel.Project;
 
 /**
  * A {@link Mapper} that performs the brunt of all Boa work.
@@ -60,4 +65,32 @@ public abstract class BoaMapper extends Mapper<Text, BytesWritable, EmitKey, Emi
 
 		this.context = context;
 	}
+
+	/**
+	 * Decodes just the metadata of a project, skipping its code and issue
+	 * repositories (which hold nearly all of its data) without decoding them.
+	 * 
+	 * @param value the encoded project
+	 * @return the project, with no code or issue repositories
+	 * @throws IOException if the project can not be decoded
+	 */
+	protected static Project parseMetadata(final BytesWritable value) throws IOException {
+		final byte[] bytes = value.getBytes();
+		final CodedInputStream in = CodedInputStream.newInstance(bytes, 0, value.getLength());
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		while (true) {
+			final int start = in.getTotalBytesRead();
+			final int tag = in.readTag();
+			if (tag == 0)
+				break;
+			in.skipField(tag);
+
+			final int field = WireFormat.getTagFieldNumber(tag);
+			if (field != Project.CODE_REPOSITORIES_FIELD_NUMBER && field != Project.ISSUE_REPOSITORIES_FIELD_NUMBER)
+				out.write(bytes, start, in.getTotalBytesRead() - start);
+		}
+
+		return Project.parseFrom(out.toByteArray());
+	}
 }
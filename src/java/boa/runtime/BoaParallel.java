@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+
+/**
+ * Runs the iterations of a foreach quantifier in parallel.  The list is split
+ * into one contiguous range per thread, and each range buffers its emits so
+ * they can be written in the same order a sequential loop would write them.
+ */
+public class BoaParallel {
+	/** Lists with fewer elements than this per thread run sequentially. */
+	public static final int MIN_PER_THREAD = 64;
+
+	/** The number of threads to split a list over, one per core. */
+	public static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static final ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable r) {
+			final Thread t = new Thread(r, "boa-parallel");
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	/**
+	 * The body of a quantifier, run over a range of its indices.
+	 */
+	public static abstract class Body {
+		/**
+		 * Runs the quantifier's body for the indices in [from, to).
+		 * 
+		 * @param from the first index
+		 * @param to one past the last index
+		 * @param context where to write emits to
+		 */
+		public abstract void run(final int from, final int to, final BoaEmitBuffer context) throws Exception;
+	}
+
+	/**
+	 * Runs a quantifier's body for every index of a list, in parallel if the
+	 * list is large enough.
+	 * 
+	 * @param size the size of the list
+	 * @param body the body of the quantifier
+	 * @param context the context of the task, or null if the body does not emit
+	 */
+	public static void foreach(final int size, final Body body, final TaskInputOutputContext<?, ?, EmitKey, EmitValue> context) throws Exception {
+		foreach(size, THREADS, body, context);
+	}
+
+	/**
+	 * Runs a quantifier's body for every index of a list, split over at most
+	 * the given number of threads.
+	 * 
+	 * @param size the size of the list
+	 * @param threads the most threads to use
+	 * @param body the body of the quantifier
+	 * @param context the context of the task, or null if the body does not emit
+	 */
+	public static void foreach(final int size, final int threads, final Body body, final TaskInputOutputContext<?, ?, EmitKey, EmitValue> context) throws Exception {
+		final int parts = Math.min(threads, size / MIN_PER_THREAD);
+		if (parts < 2) {
+			body.run(0, size, new BoaEmitBuffer(context));
+			return;
+		}
+
+		final List<BoaEmitBuffer> buffers = new ArrayList<BoaEmitBuffer>();
+		final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int i = 0; i < parts; i++) {
+			final int from = (int) ((long) size * i / parts);
+			final int to = (int) ((long) size * (i + 1) / parts);
+			final BoaEmitBuffer buffer = new BoaEmitBuffer();
+			buffers.add(buffer);
+			futures.add(pool.submit(new Callable<Object>() {
+				@Override
+				public Object call() throws Exception {
+					body.run(from, to, buffer);
+					return null;
+				}
+			}));
+		}
+
+		Throwable error = null;
+		for (final Future<Object> f : futures)
+			try {
+				f.get();
+			} catch (final ExecutionException e) {
+				if (error == null)
+					error = e.getCause();
+			}
+
+		if (error instanceof Exception)
+			throw (Exception) error;
+		if (error != null)
+			throw (Error) error;
+
+		if (context != null)
+			for (final BoaEmitBuffer buffer : buffers)
+				buffer.flush(context);
+	}
+}
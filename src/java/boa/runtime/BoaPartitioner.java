@@ -16,6 +16,8 @@
  */
 package boa.runtime;
 
+import org.apache.hadoop.conf.Configurable;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.Partitioner;
 
 import boa.io.EmitKey;
@@ -23,12 +25,39 @@ import boa.io.EmitValue;
 
 /**
  * A {@link Partitioner} that takes several merged jobs and partitions
- * keys from each job to its own reducer.
+ * keys from each job to a reducer.  If the configuration gives a table
+ * of partitions (<code>boa.partitions</code>, one reducer per job id)
+ * keys go to their job's reducer, otherwise jobs are spread by id.
  * 
  * @author rdyer
  */
-public class BoaPartitioner extends Partitioner<EmitKey, EmitValue> {
+public class BoaPartitioner extends Partitioner<EmitKey, EmitValue> implements Configurable {
+	private Configuration conf;
+	private int[] partitions = new int[0];
+
+	/** {@inheritDoc} */
+	@Override
+	public Configuration getConf() {
+		return this.conf;
+	}
+
+	/** {@inheritDoc} */
+	@Override
+	public void setConf(final Configuration conf) {
+		this.conf = conf;
+
+		final String[] table = conf.getStrings("boa.partitions", new String[0]);
+		this.partitions = new int[table.length];
+		for (int i = 0; i < table.length; i++)
+			this.partitions[i] = Integer.parseInt(table[i].trim());
+	}
+
+	/** {@inheritDoc} */
+	@Override
 	public int getPartition(final EmitKey key, final EmitValue value, final int num) {
-		return key.getId() % num;
+		final int id = key.getId();
+		if (id >= 0 && id < this.partitions.length)
+			return this.partitions[id] % num;
+		return id % num;
 	}
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.runtime;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+
+/**
+ * Counts how often, and for how long, each profiled site in a Boa program
+ * runs.  Sites are top-level statements, visit clauses and functions, and
+ * are only profiled if the program was compiled with profiling enabled.
+ */
+public class BoaProfiler {
+	/** The counter group the hottest sites are reported in. */
+	public static final String COUNTER_GROUP = "Boa Profile";
+
+	/** The number of sites reported as counters, as Hadoop limits the number of counters. */
+	protected static final int MAX_COUNTERS = 10;
+
+	private static final List<String> sites = new ArrayList<String>();
+	private static long[] counts = new long[16];
+	private static long[] times = new long[16];
+
+	/**
+	 * Registers a profiled site.
+	 * 
+	 * @param source the name of the source file
+	 * @param line the line in the source file
+	 * @param kind the kind of site (statement, visit or function)
+	 * @return the id to record the site's executions with
+	 */
+	public static synchronized int register(final String source, final int line, final String kind) {
+		final int id = sites.size();
+		sites.add(source + "\t" + line + "\t" + kind);
+
+		if (id == counts.length) {
+			counts = Arrays.copyOf(counts, id * 2);
+			times = Arrays.copyOf(times, id * 2);
+		}
+
+		return id;
+	}
+
+	/**
+	 * Records one execution of a site.
+	 * 
+	 * @param id the site's id
+	 * @param nanos how long the execution took, in nanoseconds
+	 */
+	public static void record(final int id, final long nanos) {
+		counts[id]++;
+		times[id] += nanos;
+	}
+
+	/**
+	 * Reports the profile: the hottest sites as counters, and every site in
+	 * a file (named profile-m-NNNNN.tsv) in the job's output directory.
+	 * 
+	 * @param context the task's context
+	 */
+	@SuppressWarnings("rawtypes")
+	public static synchronized void report(final TaskInputOutputContext context) throws IOException, InterruptedException {
+		final Integer[] ids = new Integer[sites.size()];
+		for (int i = 0; i < ids.length; i++)
+			ids[i] = i;
+		Arrays.sort(ids, new Comparator<Integer>() {
+			public int compare(final Integer left, final Integer right) {
+				return times[right] < times[left] ? -1 : times[right] == times[left] ? 0 : 1;
+			}
+		});
+
+		for (int i = 0; i < ids.length && i < MAX_COUNTERS; i++) {
+			if (counts[ids[i]] == 0)
+				break;
+			final String name = sites.get(ids[i]).replace('\t', ':');
+			context.getCounter(COUNTER_GROUP, name + " calls").increment(counts[ids[i]]);
+			context.getCounter(COUNTER_GROUP, name + " ms").increment(times[ids[i]] / 1000000);
+		}
+
+		final Path path = new Path(FileOutputFormat.getWorkOutputPath(context), FileOutputFormat.getUniqueFile(context, "profile", ".tsv"));
+		final FSDataOutputStream out = path.getFileSystem(context.getConfiguration()).create(path);
+		final PrintStream ps = new PrintStream(out, false, "UTF-8");
+		try {
+			ps.println("source\tline\tkind\tcalls\tms");
+			for (final Integer id : ids)
+				ps.println(sites.get(id) + "\t" + counts[id] + "\t" + (times[id] / 1000000.0));
+		} finally {
+			ps.close();
+		}
+
+		reset();
+	}
+
+	/**
+	 * Clears the recorded executions of every site.
+	 */
+	public static synchronized void reset() {
+		Arrays.fill(counts, 0);
+		Arrays.fill(times, 0);
+	}
+}
@@ -29,6 +29,7 @@ import org.apache.log4j.Logger;
 
 import boa.aggregators.Aggregator;
 import boa.aggregators.FinishedException;
+import boa.aggregators.SpillSettings;
 import boa.io.EmitKey;
 import boa.io.EmitValue;
 
@@ -73,6 +74,7 @@ public abstract class BoaReducer extends Reducer<EmitKey, EmitValue, Text, NullW
 	public void setConf(final Configuration conf) {
 		this.conf = conf;
 		this.robust = conf.getBoolean("boa.runtime.robust", false);
+		SpillSettings.configure(conf);
 	}
 
 	/** {@inheritDoc} */
@@ -87,8 +89,7 @@ public abstract class BoaReducer extends Reducer<EmitKey, EmitValue, Text, NullW
 
 		for (final EmitValue value : values)
 			try {
-				for (final String s : value.getData())
-					a.aggregate(s, value.getMetadata());
+				a.aggregate(value);
 			} catch (final FinishedException e) {
 				// we are done
 				return;
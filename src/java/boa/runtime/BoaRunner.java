@@ -118,6 +118,11 @@ public abstract class BoaRunner extends Configured implements Tool {
 										.hasArg()
 										.withArgName("ID")
 										.create("j"));
+		options.addOption(OptionBuilder.withLongOpt("jobs")
+										.withDescription("sets the MySql IDs to update with the status and output of each query sharing this job, in order")
+										.hasArg()
+										.withArgName("IDS")
+										.create("J"));
 		options.addOption(org.apache.commons.cli.OptionBuilder.withLongOpt("ast")
 										.withDescription("which INPUT to use for ASTs")
 										.hasArg()
@@ -150,6 +155,25 @@ public abstract class BoaRunner extends Configured implements Tool {
 		System.exit(-1);
 	}
 
+	/**
+	 * Determines if a setting was given by the user or cluster, rather than
+	 * coming from Hadoop's built-in defaults.
+	 * 
+	 * @param conf the configuration to check
+	 * @param name the name of the setting
+	 * @return true if the setting has a value other than its default
+	 */
+	public static boolean isConfigured(final Configuration conf, final String name) {
+		final String value = conf.get(name);
+		if (value == null)
+			return false;
+
+		final Configuration defaults = new Configuration(false);
+		defaults.addResource("core-default.xml");
+		defaults.addResource("mapred-default.xml");
+		return !value.equals(defaults.get(name));
+	}
+
 	public abstract String getUsage();
 
 	public abstract Mapper<?,?,?,?> getMapper();
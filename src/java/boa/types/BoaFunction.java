@@ -245,10 +245,17 @@ public class BoaFunction extends BoaType {
 		String s = cleanType(type.toJavaType()) + "_";
 		for (final BoaType t : this.formalParameters)
 			s += "_" + cleanType(t.toJavaType());
-		// use numbers for each unique type, to avoid generating really long filenames
-		if (!funcNames.containsKey(s))
-			funcNames.put(s, "BoaFunc_" + funcNames.size());
-		return funcNames.get(s);
+		// use a hash of each unique type, to avoid generating really long filenames
+		// (the name must not depend on the order jobs are compiled in)
+		synchronized (funcNames) {
+			if (!funcNames.containsKey(s)) {
+				String name = "BoaFunc_" + Integer.toHexString(s.hashCode());
+				while (funcNames.containsValue(name))
+					name += "_";
+				funcNames.put(s, name);
+			}
+			return funcNames.get(s);
+		}
 	}
 
 	private String cleanType(String s) {
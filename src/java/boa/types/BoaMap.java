@@ -120,9 +120,34 @@ public class BoaMap extends BoaType {
 		return "map[" + this.indexType + "] of " + this.valueType;
 	}
 
+	/**
+	 * Returns whether this map is generated as one of the primitive-keyed
+	 * maps in {@link boa.collections}, rather than a {@link java.util.HashMap}.
+	 * 
+	 * @return true if the indices are <code>int</code> or <code>time</code>
+	 */
+	public boolean isPrimitive() {
+		return isLongType(this.indexType);
+	}
+
+	/**
+	 * Returns whether values of a type are represented by a <code>long</code>.
+	 */
+	static boolean isLongType(final BoaType type) {
+		return type instanceof BoaInt || type instanceof BoaTime;
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toJavaType() {
+		if (this.isPrimitive()) {
+			if (isLongType(this.valueType))
+				return "boa.collections.LongLongMap";
+			if (this.valueType instanceof BoaFloat)
+				return "boa.collections.LongDoubleMap";
+			return "boa.collections.LongObjectMap<" + this.valueType.toBoxedJavaType() + ">";
+		}
+
 		return "java.util.HashMap<" + this.indexType.toBoxedJavaType() + ", " + this.valueType.toBoxedJavaType() + ">";
 	}
 
@@ -96,9 +96,21 @@ public class BoaSet extends BoaType {
 		return "set of " + this.type;
 	}
 
+	/**
+	 * Returns whether this set is generated as a {@link boa.collections.LongSet},
+	 * rather than a {@link java.util.HashSet}.
+	 * 
+	 * @return true if the elements are <code>int</code> or <code>time</code>
+	 */
+	public boolean isPrimitive() {
+		return BoaMap.isLongType(this.type);
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public String toJavaType() {
+		if (this.isPrimitive())
+			return "boa.collections.LongSet";
 		return "java.util.HashSet<" + this.type.toBoxedJavaType() + ">";
 	}
 
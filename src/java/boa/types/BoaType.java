@@ -108,7 +108,8 @@ public abstract class BoaType {
 	/** {@inheritDoc} */
 	@Override
 	public int hashCode() {
-		return 0;
+		// consistent with equals(), and the same on every run
+		return this.getClass().getName().hashCode();
 	}
 
 	/** {@inheritDoc} */
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.aggregators;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import boa.aggregators.FinishedException;
+import boa.aggregators.GraphCSVAggregator;
+import boa.aggregators.GraphvizAggregator;
+import boa.aggregators.MedianAggregator;
+import boa.aggregators.SetAggregator;
+import boa.aggregators.SpillSettings;
+import boa.io.EmitKey;
+
+@RunWith(JUnit4.class)
+public class TestSpillingAggregators {
+	// with a 1MB budget, this many values spill several runs
+	final private static int DISTINCT = 40000;
+
+	private File dir;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = File.createTempFile("boa-spill-test", "");
+		dir.delete();
+		dir.mkdirs();
+
+		final Configuration conf = new Configuration();
+		conf.setInt("boa.runtime.spill.memory", 1);
+		conf.set("boa.runtime.spill.dir", dir.getPath());
+		SpillSettings.configure(conf);
+	}
+
+	@After
+	public void tearDown() {
+		SpillSettings.configure(new Configuration());
+		for (final File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void setMergesRuns() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final SetAggregator a = new SetAggregator() {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data);
+			}
+		};
+
+		a.start(new EmitKey("s", 0));
+		// each pass repeats every value, so values are found in more than one run
+		for (int pass = 0; pass < 3; pass++)
+			for (int i = 0; i < DISTINCT; i++)
+				a.aggregate(value(i), null);
+		assertTrue(runs() > 1);
+
+		a.finish();
+		assertEquals(new ArrayList<String>(expected(DISTINCT)), out);
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void setCapIsExactAfterSpilling() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final SetAggregator a = new SetAggregator(DISTINCT + 1) {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data);
+			}
+		};
+
+		// duplicates across runs must not count against the cap
+		a.start(new EmitKey("s", 0));
+		for (int pass = 0; pass < 3; pass++)
+			for (int i = 0; i < DISTINCT; i++)
+				a.aggregate(value(i), null);
+		a.finish();
+
+		assertEquals(DISTINCT, out.size());
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void setCutWhileMerging() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final SetAggregator a = new SetAggregator(DISTINCT / 2) {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data);
+			}
+		};
+
+		a.start(new EmitKey("s", 0));
+		for (int i = 0; i < DISTINCT; i++)
+			a.aggregate(value(i), null);
+		a.finish();
+
+		assertEquals(new ArrayList<String>(expected(DISTINCT)).subList(0, DISTINCT / 2), out);
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void setFinishedInMemory() throws Exception {
+		final SetAggregator a = new SetAggregator(10);
+
+		a.start(new EmitKey("s", 0));
+		boolean finished = false;
+		try {
+			for (int i = 0; i < 20; i++)
+				a.aggregate(value(i), null);
+		} catch (final FinishedException e) {
+			finished = true;
+		}
+
+		assertTrue(finished);
+	}
+
+	@Test
+	public void restartDeletesRuns() throws Exception {
+		final SetAggregator a = new SetAggregator();
+
+		a.start(new EmitKey("s", 0));
+		for (int i = 0; i < DISTINCT; i++)
+			a.aggregate(value(i), null);
+		assertTrue(runs() > 0);
+
+		// the key was never finished
+		a.start(new EmitKey("t", 0));
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void medianDeletesUnreadRuns() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final MedianAggregator a = new MedianAggregator() {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data);
+			}
+		};
+
+		a.start(new EmitKey("m", 0));
+		for (int pass = 0; pass < 2; pass++)
+			for (int i = 0; i < 3 * DISTINCT; i++)
+				a.aggregate(i, null);
+		assertTrue(runs() > 1);
+
+		a.finish();
+		assertEquals(1, out.size());
+		assertEquals(3 * DISTINCT / 2, Double.parseDouble(out.get(0)), 0.5);
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void graphMergesRuns() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final GraphCSVAggregator a = new GraphCSVAggregator() {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data);
+			}
+		};
+
+		a.start(new EmitKey("[a]", "g", 0));
+		for (int pass = 0; pass < 3; pass++)
+			for (int i = 0; i < DISTINCT; i++)
+				a.aggregate("\"" + value(i) + "\"", null);
+		assertTrue(runs() > 1);
+
+		a.finish();
+		final StringBuilder sb = new StringBuilder();
+		for (final String s : expected(DISTINCT))
+			sb.append(sb.length() > 0 ? "," : "").append('"').append(s).append('"');
+		assertEquals(1, out.size());
+		assertEquals(sb.toString(), out.get(0));
+		assertEquals(0, runs());
+	}
+
+	@Test
+	public void graphKeepsLastWeight() throws Exception {
+		final List<String> out = new ArrayList<String>();
+		final GraphvizAggregator a = new GraphvizAggregator() {
+			@Override
+			protected void collect(final String data, final String metadata) {
+				out.add(data + " " + metadata);
+			}
+		};
+
+		a.start(new EmitKey("[a]", "g", 0));
+		for (int pass = 0; pass < 3; pass++)
+			for (int i = 0; i < DISTINCT; i++)
+				a.aggregate(value(i), "w" + pass);
+		assertTrue(runs() > 1);
+
+		a.finish();
+		assertEquals(DISTINCT, out.size());
+		int i = 0;
+		for (final String s : expected(DISTINCT))
+			assertEquals("\"" + s + "\" \"w2\"", out.get(i++));
+		assertEquals(0, runs());
+	}
+
+	private int runs() {
+		return dir.list().length;
+	}
+
+	private static String value(final int i) {
+		return "value-" + i;
+	}
+
+	private static TreeSet<String> expected(final int n) {
+		final TreeSet<String> values = new TreeSet<String>();
+		for (int i = 0; i < n; i++)
+			values.add(value(i));
+		return values;
+	}
+}
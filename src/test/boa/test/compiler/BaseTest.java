@@ -55,10 +55,15 @@ import org.stringtemplate.v4.ST;
 
 import boa.compiler.SymbolTable;
 import boa.compiler.ast.Start;
+import boa.compiler.transforms.ConstantFoldingTransformer;
+import boa.compiler.transforms.FunctionInliningTransformer;
+import boa.compiler.transforms.FunctionMemoizingTransformer;
 import boa.compiler.transforms.LocalAggregationTransformer;
+import boa.compiler.transforms.LoopInvariantHoistingTransformer;
 import boa.compiler.transforms.VisitorOptimizingTransformer;
 import boa.compiler.visitors.AbstractCodeGeneratingVisitor;
 import boa.compiler.visitors.CodeGeneratingVisitor;
+import boa.compiler.visitors.ProjectFilterFindingVisitor;
 import boa.compiler.visitors.TypeCheckingVisitor;
 
 import boa.parser.BoaLexer;
@@ -231,12 +236,13 @@ public abstract class BaseTest {
 	// code generation
 	//
 
-	protected void codegen(final String input) throws IOException {
-		codegen(input, null);
+	protected String codegen(final String input) throws IOException {
+		return codegen(input, null);
 	}
 
-	protected void codegen(final String input, final String error) throws IOException {
+	protected String codegen(final String input, final String error) throws IOException {
 		final Start p = parse(input).ast;
+		String source = null;
 
 		final File outputRoot = new File(new File(System.getProperty("java.io.tmpdir")), UUID.randomUUID().toString());
 		final File outputSrcDir = new File(outputRoot, "boa");
@@ -244,18 +250,23 @@ public abstract class BaseTest {
 			throw new IOException("unable to mkdir " + outputSrcDir);
 		final File outputFile = new File(outputSrcDir, "Test.java");
 
-		CodeGeneratingVisitor.combineAggregatorStrings.clear();
-		CodeGeneratingVisitor.reduceAggregatorStrings.clear();
-
 		final List<String> jobnames = new ArrayList<String>();
 		final List<String> jobs = new ArrayList<String>();
 
 		try {
 			new TypeCheckingVisitor().start(p, new SymbolTable());
+			final ProjectFilterFindingVisitor filterFinder = new ProjectFilterFindingVisitor();
+			filterFinder.start(p);
+			new ConstantFoldingTransformer().start(p);
+			new FunctionInliningTransformer().start(p);
+			new FunctionMemoizingTransformer().start(p);
+			new LoopInvariantHoistingTransformer().start(p);
 			new LocalAggregationTransformer().start(p);
 			new VisitorOptimizingTransformer().start(p);
 
 			final CodeGeneratingVisitor cg = new CodeGeneratingVisitor("1");
+			cg.setFilters(filterFinder.getFilters(), filterFinder.getAliases());
+			cg.setParallelQuantifiers(true);
 			cg.start(p);
 			jobs.add(cg.getCode());
 			jobnames.add("1");
@@ -266,13 +277,15 @@ public abstract class BaseTest {
 			st.add("numreducers", 1);
 			st.add("jobs", jobs);
 			st.add("jobnames", jobnames);
-			st.add("combineTables", CodeGeneratingVisitor.combineAggregatorStrings);
-			st.add("reduceTables", CodeGeneratingVisitor.reduceAggregatorStrings);
+			st.add("combineTables", cg.getCombineAggregatorStrings());
+			st.add("reduceTables", cg.getReduceAggregatorStrings());
+			st.add("filtered", cg.hasFilters());
 			st.add("splitsize", 64 * 1024 * 1024);
 
+			source = st.render();
 			final BufferedOutputStream o = new BufferedOutputStream(new FileOutputStream(outputFile));
 			try {
-				o.write(st.render().getBytes());
+				o.write(source.getBytes());
 			} finally {
 				o.close();
 			}
@@ -300,6 +313,7 @@ public abstract class BaseTest {
 		}
 
 		delete(outputSrcDir);
+		return source;
 	}
 
 
@@ -16,6 +16,8 @@
  */
 package boa.test.compiler;
 
+import static org.junit.Assert.assertTrue;
+
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,6 +34,7 @@ import org.junit.runners.Parameterized.Parameters;
 @RunWith(Parameterized.class)
 public class TestCodegenGood extends BaseTest {
 	final private static String rootDir = "test/codegen/";
+	final private static String GENERATES = "# generates:";
 
 	@Parameters(name = "{0}")
 	public static List<String[]> data() {
@@ -48,9 +51,19 @@ public class TestCodegenGood extends BaseTest {
 	}
 
 
-	// test a bunch of known good files
+	// test a bunch of known good files, which may also check the generated
+	// code with comments of the form "# generates: <java code>"
 	@Test
 	public void knownGood() throws IOException {
-		codegen(load(fileName));
+		final String input = load(fileName);
+		final String source = codegen(input);
+
+		for (final String line : input.split("\n")) {
+			final int i = line.indexOf(GENERATES);
+			if (i != -1) {
+				final String expected = line.substring(i + GENERATES.length()).trim();
+				assertTrue("expected generated code: " + expected, source.contains(expected));
+			}
+		}
 	}
 }
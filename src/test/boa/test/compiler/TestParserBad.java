@@ -83,4 +83,16 @@ public class TestParserBad extends BaseTest {
 				"3,1: error: visit statements must start with 'before' or 'after'"
 			});
 	}
+
+	@Test
+	public void unknownAnnotation() throws IOException {
+		parse(load(badDir + "unknown-annotation.boa"),
+			new String[] { "3,5: error: ';' expected" });
+	}
+
+	@Test
+	public void cStyleDeclaration() throws IOException {
+		parse(load(badDir + "c-style-declaration.boa"),
+			new String[] { "1,4: error: ';' expected" });
+	}
 }
@@ -80,4 +80,9 @@ public class TestTypecheckBad extends BaseTest {
 	public void quantMissingUse() throws IOException {
 		typecheck(load(badDir + "quant-missing-use.boa"), "quantifier variable 'i' must be used in the foreach condition expression");
 	}
+
+	@Test
+	public void annotationOnVar() throws IOException {
+		typecheck(load(badDir + "annotation-on-var.boa"), "annotation 'nomemo' only applies to function declarations");
+	}
 }
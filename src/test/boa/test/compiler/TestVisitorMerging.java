@@ -0,0 +1,158 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.compiler;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import boa.compiler.SymbolTable;
+import boa.compiler.TypeCheckException;
+import boa.compiler.ast.Factor;
+import boa.compiler.ast.Program;
+import boa.compiler.ast.Start;
+import boa.compiler.transforms.VisitorMergingTransformer;
+import boa.compiler.visitors.AbstractVisitorNoArg;
+import boa.compiler.visitors.TypeCheckingVisitor;
+import boa.types.BoaInt;
+import boa.types.BoaString;
+
+public class TestVisitorMerging extends BaseTest {
+	/** Exposes the grouping and pre-processing of programs. */
+	private static class Merger extends VisitorMergingTransformer {
+		public Merger() {
+			super();
+		}
+
+		public Merger(final boolean verifyTypes) {
+			super(verifyTypes);
+		}
+
+		public List<List<Integer>> group(final List<Program> programs, final int maxMerged) {
+			return groupPrograms(programs, maxMerged);
+		}
+
+		public void preProcess(final Program p) {
+			preProcessProgram(p);
+		}
+
+		public void verify(final Program p) {
+			verifyTypes(p);
+		}
+	}
+
+	/** Finds the first factor of a tree. */
+	private static class FactorFindingVisitor extends AbstractVisitorNoArg {
+		protected Factor factor;
+
+		/** {@inheritDoc} */
+		@Override
+		protected void initialize() {
+			factor = null;
+		}
+
+		/** {@inheritDoc} */
+		@Override
+		public void visit(final Factor n) {
+			if (factor == null)
+				factor = n;
+			super.visit(n);
+		}
+	}
+
+	private static final String STOPPING = "o: output sum of int;\n"
+			+ "visit(input, visitor {\n"
+			+ "	before n: Revision -> {\n"
+			+ "		o << 1;\n"
+			+ "		stop;\n"
+			+ "	}\n"
+			+ "	before n: ChangedFile -> o << 1;\n"
+			+ "});\n";
+
+	private Program program(final String type) throws IOException {
+		return typecheckedProgram("o: output sum of int;\n"
+				+ "visit(input, visitor {\n"
+				+ "	before n: " + type + " -> o << 1;\n"
+				+ "});\n");
+	}
+
+	private Program typecheckedProgram(final String input) throws IOException {
+		final Start p = parse(input).ast;
+		new TypeCheckingVisitor().start(p, new SymbolTable());
+		p.getProgram().jobName = "0";
+		return p.getProgram();
+	}
+
+	private List<Program> programs(final String... types) throws IOException {
+		final List<Program> programs = new ArrayList<Program>();
+		for (final String type : types)
+			programs.add(program(type));
+		return programs;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<List<Integer>> groups(final List<Integer>... groups) {
+		return Arrays.asList(groups);
+	}
+
+	@Test
+	public void separatesAstPrograms() throws IOException {
+		final List<Program> programs = programs("Revision", "Method", "ChangedFile", "Statement", "Person");
+
+		assertEquals(groups(Arrays.asList(0, 2, 4), Arrays.asList(1, 3)), new Merger().group(programs, 5));
+	}
+
+	@Test
+	public void groupsOverlappingTypes() throws IOException {
+		final List<Program> programs = programs("Revision", "CodeRepository", "Revision", "CodeRepository");
+
+		assertEquals(groups(Arrays.asList(0, 2), Arrays.asList(1, 3)), new Merger().group(programs, 2));
+	}
+
+	@Test
+	public void keepsInputOrder() throws IOException {
+		// the deepest program seeds the first group, but groups and their
+		// members are still returned in input order
+		final List<Program> programs = programs("CodeRepository", "Method", "Revision", "Expression", "Revision");
+
+		assertEquals(groups(Arrays.asList(0), Arrays.asList(1, 3), Arrays.asList(2, 4)), new Merger().group(programs, 2));
+	}
+
+	@Test
+	public void stopTransformPassesTypeVerification() throws IOException {
+		final Merger merger = new Merger(true);
+		merger.preProcess(typecheckedProgram(STOPPING));
+
+		assertEquals(Integer.valueOf(1), merger.getLiftedStops().get("0"));
+	}
+
+	@Test(expected = TypeCheckException.class)
+	public void typeVerificationFindsWrongTypes() throws IOException {
+		final Program p = typecheckedProgram(STOPPING);
+
+		final FactorFindingVisitor factorFinder = new FactorFindingVisitor();
+		factorFinder.start(p);
+		factorFinder.factor.type = factorFinder.factor.type instanceof BoaString ? new BoaInt() : new BoaString();
+
+		new Merger(true).verify(p);
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026, Iowa State University of Science and Technology
+ *                 and Bowling Green State University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package boa.test.runtime;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskAttemptID;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import boa.io.EmitKey;
+import boa.io.EmitValue;
+import boa.runtime.BoaEmitBuffer;
+import boa.runtime.BoaParallel;
+
+@RunWith(JUnit4.class)
+public class TestBoaParallel {
+	final private static int THREADS = 8;
+	final private static int SIZE = THREADS * BoaParallel.MIN_PER_THREAD * 40 + 17;
+
+	@Test
+	public void emitsInOrder() throws Exception {
+		final List<String> written = new ArrayList<String>();
+		BoaParallel.foreach(SIZE, THREADS, new BoaParallel.Body() {
+			public void run(final int from, final int to, final BoaEmitBuffer context) throws Exception {
+				for (long i = from; i < to; i++) {
+					context.write(new EmitKey("[" + i + "]", "o", 0), new EmitValue(i * 1000003));
+					context.write(new EmitKey("[" + i + "]", "o", 0), new EmitValue(i + 0.25));
+				}
+			}
+		}, context(written));
+
+		assertEquals(2 * SIZE, written.size());
+		for (long i = 0; i < SIZE; i++) {
+			assertEquals("[" + i + "] " + (i * 1000003), written.get((int) (2 * i)));
+			assertEquals("[" + i + "] " + (i + 0.25), written.get((int) (2 * i + 1)));
+		}
+	}
+
+	@Test
+	public void smallListsRunInline() throws Exception {
+		final List<String> written = new ArrayList<String>();
+		final Thread caller = Thread.currentThread();
+		BoaParallel.foreach(BoaParallel.MIN_PER_THREAD, THREADS, new BoaParallel.Body() {
+			public void run(final int from, final int to, final BoaEmitBuffer context) throws Exception {
+				assertEquals(caller, Thread.currentThread());
+				for (long i = from; i < to; i++)
+					context.write(new EmitKey("o", 0), new EmitValue(i));
+			}
+		}, context(written));
+
+		assertEquals(BoaParallel.MIN_PER_THREAD, written.size());
+		assertEquals("[] 0", written.get(0));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void rethrowsErrors() throws Exception {
+		BoaParallel.foreach(SIZE, THREADS, new BoaParallel.Body() {
+			public void run(final int from, final int to, final BoaEmitBuffer context) throws Exception {
+				if (from > 0)
+					throw new IllegalStateException();
+			}
+		}, null);
+	}
+
+	private static TaskInputOutputContext<?, ?, EmitKey, EmitValue> context(final List<String> written) throws Exception {
+		final RecordWriter<EmitKey, EmitValue> writer = new RecordWriter<EmitKey, EmitValue>() {
+			@Override
+			public void write(final EmitKey key, final EmitValue value) {
+				written.add(key.getIndex() + " " + value.getData()[0]);
+			}
+
+			@Override
+			public void close(final TaskAttemptContext context) {
+			}
+		};
+
+		return new TaskInputOutputContext<Object, Object, EmitKey, EmitValue>(new Configuration(), new TaskAttemptID(), writer, null, null) {
+			@Override
+			public boolean nextKeyValue() {
+				return false;
+			}
+
+			@Override
+			public Object getCurrentKey() {
+				return null;
+			}
+
+			@Override
+			public Object getCurrentValue() {
+				return null;
+			}
+		};
+	}
+}